@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.unicode.cldr.util.SimpleXMLSource;
 import org.unicode.cldr.util.XPathParts;
 import org.unicode.cldr.web.CookieSession;
 import org.unicode.cldr.web.DBUtils;
@@ -65,6 +66,41 @@ public class TestXPathTable extends TestFmwk {
         logln("OK: Tested " + ii + " values");
     }
 
+    public void TestLoadXPathsBatch() throws SQLException {
+        Connection conn = DBUtils.getInstance().getDBConnection();
+        XPathTable xpt = XPathTable.createTable(conn);
+        DBUtils.closeDBConnection(conn);
+        final String prefix = "//test/batch" + System.currentTimeMillis();
+        SimpleXMLSource source = new SimpleXMLSource("und");
+        for (int i = 0; i < TEST_COUNT; i++) {
+            source.putValueAtDPath(prefix + "/item[@n=\"" + i + "\"]", Integer.toString(i));
+        }
+        if (xpt.peekByXpath(prefix + "/item[@n=\"0\"]") != XPathTable.NO_XPATH) {
+            errln("Error: unloaded xpath already has an id");
+        }
+        xpt.loadXPaths(source);
+        HashMap<Integer, String> s = new HashMap<Integer, String>();
+        for (String xpath : source) {
+            int xpid = xpt.peekByXpath(xpath);
+            if (xpid == XPathTable.NO_XPATH) {
+                errln("Error: no id for " + xpath);
+            } else if (s.containsKey(xpid)) {
+                errln("Error: Duplicate id " + xpid + " for " + xpath + " and " + s.get(xpid));
+            } else if (!xpath.equals(xpt.getById(xpid))) {
+                errln("Error: id " + xpid + " is " + xpt.getById(xpid) + " expected " + xpath);
+            }
+            s.put(xpid, xpath);
+        }
+        // loading again is a no-op
+        xpt.loadXPaths(source);
+        for (Map.Entry<Integer, String> e : s.entrySet()) {
+            if (xpt.getByXpath(e.getValue()) != e.getKey()) {
+                errln("Error: id for " + e.getValue() + " changed from " + e.getKey() + " to " + xpt.getByXpath(e.getValue()));
+            }
+        }
+        logln("OK: Batch loaded " + s.size() + " xpaths");
+    }
+
     public void TestRemoveDraftAltProposed() {
         String inout[] = {
 
@@ -23,6 +23,9 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.json.JSONArray;
@@ -50,6 +53,7 @@ import org.unicode.cldr.util.CldrUtility;
 import org.unicode.cldr.util.CoverageInfo;
 import org.unicode.cldr.util.LDMLUtilities;
 import org.unicode.cldr.util.Level;
+import org.unicode.cldr.util.Pair;
 import org.unicode.cldr.util.PathHeader;
 import org.unicode.cldr.util.PathHeader.PageId;
 import org.unicode.cldr.util.PathHeader.SurveyToolStatus;
@@ -62,6 +66,8 @@ import org.unicode.cldr.util.XPathParts;
 import org.unicode.cldr.web.DataSection.DataRow.CandidateItem;
 import org.unicode.cldr.web.UserRegistry.User;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.ibm.icu.text.SimpleDateFormat;
 import com.ibm.icu.util.Calendar;
@@ -96,9 +102,14 @@ public class DataSection implements JSONString {
     public CLDRFile translationHintsFile;
     
     /**
-     * The DisplayAndInputProcessor for this DataSection
+     * The DisplayAndInputProcessor for each thread; it is not thread-safe, and sections are shared (see getSharedPage)
      */
-    private DisplayAndInputProcessor processor = null;
+    private static final ThreadLocal<DisplayAndInputProcessor> processor = new ThreadLocal<DisplayAndInputProcessor>() {
+        @Override
+        protected DisplayAndInputProcessor initialValue() {
+            return new DisplayAndInputProcessor(SurveyMain.TRANS_HINT_LOCALE, false);
+        }
+    };
 
     /**
      * A DataRow represents a "row" of data - a single distinguishing xpath
@@ -139,11 +150,6 @@ public class DataSection implements JSONString {
              */
             private boolean isBaselineValue = false;
 
-            /**
-             * checkedVotes is used only in the function getVotes, for efficiency.
-             */
-            private boolean checkedVotes = false;
-
             /**
              * TODO: document the purpose of examples, non-null only in a short block of code
              * currently (2018-8-10) near end of populateFrom.
@@ -158,14 +164,19 @@ public class DataSection implements JSONString {
             private List<CheckStatus> tests = null;
 
             /**
-             * Set of Users who voted on this item
+             * Set of Users who voted on this item, unmodifiable; or null if none
              */
-            private Set<UserRegistry.User> votes = null;
+            private final Set<UserRegistry.User> votes;
 
             /**
              * see getValueHash
              */
-            private String valueHash = null;
+            private final String valueHash;
+
+            /**
+             * see getProcessedValue
+             */
+            private final String processedValue;
 
             /**
              * A history of events in the creation of this CandidateItem,
@@ -179,10 +190,15 @@ public class DataSection implements JSONString {
              *
              * @param value,  may be null if called by setShimTests!
              *
-             * This constructor sets this.rawValue, which is final (can't be changed once set here).
+             * This constructor sets this.rawValue, and the final fields derived from it,
+             * so that nothing is set lazily once the DataSection is shared.
              */
             private CandidateItem(String value) {
                 this.rawValue = value;
+                this.valueHash = DataSection.getValueHash(value);
+                this.processedValue = processValue(value);
+                Set<UserRegistry.User> voters = ballotBox.getVotesForValue(xpath, value);
+                this.votes = (voters == null) ? null : Collections.unmodifiableSet(voters);
             }
 
             /**
@@ -208,16 +224,28 @@ public class DataSection implements JSONString {
              * Compare what is called "rawValue" on both server and client.
              */
             private String getProcessedValue() {
-                if (rawValue == null) {
+                return processedValue;
+            }
+
+            /**
+             * Process the given raw value for display
+             *
+             * @param value the raw value, or null
+             * @return the processed value, or the raw value if it can't be processed
+             *
+             * Called only by the CandidateItem constructor
+             */
+            private String processValue(String value) {
+                if (value == null) {
                     return null;
                 }
                 try {
-                    return getProcessor().processForDisplay(xpath, rawValue);
+                    return processor.get().processForDisplay(xpath, value);
                 } catch (Throwable t) {
                     if (SurveyLog.DEBUG) {
-                        SurveyLog.logException(t, "While processing " + xpath + ":" + rawValue);
+                        SurveyLog.logException(t, "While processing " + xpath + ":" + value);
                     }
-                    return rawValue;
+                    return value;
                 }
             }
 
@@ -227,9 +255,6 @@ public class DataSection implements JSONString {
              * @return the hash of the raw value
              */
             private String getValueHash() {
-                if (valueHash == null) {
-                    valueHash = DataSection.getValueHash(rawValue);
-                }
                 return valueHash;
             }
 
@@ -267,13 +292,9 @@ public class DataSection implements JSONString {
             /**
              * Get the set of votes for this CandidateItem
              *
-             * @return the set of votes
+             * @return the set of votes, unmodifiable; or null if none
              */
             private Set<UserRegistry.User> getVotes() {
-                if (!checkedVotes) {
-                    votes = ballotBox.getVotesForValue(xpath, rawValue);
-                    checkedVotes = true;
-                }
                 return votes;
             }
 
@@ -425,6 +446,7 @@ public class DataSection implements JSONString {
                 }
                 Set<User> theVotes = getVotes();
                 if (theVotes != null && !theVotes.isEmpty()) {
+                    User user = getUserForVotelist();
                     JSONObject voteList = new JSONObject();
                     for (UserRegistry.User u : theVotes) {
                         if (u.getLevel() == VoteResolver.Level.locked) {
@@ -443,7 +465,7 @@ public class DataSection implements JSONString {
                             voteCount = u.getLevel().getVotes();
                         }
                         uu.put("votes", voteCount);
-                        if (userForVotelist != null) {
+                        if (user != null) {
                             uu.put("name", u.name);
                             uu.put("email", u.email.replace("@", " (at) "));
                         }
@@ -573,32 +595,29 @@ public class DataSection implements JSONString {
          */
         public Map<String, CandidateItem> items = new TreeMap<String, CandidateItem>();
 
-        /** Cache of field hash **/
-        String myFieldHash = null;
+        /** The field hash, set by the constructor **/
+        private final String myFieldHash;
 
         /* parentRow - defaults to self if it is a "super" (i.e. parent without any
          * alternate)
          */
         public DataRow parentRow = this;
 
-        /**
-         * Used only in the function getPrettyPath
-         */
-        private String pp = null;
-        
         /**
          * The pretty path for this DataRow, set by the constructor.
          * 
          *  Accessed by NameSort.java, SortMode.java, datarow_short_code.jsp
          */
-        public String prettyPath = null;
+        public final String prettyPath;
 
         /*
          * Ordering for use in collator
          * 
-         * Referenced by SortMode.java
+         * Referenced by SortMode.java, which fills it in while sorting; each entry only ever
+         * changes from -1 to the same computed int, so threads sorting a shared row at once
+         * may compute an entry twice but never see a wrong one.
          */
-        public int reservedForSort[] = SortMode.reserveForSort();
+        public final int reservedForSort[] = SortMode.reserveForSort();
         
         /**
          * The winning value for this DataRow
@@ -655,7 +674,10 @@ public class DataSection implements JSONString {
             this.xpath = xpath;
             this.xpathId = sm.xpt.getByXpath(xpath);
             this.prettyPath = sm.xpt.getPrettyPath(xpathId);
+            this.myFieldHash = "_x" + CookieSession.cheapEncode(xpathId);
             pathHeader = sm.getSTFactory().getPathHeader(xpath); // may be null
+            Map<String, String> nda = sm.xpt.getUndistinguishingElementsFor(diskFile.getFullXPath(xpath), new XPathParts());
+            this.nonDistinguishingAttributes = (nda == null) ? null : Collections.unmodifiableMap(nda);
 
             if (ballotBox == null) {
                 throw new InternalError("ballotBox is null;");
@@ -741,12 +763,7 @@ public class DataSection implements JSONString {
         /**
          * Calculate the hash used for HTML forms for this DataRow.
          */
-        public String fieldHash() { // deterministic. No need for sync.
-            if (myFieldHash == null) {
-                String ret = "";
-                ret = ret + "_x" + CookieSession.cheapEncode(getXpathId());
-                myFieldHash = ret;
-            }
+        public String fieldHash() {
             return myFieldHash;
         }
 
@@ -778,10 +795,7 @@ public class DataSection implements JSONString {
         }
 
         public String getPrettyPath() {
-            if (pp == null) {
-                pp = sm.xpt.getPrettyPath(xpathId);
-            }
-            return pp;
+            return prettyPath;
         }
 
         public PathHeader getPathHeader() {
@@ -1188,9 +1202,10 @@ public class DataSection implements JSONString {
             try {
                 String winningVhash = DataSection.getValueHash(winningValue);
 
+                User user = getUserForVotelist();
                 String voteVhash = "";
-                if (userForVotelist != null) {
-                    String ourVote = ballotBox.getVoteValue(userForVotelist, xpath);
+                if (user != null) {
+                    String ourVote = ballotBox.getVoteValue(user, xpath);
                     if (ourVote != null) {
                         CandidateItem voteItem = items.get(ourVote);
                         if (voteItem != null) {
@@ -1230,7 +1245,7 @@ public class DataSection implements JSONString {
 
                 Map<String, String> extraAttributes = getNonDistinguishingAttributes();
 
-                boolean hasVoted = (userForVotelist != null) ? userHasVoted(userForVotelist.id) : false;
+                boolean hasVoted = (user != null) ? userHasVoted(user.id) : false;
 
                 String inheritedXpid = (pathWhereFound != null) ? XPathTable.getStringIDString(pathWhereFound) : null;
 
@@ -1342,14 +1357,9 @@ public class DataSection implements JSONString {
         }
 
         /*
-         * A Map used only in getNonDistinguishingAttributes
+         * A Map used only in getNonDistinguishingAttributes, set by the constructor; unmodifiable, or null
          */
-        private Map<String, String> nonDistinguishingAttributes = null;
-
-        /*
-         * A boolean used only in getNonDistinguishingAttributes
-         */
-        private boolean checkedNDA = false;
+        private final Map<String, String> nonDistinguishingAttributes;
 
         /**
          * Get the map of non-distinguishing attributes for this DataRow
@@ -1359,11 +1369,6 @@ public class DataSection implements JSONString {
          * Called only by DataRow.toJSONString
          */
         private Map<String, String> getNonDistinguishingAttributes() {
-            if (checkedNDA == false) {
-                String fullDiskXPath = diskFile.getFullXPath(xpath);
-                nonDistinguishingAttributes = sm.xpt.getUndistinguishingElementsFor(fullDiskXPath, new XPathParts());
-                checkedNDA = true;
-            }
             return nonDistinguishingAttributes;
         }
 
@@ -1375,7 +1380,7 @@ public class DataSection implements JSONString {
         public StatusAction getStatusAction() {
             // null because this is for display.
             return SurveyMain.phase().getCPhase()
-                .getShowRowAction(this, InputMethod.DIRECT, getPathHeader().getSurveyToolStatus(), userForVotelist);
+                .getShowRowAction(this, InputMethod.DIRECT, getPathHeader().getSurveyToolStatus(), getUserForVotelist());
         }
 
         /**
@@ -1438,6 +1443,12 @@ public class DataSection implements JSONString {
      */
     private User userForVotelist = null;
 
+    /**
+     * The user for whom a section is being converted to JSON in this thread, set by forUser;
+     * pages from the page cache are shared by all sessions, so they have no userForVotelist of their own.
+     */
+    private static final ThreadLocal<User> jsonUser = new ThreadLocal<User>();
+
     /**
      * Set the user for this DataSection
      *
@@ -1445,14 +1456,56 @@ public class DataSection implements JSONString {
      *
      * @param u the User
      *
-     * TODO: Determine whether we need DataSection to be user-specific, as userForVotelist implies
+     * Not for pages from the page cache, which are shared; use forUser for those.
      *
-     * Called by getRow, make, submitVoteOrAbstention, and handleBulkSubmit
+     * Called by make, submitVoteOrAbstention, and handleBulkSubmit
      */
     public void setUserForVotelist(User u) {
         userForVotelist = u;
     }
 
+    /**
+     * Get the user whose votes are shown: the one given to forUser, if the section is being
+     * converted to JSON that way, else the one given to setUserForVotelist
+     *
+     * @return the User, or null
+     */
+    private User getUserForVotelist() {
+        User u = jsonUser.get();
+        return (u != null) ? u : userForVotelist;
+    }
+
+    /**
+     * Get this DataSection as JSON for the given user, without changing the section,
+     * which may be shared with other sessions.
+     *
+     * Only the user's own vote (voteVhash, hasVoted), the voter names, and the status action depend on the user;
+     * everything else is the same for all users.
+     *
+     * @param u the User, or null
+     * @return the JSONString
+     *
+     * Called by SurveyAjax.getRow
+     */
+    public JSONString forUser(final User u) {
+        return new JSONString() {
+            @Override
+            public String toJSONString() throws JSONException {
+                User outer = jsonUser.get();
+                jsonUser.set(u);
+                try {
+                    return DataSection.this.toJSONString();
+                } finally {
+                    if (outer == null) {
+                        jsonUser.remove();
+                    } else {
+                        jsonUser.set(outer);
+                    }
+                }
+            }
+        };
+    }
+
     /**
      * A DisplaySet represents a list of rows, in sorted and divided order.
      */
@@ -1606,9 +1659,9 @@ public class DataSection implements JSONString {
     private static final boolean TRACE_TIME = false;
 
     /**
-     * Field to cache the Coverage info
+     * Field to cache the Coverage info; set once, then read without locking
      */
-    private static CoverageInfo covInfo = null;
+    private static volatile CoverageInfo covInfo = null;
 
     /**
      * Synchronization Mutex used for accessing/setting the coverageInfo object
@@ -1704,45 +1757,168 @@ public class DataSection implements JSONString {
 
         SurveyMain sm = CookieSession.sm; // TODO: non-deprecated way of getting sm -- could be ctx.sm unless ctx is null
 
+        if (session == null) {
+            throw new InternalError("session == null");
+        }
+        synchronized (session) {
+            CheckCLDR.Options options = getOptions(ctx, session, locale);
+            if (pageId != null && prefix == null && matcher == null && PAGE_CACHE_SIZE > 0) {
+                return getSharedPage(sm, pageId, locale, options);
+            }
+            return make(sm, pageId, locale, prefix, matcher, options, session.user);
+        }
+    }
+
+    /**
+     * Create, populate, and complete a DataSection for the given options
+     *
+     * @param sm the SurveyMain
+     * @param pageId the PageId, or null
+     * @param locale the CLDRLocale
+     * @param prefix the XPATH prefix, or null
+     * @param matcher the XPathMatcher, or null
+     * @param options the CheckCLDR.Options, giving the coverage level
+     * @param user the User for setUserForVotelist, or null for a page to be shared
+     * @return the DataSection
+     */
+    private static DataSection make(SurveyMain sm, PageId pageId, CLDRLocale locale, String prefix, XPathMatcher matcher,
+        CheckCLDR.Options options, User user) {
+
         DataSection section = new DataSection(pageId, sm, locale, prefix, matcher);
 
         CLDRFile ourSrc = sm.getSTFactory().make(locale.getBaseName(), true, true);
 
         ourSrc.setSupplementalDirectory(sm.getSupplementalDirectory());
 
-        if (session == null) {
-            throw new InternalError("session == null");
-        }
-        if (session.user != null) {
-            section.setUserForVotelist(session.user);
+        if (user != null) {
+            section.setUserForVotelist(user);
         }
 
         if (ourSrc.getSupplementalDirectory() == null) {
             throw new InternalError("?!! ourSrc hsa no supplemental dir!");
         }
-        synchronized (session) {
-            TestResultBundle checkCldr = sm.getSTFactory().getTestResult(locale, getOptions(ctx, session, locale));
-            if (checkCldr == null) {
-                throw new InternalError("checkCldr == null");
-            }
-            section.translationHintsFile = sm.getTranslationHintsFile();
-            String englishPath = section.translationHintsFile.getSupplementalDirectory().getPath();
-            section.nativeExampleGenerator = TestCache.getExampleGenerator(locale, ourSrc, section.translationHintsFile, englishPath);
+        TestResultBundle checkCldr = sm.getSTFactory().getTestResult(locale, options);
+        if (checkCldr == null) {
+            throw new InternalError("checkCldr == null");
+        }
+        section.translationHintsFile = sm.getTranslationHintsFile();
+        String englishPath = section.translationHintsFile.getSupplementalDirectory().getPath();
+        section.nativeExampleGenerator = TestCache.getExampleGenerator(locale, ourSrc, section.translationHintsFile, englishPath);
 
-            section.populateFrom(ourSrc, checkCldr);
-            /*
-             * Call ensureComplete if and only if pageId is null. TODO: Explain, why?
-             * pageId is null when called from submitVoteOrAbstention, and also
-             * when a user selects a "Fix" button in the Dashboard. Ordinarily
-             * when the user opens a page, pageId is not null.
-             */
-            if (pageId == null) {
-                section.ensureComplete(ourSrc, checkCldr);
+        section.populateFrom(ourSrc, checkCldr);
+        /*
+         * Call ensureComplete if and only if pageId is null. TODO: Explain, why?
+         * pageId is null when called from submitVoteOrAbstention, and also
+         * when a user selects a "Fix" button in the Dashboard. Ordinarily
+         * when the user opens a page, pageId is not null.
+         */
+        if (pageId == null) {
+            section.ensureComplete(ourSrc, checkCldr);
+        }
+        return section;
+    }
+
+    /**
+     * Most pages kept in the page cache. Set with CLDR_PAGE_CACHE_SIZE; 0 turns the cache off.
+     */
+    private static final int PAGE_CACHE_SIZE = CLDRConfig.getInstance().getProperty("CLDR_PAGE_CACHE_SIZE", 200);
+
+    /**
+     * Most seconds a page is kept in the page cache. Set with CLDR_PAGE_CACHE_SECONDS.
+     *
+     * Pages are dropped when a value on them changes (see pageChanged), but their errors and examples
+     * may also depend on values on other pages; those are picked up when the page expires.
+     */
+    private static final int PAGE_CACHE_SECONDS = CLDRConfig.getInstance().getProperty("CLDR_PAGE_CACHE_SECONDS", 300);
+
+    /**
+     * Cache of whole pages, shared by all sessions, keyed by page and options (locale and coverage level).
+     * Only the vote overlay is per user; see forUser.
+     */
+    private static final Cache<Pair<PageId, CheckCLDR.Options>, DataSection> pageCache = CacheBuilder.newBuilder()
+        .maximumSize(PAGE_CACHE_SIZE).expireAfterWrite(PAGE_CACHE_SECONDS, TimeUnit.SECONDS).softValues().build();
+
+    /**
+     * Counts the changes heard by pageChanged for each locale, so that a page made while one was heard
+     * for its locale is not cached; changes in other locales don't matter
+     */
+    private static final ConcurrentHashMap<CLDRLocale, AtomicLong> pageCacheGenerations = new ConcurrentHashMap<CLDRLocale, AtomicLong>();
+
+    private static final Object PAGE_CACHE_SYNC = new Object();
+
+    /**
+     * Get the page from the page cache, making it if needed
+     *
+     * @param sm the SurveyMain
+     * @param pageId the PageId
+     * @param locale the CLDRLocale
+     * @param options the CheckCLDR.Options for the locale
+     * @return the DataSection, which must not be changed; use forUser to get its JSON
+     *
+     * Called only by make
+     */
+    private static DataSection getSharedPage(SurveyMain sm, PageId pageId, CLDRLocale locale, CheckCLDR.Options options) {
+        Pair<PageId, CheckCLDR.Options> key = new Pair<PageId, CheckCLDR.Options>(pageId, options);
+        DataSection section = pageCache.getIfPresent(key);
+        if (section != null) {
+            if (section.ballotBox == sm.getSTFactory().ballotBoxForLocale(locale)) {
+                return section;
+            }
+            pageCache.asMap().remove(key, section); // the locale was reloaded since
+        }
+        AtomicLong localeGeneration = getPageCacheGeneration(locale);
+        long generation = localeGeneration.get();
+        section = make(sm, pageId, locale, null, null, options, null);
+        synchronized (PAGE_CACHE_SYNC) {
+            if (generation == localeGeneration.get()) {
+                pageCache.put(key, section);
             }
         }
         return section;
     }
 
+    /**
+     * Get the counter of changes heard by pageChanged for the given locale
+     *
+     * @param locale the CLDRLocale
+     * @return the counter, which is kept for as long as the server runs (one per locale)
+     */
+    private static AtomicLong getPageCacheGeneration(CLDRLocale locale) {
+        AtomicLong generation = pageCacheGenerations.get(locale);
+        if (generation == null) {
+            AtomicLong newGeneration = new AtomicLong();
+            generation = pageCacheGenerations.putIfAbsent(locale, newGeneration);
+            if (generation == null) {
+                generation = newGeneration;
+            }
+        }
+        return generation;
+    }
+
+    /**
+     * Drop the cached pages of the given locale that show the given page
+     *
+     * @param locale the CLDRLocale
+     * @param pageId the PageId of the path whose value has changed, or null to drop all pages of the locale
+     *
+     * Called by STFactory, from TestCache.valueChanged, for the locale and each of its sublocales
+     */
+    static void pageChanged(CLDRLocale locale, PageId pageId) {
+        synchronized (PAGE_CACHE_SYNC) {
+            getPageCacheGeneration(locale).incrementAndGet();
+            if (pageCache.size() == 0) {
+                return;
+            }
+            List<Pair<PageId, CheckCLDR.Options>> toRemove = new ArrayList<Pair<PageId, CheckCLDR.Options>>();
+            for (Pair<PageId, CheckCLDR.Options> k : pageCache.asMap().keySet()) {
+                if (k.getSecond().getLocale().equals(locale) && (pageId == null || pageId == k.getFirst())) {
+                    toRemove.add(k);
+                }
+            }
+            pageCache.invalidateAll(toRemove);
+        }
+    }
+
     /**
      * Get the options for the given WebContext, or, if the context is null, get the
      * options for the given CookieSession and CLDRLocale
@@ -2011,12 +2187,16 @@ public class DataSection implements JSONString {
      * @return the CoverageInfo
      */
     private CoverageInfo getCoverageInfo() {
-        synchronized (GET_COVERAGEINFO_SYNC) {
-            if (covInfo == null) {
-                covInfo = CLDRConfig.getInstance().getCoverageInfo();
+        CoverageInfo result = covInfo;
+        if (result == null) {
+            synchronized (GET_COVERAGEINFO_SYNC) {
+                if (covInfo == null) {
+                    covInfo = CLDRConfig.getInstance().getCoverageInfo();
+                }
+                result = covInfo;
             }
-            return covInfo;
         }
+        return result;
     }
 
     /**
@@ -2049,6 +2229,8 @@ public class DataSection implements JSONString {
      *
      * @param xpath the string...
      * @return the matching DataRow
+     *
+     * Adds the row if it is missing, so not for pages from the page cache, which are shared.
      */
     public DataRow getDataRow(String xpath) {
         if (xpath == null) {
@@ -2605,18 +2787,4 @@ public class DataSection implements JSONString {
             throw new JSONException(t);
         }
     }
-
-    /**
-     * Get the DisplayAndInputProcessor for this DataSection; if there isn't one yet, create it
-     *
-     * @return the processor
-     *
-     * Called by getProcessedValue
-     */
-    private DisplayAndInputProcessor getProcessor() {
-        if (processor == null) {
-            processor = new DisplayAndInputProcessor(SurveyMain.TRANS_HINT_LOCALE, false);
-        }
-        return processor;
-    }
 }
@@ -7,28 +7,39 @@
 
 package org.unicode.cldr.web;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 
 import javax.servlet.ServletException;
@@ -160,6 +171,26 @@ public class OutputFileManager {
         static final String[] mainAndAnnotations = { justMain, justAnnotations };
     }
 
+    /**
+     * The most recent "output all files" job; a new one may only start once it has finished.
+     */
+    private static final AtomicReference<OutputAllFilesTask> outputAllFilesTask = new AtomicReference<OutputAllFilesTask>();
+
+    /**
+     * Number of locales written at the same time by outputAllFiles. Set with CLDR_OUTPUT_THREADS.
+     */
+    private static final int OUTPUT_THREADS = Math.max(1, CLDRConfig.getInstance().getProperty("CLDR_OUTPUT_THREADS",
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+
+    /**
+     * Name of the file, in the vetdata folder, listing the locales written so far by outputAllFiles.
+     * It is removed when all locales have been written; if a run is stopped or crashes, the next run
+     * in the same folder skips the locales listed, unless their data has changed since.
+     */
+    private static final String CHECKPOINT_FILE_NAME = "outputAllFiles.checkpoint";
+
+    private static final Object CHECKPOINT_LOCK = new Object();
+
     /**
      * Output all files (VXML, etc.) and verify their consistency
      *
@@ -172,6 +203,10 @@ public class OutputFileManager {
      * This function was started using code moved here from admin-OutputAllFiles.jsp.
      * Reference: CLDR-12016 and CLDR-11877
      *
+     * The work is queued as an OutputAllFilesTask, so the request returns at once; its progress
+     * is shown in the Survey Tool status ("processing"), and loading the page again with only
+     * the "vap" parameter shows its report.
+     *
      * Compare output-status.jsp which maybe should be linked from here -- user may want to
      * view it at the same time as this. However, that gets complicated if we create a new
      * vetdata folder.
@@ -185,32 +220,126 @@ public class OutputFileManager {
                 out.write("Not authorized.");
                 return;
             }
+            SurveyMain sm = CookieSession.sm;
+            OutputAllFilesTask task = outputAllFilesTask.get();
+            if ("true".equals(request.getParameter("stop"))) {
+                if (task == null || task.isFinished()) {
+                    out.write("<p>No output job is running.</p>\n");
+                } else {
+                    if (sm.startupThread.cancel(task)) {
+                        task.finished = true; // never started
+                    }
+                    out.write("<p>Requested stop of: " + task + "</p>\n");
+                }
+                return;
+            }
             boolean outputFiles = "true".equals(request.getParameter("output"));
-            boolean makeSeparateDir = "true".equals(request.getParameter("separate"));
+            String resumeDirName = request.getParameter("resume");
+            boolean makeSeparateDir = "true".equals(request.getParameter("separate")) || resumeDirName != null;
             boolean removeEmpty = "true".equals(request.getParameter("remove"));
             boolean verifyConsistent = "true".equals(request.getParameter("verify"));
             if (!(outputFiles || makeSeparateDir || removeEmpty || verifyConsistent)) {
+                if (task != null) {
+                    out.write("<p>" + task + "</p>\n");
+                    out.write(task.getReport());
+                    return;
+                }
                 out.write("<p>Usage: specify at least one of these parameters (all false by default):</p>\n");
                 out.write("output=true/false<br>\n");
                 out.write("separate=true/false<br>\n");
                 out.write("remove=true/false<br>\n");
                 out.write("verify=true/false<br>\n");
+                out.write("<p>Other parameters:</p>\n");
+                out.write("resume=vetdata-... (a folder made by separate=true, to finish writing it)<br>\n");
+                out.write("stop=true (stop the job that is running)<br>\n");
                 return;
             }
             /*
-             * Sync on OutputFileManager.class here prevents re-entrance if invoked repeatedly before completion.
-             * Performance problem if run while Survey Tool has multiple users/requests?
-             * Completion of http request/response may take over ten minutes! TODO: use ajax.
+             * Only one job at a time; the job itself runs on the SurveyThread, so that it
+             * neither holds a lock that other admin operations need nor keeps the request open.
              */
-            synchronized (OutputFileManager.class) {
-                SurveyMain sm = CookieSession.sm;
+            OutputAllFilesTask newTask = sm.getOutputFileManager().new OutputAllFilesTask(outputFiles, makeSeparateDir,
+                resumeDirName, removeEmpty, verifyConsistent);
+            if ((task != null && !task.isFinished()) || !outputAllFilesTask.compareAndSet(task, newTask)) {
+                out.write("<p>Already running: " + outputAllFilesTask.get() + "</p>\n");
+                return;
+            }
+            sm.startupThread.addTask(newTask);
+            out.write("<p>Started: " + newTask + ". Load this page with only the vap parameter to see the report.</p>\n");
+        } catch (Exception e) {
+            System.err.println("Exception in outputAndVerifyAllFiles: " + e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * The work of outputAndVerifyAllFiles, done on the SurveyThread
+     */
+    private class OutputAllFilesTask extends SurveyThread.SurveyTask {
+        private final boolean outputFiles;
+        private final boolean makeSeparateDir;
+        private final String resumeDirName;
+        private final boolean removeEmpty;
+        private final boolean verifyConsistent;
+
+        /**
+         * The HTML report; StringWriter is safe to read while it is being written.
+         */
+        private final StringWriter report = new StringWriter();
+
+        volatile int localeCount = 0;
+        volatile int localesDone = 0;
+        volatile boolean finished = false;
+
+        OutputAllFilesTask(boolean outputFiles, boolean makeSeparateDir, String resumeDirName, boolean removeEmpty,
+            boolean verifyConsistent) {
+            super("Output all files");
+            this.outputFiles = outputFiles;
+            this.makeSeparateDir = makeSeparateDir;
+            this.resumeDirName = resumeDirName;
+            this.removeEmpty = removeEmpty;
+            this.verifyConsistent = verifyConsistent;
+        }
+
+        String getReport() {
+            return report.toString();
+        }
 
-                OutputFileManager ofm = sm.getOutputFileManager();
-                // top line is like "Have OFM=org.unicode.cldr.web.OutputFileManager@4d150a19" -- is this still needed?
-                out.write("Have OFM=" + ofm.toString() + "\n");
+        boolean isFinished() {
+            return finished;
+        }
 
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(name);
+            if (finished) {
+                sb.append(" (finished)");
+            } else if (!running()) {
+                sb.append(" (stopping)");
+            } else if (!started()) {
+                sb.append(" (waiting)");
+            }
+            if (localeCount > 0) {
+                sb.append(": " + localesDone + "/" + localeCount + " locales");
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public void run() throws Throwable {
+            Writer out = report;
+            try {
                 File vetdataDir = sm.getVetdir();
-                if (makeSeparateDir) {
+                if (resumeDirName != null) {
+                    File resumeDir = new File(vetdataDir.getParentFile(), resumeDirName);
+                    if (!resumeDirName.startsWith(vetdataDir.getName() + "-") || resumeDirName.contains("/")
+                        || !resumeDir.isDirectory()) {
+                        out.write("No such directory to resume: " + resumeDirName);
+                        return;
+                    }
+                    vetdataDir = resumeDir;
+                    out.write("<p>Resuming in directory: " + vetdataDir.toString() + "</p>");
+                } else if (makeSeparateDir) {
                     vetdataDir = createNewManualVetdataDir(vetdataDir);
                     if (vetdataDir == null) {
                         out.write("Directory creation for vetting data failed.");
@@ -221,11 +350,11 @@ public class OutputFileManager {
                     out.write("<p>Using auto directory: " + vetdataDir.toString() + "</p>");
                 }
 
-                if (outputFiles && !ofm.outputAllFiles(out, vetdataDir, makeSeparateDir)) {
+                if (outputFiles && !outputAllFiles(out, vetdataDir, makeSeparateDir, this)) {
                     out.write("File output failed.");
                     return;
                 }
-                if ((makeSeparateDir || removeEmpty) && !ofm.copyDtd(vetdataDir)) {
+                if ((makeSeparateDir || removeEmpty) && !copyDtd(vetdataDir)) {
                     out.write("Copying DTD failed.");
                     return;
                 }
@@ -234,15 +363,19 @@ public class OutputFileManager {
                     vxmlDir = new File(vetdataDir.toString() + "/" + Kind.vxml.name());
                 }
                 if (removeEmpty) {
-                    ofm.removeEmptyFiles(out, vxmlDir);
+                    removeEmptyFiles(out, vxmlDir);
                 }
                 if (verifyConsistent) {
-                    ofm.verifyAllFiles(out, vxmlDir);
+                    verifyAllFiles(out, vxmlDir);
                 }
+            } catch (Exception e) {
+                // report it here rather than letting the SurveyThread mark the whole Survey Tool as busted
+                System.err.println("Exception in outputAndVerifyAllFiles: " + e);
+                e.printStackTrace();
+                out.write("<p>Failed: " + e + "</p>\n");
+            } finally {
+                finished = true;
             }
-        } catch (Exception e) {
-            System.err.println("Exception in outputAndVerifyAllFiles: " + e);
-            e.printStackTrace();
         }
     }
 
@@ -322,80 +455,95 @@ public class OutputFileManager {
      * @param vetDataDir the folder in which to write
      * @param makeSeparateDir true if vetDataDir is a newly created "manual" folder,
      *                        false if it's the regular auto folder
+     * @param task the task doing this, for its progress, and to check whether it should stop
      * @return true for success, false for failure
      *
      * This function was first created using code moved here from admin-OutputAllFiles.jsp.
      * Reference: CLDR-12016 and CLDR-11877 and CLDR-11850
+     *
+     * Locales are written OUTPUT_THREADS at a time. Each locale written is recorded in the checkpoint
+     * file, so that a run that is stopped, or that fails, can be finished later without starting over.
      */
-    private boolean outputAllFiles(Writer out, File vetDataDir, boolean makeSeparateDir) {
+    private boolean outputAllFiles(Writer out, final File vetDataDir, final boolean makeSeparateDir, final OutputAllFilesTask task) {
         try {
             long start = System.currentTimeMillis();
             ElapsedTimer overallTimer = new ElapsedTimer("overall update started " + new java.util.Date());
-            int numupd = 0;
-
-            out.write("<ol>\n");
 
             Set<CLDRLocale> sortSet = new TreeSet<CLDRLocale>();
             sortSet.addAll(SurveyMain.getLocalesSet());
-            /*
-             * If makeSeparateDir is false, only replace files if they need to be updated; use
-             * a database Connection to help determine whether files need to be updated.
-             * If makeSeparateDir is true, all files are new so there's no need for Connection.
-             */
-            Connection conn = null;
+            final int total = sortSet.size() + 2;
+
+            final File checkpointFile = new File(vetDataDir, CHECKPOINT_FILE_NAME);
+            final Map<String, Long> done = readCheckpoint(checkpointFile);
+            if (!done.isEmpty()) {
+                out.write("<p>Resuming: " + done.size() + " locales were written by an earlier run.</p>\n");
+            }
+            out.write("<ol>\n");
+
+            final AtomicInteger numupd = new AtomicInteger();
+            final AtomicBoolean failed = new AtomicBoolean();
+            task.localeCount = sortSet.size();
+            ForkJoinPool pool = new ForkJoinPool(OUTPUT_THREADS);
+            CLDRProgressTask progress = sm.openProgress("Output all files", sortSet.size());
+            boolean allWaitedFor = false;
             try {
-                if (!makeSeparateDir) {
-                    conn = sm.dbUtils.getDBConnection();
-                }
-                for (CLDRLocale loc : sortSet) {
-                    Timestamp locTime = null;
-                    if (conn != null) {
-                        locTime = this.getLocaleTime(conn, loc);
-                        out.write("<li>" + loc.getDisplayName() + " - " + locTime.toLocaleString() + "<br/>\n");
-                    } else {
-                        out.write("<li>" + loc.getDisplayName() + "<br/>\n");
-                    }
-                    for (OutputFileManager.Kind kind : OutputFileManager.Kind.values()) {
-                        /*
-                         * TODO: is there any point in outputting anything here for kind other than vxml and pxml?
-                         */
-                        boolean nu = makeSeparateDir || this.fileNeedsUpdate(locTime, loc, kind.name());
-                        String background = nu ? "#ff9999" : "green";
-                        String weight = nu ? "regular" : "bold";
-                        String color = nu ? "silver" : "black";
-                        out.write("\n\n\t<span style=' background-color: " + background + "; font-weight: " + weight + "; color: " + color + ";'>");
-                        out.write(kind.toString());
-                        if (nu && (kind == OutputFileManager.Kind.vxml || kind == OutputFileManager.Kind.pxml)) {
-                            System.err.println("Writing " + loc.getDisplayName() + ":" + kind);
-                            ElapsedTimer et = new ElapsedTimer("to write " + loc + ":" + kind);
-                            if (makeSeparateDir) {
-                                File f = writeManualOutputFile(vetDataDir, loc, kind);
-                                if (f == null) {
-                                    out.write("FILE CREATION FAILED: " + loc.toString() + kind.name());
-                                    return false;
-                                }
-                            } else {
-                                File f = this.getOutputFile(conn, loc, kind.name());
-                                out.write(" x=" + (f != null && f.exists()));
+                List<Future<String>> results = new ArrayList<Future<String>>();
+                for (final CLDRLocale loc : sortSet) {
+                    results.add(pool.submit(new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            if (failed.get() || !task.running()) {
+                                return null; // not attempted
                             }
-                            numupd++;
-                            System.err.println(et + " - upd " + numupd + "/" + (sortSet.size() + 2));
+                            return outputLocale(loc, vetDataDir, makeSeparateDir, done, checkpointFile, numupd, total, failed);
                         }
-                        out.write("</span>  &nbsp;");
+                    }));
+                }
+                // Wait for the locales in order, so that the report is in order too
+                int n = 0;
+                for (Future<String> result : results) {
+                    String entry = result.get();
+                    if (entry != null) {
+                        out.write(entry);
                     }
-                    out.write("</li>\n");
+                    progress.update(++n);
+                    task.localesDone = n;
                 }
+                allWaitedFor = true;
             } finally {
-                if (conn != null) {
-                    DBUtils.close(conn);
+                if (allWaitedFor) {
+                    pool.shutdown();
+                } else {
+                    /*
+                     * A locale threw: stop the locales not yet started, and wait for the ones being
+                     * written, so that no file or checkpoint is written once the task is finished.
+                     */
+                    failed.set(true);
+                    pool.shutdownNow();
+                    try {
+                        while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                            System.err.println("outputAllFiles: waiting for locales being written to finish");
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
                 }
+                progress.close();
             }
             out.write("</ol>\n");
+            if (failed.get()) {
+                return false;
+            }
+            if (!task.running()) {
+                out.write("<p>Stopped. Run again in the same directory to write the remaining locales.</p>\n");
+                return false;
+            }
+            checkpointFile.delete(); // all done
             out.write("<hr>\n");
-            out.write("Total upd: " + numupd + "/" + (sortSet.size() + 2) + "\n");
+            out.write("Total upd: " + numupd + "/" + total + "\n");
             out.write("Total time: " + overallTimer + " : " + ((System.currentTimeMillis() - start) / (1000.0 * 60)) + "min\n");
 
-            System.err.println(overallTimer + " - updated " + numupd + "/" + (sortSet.size() + 2) +
+            System.err.println(overallTimer + " - updated " + numupd + "/" + total +
                 " in " + (System.currentTimeMillis() - start) / (1000.0 * 60) + " min");
             return true;
         } catch (Exception e) {
@@ -405,6 +553,112 @@ public class OutputFileManager {
         }
     }
 
+    /**
+     * Output the files for one locale, for outputAllFiles, and record the locale in the checkpoint file
+     *
+     * @param loc the locale
+     * @param vetDataDir the folder in which to write
+     * @param makeSeparateDir true if vetDataDir is a "manual" folder
+     * @param done the locales already written, from the checkpoint file, with the locale time they were written for
+     * @param checkpointFile the checkpoint file
+     * @param numupd the count of files written so far
+     * @param total the count of files to write, for logging
+     * @param failed set to true if a file could not be created
+     * @return the HTML list item for the locale
+     */
+    private String outputLocale(CLDRLocale loc, File vetDataDir, boolean makeSeparateDir, Map<String, Long> done,
+        File checkpointFile, AtomicInteger numupd, int total, AtomicBoolean failed) throws SQLException, IOException {
+        StringBuilder out = new StringBuilder();
+        /*
+         * If makeSeparateDir is false, only replace files if they need to be updated, using the
+         * locale time to determine whether files need to be updated. In either case, the locale time
+         * tells whether a locale recorded in the checkpoint file has changed since it was written.
+         */
+        Connection conn = null;
+        try {
+            conn = sm.dbUtils.getDBConnection();
+            Timestamp locTime = this.getLocaleTime(conn, loc);
+            long stamp = (locTime == null) ? 0 : locTime.getTime();
+            if (!makeSeparateDir && locTime != null) {
+                out.append("<li>" + loc.getDisplayName() + " - " + locTime.toLocaleString() + "<br/>\n");
+            } else {
+                out.append("<li>" + loc.getDisplayName() + "<br/>\n");
+            }
+            Long doneStamp = done.get(loc.getBaseName());
+            if (doneStamp != null && doneStamp.longValue() == stamp) {
+                out.append("(written by an earlier run)</li>\n");
+                return out.toString();
+            }
+            for (OutputFileManager.Kind kind : OutputFileManager.Kind.values()) {
+                /*
+                 * TODO: is there any point in outputting anything here for kind other than vxml and pxml?
+                 */
+                boolean nu = makeSeparateDir || this.fileNeedsUpdate(locTime, loc, kind.name());
+                String background = nu ? "#ff9999" : "green";
+                String weight = nu ? "regular" : "bold";
+                String color = nu ? "silver" : "black";
+                out.append("\n\n\t<span style=' background-color: " + background + "; font-weight: " + weight + "; color: " + color + ";'>");
+                out.append(kind.toString());
+                if (nu && (kind == OutputFileManager.Kind.vxml || kind == OutputFileManager.Kind.pxml)) {
+                    System.err.println("Writing " + loc.getDisplayName() + ":" + kind);
+                    ElapsedTimer et = new ElapsedTimer("to write " + loc + ":" + kind);
+                    if (makeSeparateDir) {
+                        File f = writeManualOutputFile(vetDataDir, loc, kind);
+                        if (f == null) {
+                            out.append("FILE CREATION FAILED: " + loc.toString() + kind.name());
+                            failed.set(true);
+                            return out.toString();
+                        }
+                    } else {
+                        File f = this.getOutputFile(conn, loc, kind.name());
+                        out.append(" x=" + (f != null && f.exists()));
+                    }
+                    System.err.println(et + " - upd " + numupd.incrementAndGet() + "/" + total);
+                }
+                out.append("</span>  &nbsp;");
+            }
+            out.append("</li>\n");
+            appendCheckpoint(checkpointFile, loc, stamp);
+            return out.toString();
+        } finally {
+            if (conn != null) {
+                DBUtils.close(conn);
+            }
+        }
+    }
+
+    /**
+     * Read the checkpoint file written by outputAllFiles
+     *
+     * @param checkpointFile the file, which need not exist
+     * @return a map from locale name to the locale time it was written for
+     * @throws IOException
+     */
+    private static Map<String, Long> readCheckpoint(File checkpointFile) throws IOException {
+        Map<String, Long> done = new HashMap<String, Long>();
+        if (checkpointFile.exists()) {
+            for (String line : Files.readAllLines(checkpointFile.toPath(), StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                if (fields.length == 2) {
+                    try {
+                        done.put(fields[0], Long.parseLong(fields[1]));
+                    } catch (NumberFormatException e) {
+                        // partly written line, from a crash: write that locale again
+                    }
+                }
+            }
+        }
+        return done;
+    }
+
+    private static void appendCheckpoint(File checkpointFile, CLDRLocale loc, long stamp) throws IOException {
+        synchronized (CHECKPOINT_LOCK) {
+            try (Writer w = new OutputStreamWriter(new FileOutputStream(checkpointFile, true), StandardCharsets.UTF_8)) {
+                w.write(loc.getBaseName() + "\t" + stamp + "\n");
+            }
+        }
+    }
+
     /**
      * Write out the specified file(s).
      *
@@ -828,7 +1082,10 @@ public class OutputFileManager {
         try {
             File outFile = sm.getDataFile(kind.toString(), loc);
 
-            doWriteFile(loc, file, kind, outFile);
+            if (!doWriteFile(loc, file, kind, outFile)) {
+                SurveyLog.debug("Updater: Unchanged: " + kind + "/" + loc + " - " + ElapsedTimer.elapsedTime(st));
+                return outFile; // nothing new to add
+            }
             SurveyLog.debug("Updater: Wrote: " + kind + "/" + loc + " - " + ElapsedTimer.elapsedTime(st));
 
             if (tryCommit && (kind.equals("vxml") || kind.equals("pxml"))) {
@@ -881,32 +1138,59 @@ public class OutputFileManager {
     /**
      * Write one or more files. For vxml (at least), write one in "main" and one in "annotations".
      *
+     * The output is made in memory first, and a file is only replaced if its contents change;
+     * otherwise it is just marked as modified now, so that fileNeedsUpdate sees it as current.
+     * Locales often become out of date without any change to their own output (for example,
+     * when a parent locale gets a vote), so this keeps unchanged files, and their version control
+     * status, as they were.
+     *
      * @param loc the CLDRLocale
      * @param file the CLDRFile for reading
      * @param outFile the File for "main"; another file will be created in "annotations"
-     * @throws UnsupportedEncodingException
-     * @throws FileNotFoundException
+     * @return true if any file was written or removed, false if they were all unchanged
+     * @throws IOException
      */
-    private void doWriteFile(CLDRLocale loc, CLDRFile file, Kind kind, File outFile) throws UnsupportedEncodingException,
-        FileNotFoundException {
-        try (PrintWriter u8out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outFile), "UTF8"))) {
-            if (kind == Kind.vxml || kind == Kind.rxml) {
-                file.write(u8out, OPTS_SKIP_ANNOTATIONS);
-
-                // output annotations, too
-                File parentDir = outFile.getParentFile().getParentFile();
-                File annotationsDir = new File(parentDir, "annotations"); // TODO: avoid hard-coding "annotations" here
-                annotationsDir.mkdirs();
-                File aFile = new File(annotationsDir, outFile.getName()); // same name, different subdir
-                try (PrintWriter u8outa = new PrintWriter(new OutputStreamWriter(new FileOutputStream(aFile), "UTF8"))) {
-                    if (!file.write(u8outa, OPTS_KEEP_ANNOTATIONS)) {
-                        aFile.delete();
-                    }
-                }
-            } else {
-                file.write(u8out);
-            }
+    private boolean doWriteFile(CLDRLocale loc, CLDRFile file, Kind kind, File outFile) throws IOException {
+        if (kind == Kind.vxml || kind == Kind.rxml) {
+            boolean changed = writeIfChanged(outFile, file, OPTS_SKIP_ANNOTATIONS);
+
+            // output annotations, too
+            File parentDir = outFile.getParentFile().getParentFile();
+            File annotationsDir = new File(parentDir, "annotations"); // TODO: avoid hard-coding "annotations" here
+            annotationsDir.mkdirs();
+            File aFile = new File(annotationsDir, outFile.getName()); // same name, different subdir
+            return writeIfChanged(aFile, file, OPTS_KEEP_ANNOTATIONS) || changed;
+        } else {
+            return writeIfChanged(outFile, file, Collections.<String, Object> emptyMap());
+        }
+    }
+
+    /**
+     * Write the file, unless it already has exactly the same contents
+     *
+     * @param outFile the File to write
+     * @param file the CLDRFile for reading
+     * @param options the options for CLDRFile.write; if it writes nothing, outFile is removed
+     * @return true if outFile was written or removed, false if it was unchanged
+     * @throws IOException
+     */
+    private static boolean writeIfChanged(File outFile, CLDRFile file, Map<String, ?> options) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        boolean wrote;
+        try (PrintWriter u8out = new PrintWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            wrote = file.write(u8out, options);
         }
+        if (!wrote) {
+            return outFile.delete();
+        }
+        byte[] contents = bytes.toByteArray();
+        if (outFile.exists() && outFile.length() == contents.length
+            && Arrays.equals(contents, Files.readAllBytes(outFile.toPath()))) {
+            outFile.setLastModified(System.currentTimeMillis());
+            return false;
+        }
+        Files.write(outFile.toPath(), contents);
+        return true;
     }
 
     /**
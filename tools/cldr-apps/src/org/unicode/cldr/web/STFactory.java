@@ -13,6 +13,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
@@ -26,7 +28,11 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.unicode.cldr.icu.LDMLConstants;
 import org.unicode.cldr.test.CheckCLDR;
@@ -42,7 +48,6 @@ import org.unicode.cldr.util.Emoji;
 import org.unicode.cldr.util.Factory;
 import org.unicode.cldr.util.LDMLUtilities;
 import org.unicode.cldr.util.LocaleIDParser;
-import org.unicode.cldr.util.LruMap;
 import org.unicode.cldr.util.Pair;
 import org.unicode.cldr.util.PathHeader;
 import org.unicode.cldr.util.SimpleXMLSource;
@@ -57,6 +62,8 @@ import org.unicode.cldr.web.SurveyException.ErrorCode;
 import org.unicode.cldr.web.UserRegistry.ModifyDenial;
 import org.unicode.cldr.web.UserRegistry.User;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.ibm.icu.dev.util.ElapsedTimer;
 import com.ibm.icu.text.NumberFormat;
 import com.ibm.icu.util.VersionInfo;
@@ -134,6 +141,70 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
 
     private static final String VOTE_OVERRIDE = "vote_override";
 
+    /**
+     * Number of threads used to resolve the votes of a locale while loading it; 1 resolves on the loading thread.
+     * Set with CLDR_VOTE_LOAD_THREADS.
+     */
+    private static final int VOTE_LOAD_THREADS = Math.max(1,
+        CLDRConfig.getInstance().getProperty("CLDR_VOTE_LOAD_THREADS", Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Number of vote rows fetched from the database at a time. Set with CLDR_VOTE_LOAD_FETCH_SIZE.
+     */
+    private static final int VOTE_LOAD_FETCH_SIZE = CLDRConfig.getInstance().getProperty("CLDR_VOTE_LOAD_FETCH_SIZE", 4096);
+
+    /**
+     * Fewest paths worth resolving on a separate thread.
+     */
+    private static final int VOTE_LOAD_MIN_CHUNK = 256;
+
+    private static final ForkJoinPool VOTE_LOAD_POOL = VOTE_LOAD_THREADS > 1 ? new ForkJoinPool(VOTE_LOAD_THREADS) : null;
+
+    /**
+     * The votes read for a locale, one array per column, so that a large locale
+     * doesn't need an object per vote while the cursor is open.
+     */
+    private static final class VoteColumns {
+        int size = 0;
+        int[] xpath = new int[1024];
+        int[] submitter = new int[1024];
+        String[] value = new String[1024];
+        int[] override = new int[1024];
+        long[] lastMod = new long[1024];
+        final BitSet noOverride = new BitSet();
+        final BitSet noLastMod = new BitSet();
+
+        void add(int xp, int user, String v, int voteOverride, boolean isNullOverride, Timestamp when) {
+            if (size == xpath.length) {
+                int newLength = size * 2;
+                xpath = Arrays.copyOf(xpath, newLength);
+                submitter = Arrays.copyOf(submitter, newLength);
+                value = Arrays.copyOf(value, newLength);
+                override = Arrays.copyOf(override, newLength);
+                lastMod = Arrays.copyOf(lastMod, newLength);
+            }
+            xpath[size] = xp;
+            submitter[size] = user;
+            value[size] = v;
+            override[size] = voteOverride;
+            noOverride.set(size, isNullOverride);
+            if (when == null) {
+                noLastMod.set(size);
+            } else {
+                lastMod[size] = when.getTime();
+            }
+            size++;
+        }
+
+        Integer getOverride(int i) {
+            return noOverride.get(i) ? null : Integer.valueOf(override[i]);
+        }
+
+        Timestamp getLastMod(int i) {
+            return noLastMod.get(i) ? null : new Timestamp(lastMod[i]);
+        }
+    }
+
     public class DataBackedSource extends DelegateXMLSource {
         PerLocaleData ballotBox;
         XMLSource aliasOf; // original XMLSource
@@ -198,6 +269,16 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
          * @return the VoteResolver
          */
         public VoteResolver<String> setValueFromResolver(String path, VoteResolver<String> resolver, boolean resolveMorePaths) {
+            return setValueFromResolver(path, resolver, resolveMorePaths, false);
+        }
+
+        /**
+         * @param loading true when called by resolveAll, possibly on another thread, while this source is being loaded:
+         *        a VoteResolver.UnknownVoterException is thrown to the caller instead of being handled here (which
+         *        needs the STFactory lock), and no listeners are notified (this source doesn't have any yet)
+         */
+        private VoteResolver<String> setValueFromResolver(String path, VoteResolver<String> resolver, boolean resolveMorePaths,
+            boolean loading) {
             org.unicode.cldr.web.STFactory.PerLocaleData.PerXPathData xpd = ballotBox.peekXpathData(path);
             String res;
             String fullPath = null;
@@ -215,7 +296,8 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
                  * getWinningValue for vote resolution for a larger set of paths to get baseline etc. even
                  * if there are no votes.
                  */
-                res = (resolver = ballotBox.getResolver(xpd, path, resolver)).getWinningValue();
+                resolver = loading ? ballotBox.getResolverInternal(xpd, path, resolver) : ballotBox.getResolver(xpd, path, resolver);
+                res = resolver.getWinningValue();
                 String diskFullPath = ballotBox.diskData.getFullPathAtDPath(path);
                 if (diskFullPath == null) {
                     /*
@@ -244,15 +326,19 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
             }
             if (res != null) {
                 /*
-                 * TODO: needed to clear fullpath? Otherwise, fullpath may be ignored if
-                 * value is extant.
+                 * Overwrite in place rather than remove-then-put: readers don't take any lock,
+                 * so they must never see the path as momentarily missing. Set the full path
+                 * explicitly, since putValueAtPath leaves a stale draft full path in place
+                 * when the new full path is the distinguishing path.
                  */
-                delegate.removeValueAtDPath(path);
+                delegate.putFullPathAtDPath(path, fullPath);
                 delegate.putValueAtPath(fullPath, res);
             } else {
                 delegate.removeValueAtDPath(path);
             }
-            notifyListeners(path);
+            if (!loading) {
+                notifyListeners(path);
+            }
             return resolver;
         }
 
@@ -365,7 +451,13 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
      *
      */
     private final class PerLocaleData implements Comparable<PerLocaleData>, BallotBox<User> {
-        private CLDRFile file = null, rFile = null;
+        /*
+         * Threading: changes (votes, deletes, vxml) are serialized on this object's monitor.
+         * Readers take no lock: the files and sources are published through volatile fields
+         * once built, the per-xpath data is in concurrent maps, and each path's value is
+         * replaced in a single put, so a read never waits for a vote to be written to the db.
+         */
+        private volatile CLDRFile file = null, rFile = null;
         private CLDRLocale locale;
         private CLDRFile oldFile;
         private CLDRFile oldFileUnresolved;
@@ -375,7 +467,7 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
         /**
          * The held XMLSource.
          */
-        private DataBackedSource xmlsource = null;
+        private volatile DataBackedSource xmlsource = null;
         /**
          * The on-disk data. May be == to xmlsource for readonly data.
          */
@@ -431,9 +523,9 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
                 }
             };
 
-            Date lastModDate = null;
+            volatile Date lastModDate = null;
             Set<String> otherValues = null;
-            Map<User, PerUserData> userToData = null;
+            volatile Map<User, PerUserData> userToData = null;
 
             /**
              * Is there any user data (votes)?
@@ -568,12 +660,12 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
             }
         };
 
-        private Map<String, PerXPathData> xpathToData = new HashMap<String, PerXPathData>();
+        private Map<String, PerXPathData> xpathToData = new ConcurrentHashMap<String, PerXPathData>();
 //        private Map<String, Map<User, String>> xpathToVotes = new HashMap<String, Map<User, String>>();
 //        private Map<String, Map<User, Integer>> xpathToOverrides = new HashMap<String, Map<User, Integer>>();
 //        private Map<Integer, Set<String>> xpathToOtherValues = new HashMap<Integer, Set<String>>();
         private boolean oldFileMissing;
-        private XMLSource resolvedXmlsource = null;
+        private volatile XMLSource resolvedXmlsource = null;
         /**
          * Parent locale - or null.
          */
@@ -712,58 +804,80 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
              * TODO: move the readonly check to the caller
              */
             if (!readonly) {
-                VoteResolver<String> resolver = null; // save recalculating this.
                 ElapsedTimer et = (SurveyLog.DEBUG) ? new ElapsedTimer("Loading PLD for " + locale) : null;
                 Connection conn = null;
                 PreparedStatement ps = null;
                 ResultSet rs = null;
+                VoteColumns votes = new VoteColumns();
                 int n = 0;
                 int del = 0;
-                
+
                 try {
                     /*
                      * Select several columns (xp, submitter, value, override, last_mod),
                      * from all rows with the given locale in the votes table.
+                     * Rows are fetched VOTE_LOAD_FETCH_SIZE at a time, and only the
+                     * accepted ones are kept, in columns, until the cursor is closed.
                      */
                     conn = DBUtils.getInstance().getDBConnection();
                     ps = openQueryByLocaleRW(conn);
+                    ps.setFetchSize(VOTE_LOAD_FETCH_SIZE);
                     ps.setString(1, locale.getBaseName());
                     rs = ps.executeQuery();
 
+                    final Set<String> pathsForFile = getPathsForFile();
+                    final Map<Integer, User> submitters = new HashMap<Integer, User>(); // users who may vote here; null if not
                     while (rs.next()) {
                         int xp = rs.getInt(1);
-                        String xpath = sm.xpt.getById(xp);
                         int submitter = rs.getInt(2);
-                        String value = DBUtils.getStringUTF8(rs, 3);
-                        // 4 = locale -- unused; TODO: remove from openQueryByLocaleRW
-                        Integer voteOverride = rs.getInt(5); // 5 override
-                        if (voteOverride == 0 && rs.wasNull()) { // if override was a null..
-                            voteOverride = null;
+                        User theSubmitter;
+                        if (submitters.containsKey(submitter)) {
+                            theSubmitter = submitters.get(submitter);
+                        } else {
+                            theSubmitter = sm.reg.getInfo(submitter);
+                            if (theSubmitter == null) {
+                                SurveyLog.warnOnce("Ignoring votes for deleted user #" + submitter);
+                            }
+                            if (!UserRegistry.countUserVoteForLocale(theSubmitter, locale)) { // check user permission to submit
+                                theSubmitter = null;
+                            }
+                            submitters.put(submitter, theSubmitter);
                         }
-                        Timestamp last_mod = rs.getTimestamp(6); // last mod
-                        User theSubmitter = sm.reg.getInfo(submitter);
                         if (theSubmitter == null) {
-                            SurveyLog.warnOnce("Ignoring votes for deleted user #" + submitter);
-                        }
-                        if (!UserRegistry.countUserVoteForLocale(theSubmitter, locale)) { // check user permission to submit
                             continue;
                         }
+                        String xpath = sm.xpt.getById(xp);
                         if (!isValidSurveyToolVote(theSubmitter, xpath)) { // Make sure it is a visible path
                             continue;
                         }
-                        try {
-                            internalSetVoteForValue(theSubmitter, xpath, value, voteOverride, last_mod);
-                            n++;
-                        } catch (BallotBox.InvalidXPathException e) {
+                        if (!pathsForFile.contains(xpath)) {
                             System.err.println("InvalidXPathException: Deleting vote for " + theSubmitter + ":" + locale + ":" + xpath);
                             rs.deleteRow();
                             del++;
+                            continue;
                         }
+                        String value = DBUtils.getStringUTF8(rs, 3);
+                        // 4 = locale -- unused; TODO: remove from openQueryByLocaleRW
+                        int voteOverride = rs.getInt(5); // 5 override
+                        boolean noOverride = rs.wasNull(); // if override was a null..
+                        Timestamp last_mod = rs.getTimestamp(6); // last mod
+                        votes.add(xp, submitter, value, voteOverride, noOverride, last_mod);
                     }
                     if (del > 0) {
                         System.out.println("Committing delete of " + del + " invalid votes from " + locale);
                         conn.commit();
                     }
+
+                    for (int i = 0; i < votes.size; i++) {
+                        try {
+                            internalSetVoteForValue(submitters.get(votes.submitter[i]), sm.xpt.getById(votes.xpath[i]),
+                                votes.value[i], votes.getOverride(i), votes.getLastMod(i));
+                            n++;
+                        } catch (BallotBox.InvalidXPathException e) {
+                            // already checked while reading
+                            SurveyLog.logException(e, "Could not load vote for " + locale);
+                        }
+                    }
                 } catch (SQLException e) {
                     SurveyLog.logException(e);
                     SurveyMain.busted("Could not read locale " + locale, e);
@@ -796,11 +910,7 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
                 } else {
                     xpathSet = allPXDPaths();
                 }
-                int j = 0;
-                for (String xp : xpathSet) {
-                    resolver = targetXmlSource.setValueFromResolver(xp, resolver, resolveMorePaths);
-                    j++;
-                }
+                int j = resolveAll(targetXmlSource, xpathSet, resolveMorePaths);
                 SurveyLog.debug(et + " - resolved " + j + " items, " + n + " total.");
             }
             if (doStampAndListen) {
@@ -813,6 +923,84 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
             }
         }
 
+        /**
+         * Resolve the votes for each of the given paths, and set the winning values in targetXmlSource.
+         *
+         * The paths are split into VOTE_LOAD_THREADS chunks, each resolved on VOTE_LOAD_POOL with its own VoteResolver.
+         * The caller holds the lock of this PerLocaleData, and may hold the STFactory lock (in load), so the chunks
+         * must not take either: they only read the votes and the disk data, which are not changed while loading,
+         * and they leave the paths that have votes from voters unknown to VoteResolver to the caller.
+         * Once all the chunks are done, the caller reloads the voters and resolves those paths itself.
+         *
+         * @return the number of paths resolved
+         *
+         * Called by loadVoteValues only.
+         */
+        private int resolveAll(final DataBackedSource targetXmlSource, Set<String> xpathSet, final boolean resolveMorePaths) {
+            final String[] paths = xpathSet.toArray(new String[xpathSet.size()]);
+            int chunks = Math.min(VOTE_LOAD_THREADS, paths.length / VOTE_LOAD_MIN_CHUNK);
+            List<String> unknownVoterPaths = new ArrayList<String>();
+            if (chunks <= 1 || !ERRORS_ALLOWED_IN_VETTING) { // ValueChecker (CheckCLDR) is not thread safe
+                unknownVoterPaths.addAll(resolveRange(targetXmlSource, paths, 0, paths.length, resolveMorePaths));
+            } else {
+                List<Future<List<String>>> tasks = new ArrayList<Future<List<String>>>(chunks);
+                for (int c = 0; c < chunks; c++) {
+                    final int start = (int) ((long) paths.length * c / chunks);
+                    final int end = (int) ((long) paths.length * (c + 1) / chunks);
+                    tasks.add(VOTE_LOAD_POOL.submit(new Callable<List<String>>() {
+                        @Override
+                        public List<String> call() throws Exception {
+                            return resolveRange(targetXmlSource, paths, start, end, resolveMorePaths);
+                        }
+                    }));
+                }
+                // Wait for the tasks to complete, and report any errors
+                for (Future<List<String>> task : tasks) {
+                    try {
+                        unknownVoterPaths.addAll(task.get());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InternalError("Interrupted while resolving votes for " + locale);
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof RuntimeException) {
+                            throw (RuntimeException) cause;
+                        } else if (cause instanceof Error) {
+                            throw (Error) cause;
+                        }
+                        throw new RuntimeException(cause);
+                    }
+                }
+            }
+            if (!unknownVoterPaths.isEmpty()) {
+                handleUserChanged(null);
+                VoteResolver<String> resolver = null;
+                for (String path : unknownVoterPaths) {
+                    resolver = targetXmlSource.setValueFromResolver(path, resolver, resolveMorePaths);
+                }
+            }
+            return paths.length;
+        }
+
+        /**
+         * Resolve paths[start] to paths[end - 1] into targetXmlSource.
+         *
+         * @return the paths skipped because they have votes from voters unknown to VoteResolver
+         */
+        private List<String> resolveRange(DataBackedSource targetXmlSource, String[] paths, int start, int end,
+            boolean resolveMorePaths) {
+            List<String> unknownVoterPaths = new ArrayList<String>();
+            VoteResolver<String> resolver = null; // save recalculating this.
+            for (int i = start; i < end; i++) {
+                try {
+                    resolver = targetXmlSource.setValueFromResolver(paths[i], resolver, resolveMorePaths, true);
+                } catch (VoteResolver.UnknownVoterException e) {
+                    unknownVoterPaths.add(paths[i]);
+                }
+            }
+            return unknownVoterPaths;
+        }
+
         @Override
         public int compareTo(PerLocaleData arg0) {
             if (this == arg0) {
@@ -833,22 +1021,29 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
             }
         }
 
-        public synchronized CLDRFile getFile(boolean resolved) {
-            if (resolved) {
-                if (rFile == null) {
-                    if (getSupplementalDirectory() == null)
-                        throw new InternalError("getSupplementalDirectory() == null!");
-                    rFile = new CLDRFile(makeSource(true)).setSupplementalDirectory(getSupplementalDirectory());
-                    rFile.getSupplementalDirectory();
-                }
-                return rFile;
-            } else {
-                if (file == null) {
-                    if (getSupplementalDirectory() == null)
-                        throw new InternalError("getSupplementalDirectory() == null!");
-                    file = new CLDRFile(makeSource(false)).setSupplementalDirectory(getSupplementalDirectory());
+        public CLDRFile getFile(boolean resolved) {
+            CLDRFile f = resolved ? rFile : file;
+            if (f != null) {
+                return f; // already built, no need to lock
+            }
+            synchronized (this) {
+                if (resolved) {
+                    if (rFile == null) {
+                        if (getSupplementalDirectory() == null)
+                            throw new InternalError("getSupplementalDirectory() == null!");
+                        f = new CLDRFile(makeSource(true)).setSupplementalDirectory(getSupplementalDirectory());
+                        f.getSupplementalDirectory();
+                        rFile = f;
+                    }
+                    return rFile;
+                } else {
+                    if (file == null) {
+                        if (getSupplementalDirectory() == null)
+                            throw new InternalError("getSupplementalDirectory() == null!");
+                        file = new CLDRFile(makeSource(false)).setSupplementalDirectory(getSupplementalDirectory());
+                    }
+                    return file;
                 }
-                return file;
             }
         }
 
@@ -1111,19 +1306,25 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
             }
         }
 
-        public synchronized XMLSource makeSource(boolean resolved) {
-            if (resolved == true) {
-                if (resolvedXmlsource == null) {
-                    resolvedXmlsource = makeResolvingSource(locale.getBaseName(), getMinimalDraftStatus());
-                }
-                return resolvedXmlsource;
-            } else {
-                if (readonly) {
-                    return diskData;
+        public XMLSource makeSource(boolean resolved) {
+            if (!resolved && readonly) {
+                return diskData;
+            }
+            XMLSource source = resolved ? resolvedXmlsource : xmlsource;
+            if (source != null) {
+                return source; // already built, no need to lock
+            }
+            synchronized (this) {
+                if (resolved == true) {
+                    if (resolvedXmlsource == null) {
+                        resolvedXmlsource = makeResolvingSource(locale.getBaseName(), getMinimalDraftStatus());
+                    }
+                    return resolvedXmlsource;
                 } else {
                     if (xmlsource == null) {
-                        xmlsource = new DataBackedSource(this);
-                        loadVoteValues(xmlsource, false /* resolveMorePaths */, true /* doStampAndListen */);
+                        DataBackedSource newSource = new DataBackedSource(this);
+                        loadVoteValues(newSource, false /* resolveMorePaths */, true /* doStampAndListen */);
+                        xmlsource = newSource; // publish only when fully loaded
                     }
                     return xmlsource;
                 }
@@ -1655,6 +1856,13 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
 
             progress.update("setup test cache");
             gTestCache.setFactory(this, "(?!.*(CheckCoverage).*).*");
+            gTestCache.addDependentCache(new TestCache.DependentCache() {
+                @Override
+                public void valueChanged(String xpath, CLDRLocale locale) {
+                    PathHeader ph = getPathHeader(xpath);
+                    DataSection.pageChanged(locale, (ph != null) ? ph.getPageId() : null);
+                }
+            });
             progress.update("setup disk test cache");
             gDiskTestCache.setFactory(sm.getDiskFactory(), "(?!.*(CheckCoverage).*).*");
             sm.reg.addListener(this);
@@ -1690,9 +1898,13 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
     /**
      * Per locale map
      */
-    private Map<CLDRLocale, Reference<PerLocaleData>> locales = new HashMap<CLDRLocale, Reference<PerLocaleData>>();
+    private Map<CLDRLocale, Reference<PerLocaleData>> locales = new ConcurrentHashMap<CLDRLocale, Reference<PerLocaleData>>();
 
-    private LruMap<CLDRLocale, PerLocaleData> rLocales = new LruMap<CLDRLocale, PerLocaleData>(5);
+    /**
+     * The most recently used locales, held strongly so that they are not collected.
+     * Lookups record the access without locking the factory.
+     */
+    private final Cache<CLDRLocale, PerLocaleData> rLocales = CacheBuilder.newBuilder().maximumSize(5).build();
 
     private Map<CLDRLocale, MutableStamp> localeStamps = new ConcurrentHashMap<CLDRLocale, MutableStamp>(SurveyMain.getLocales().length);
 
@@ -1732,12 +1944,36 @@ public class STFactory extends Factory implements BallotBoxFactory<UserRegistry.
 
     /**
      * Fetch a locale from the per locale data, create if not there.
+     * A locale that is already loaded is returned without locking the factory,
+     * and marked as recently used.
+     *
+     * @param locale
+     * @return
+     */
+    private final PerLocaleData get(CLDRLocale locale) {
+        PerLocaleData pld = rLocales.getIfPresent(locale); // records the access in the LRU
+        if (pld != null) {
+            return pld;
+        }
+        Reference<PerLocaleData> ref = locales.get(locale);
+        if (ref != null) {
+            pld = ref.get();
+            if (pld != null) {
+                rLocales.put(locale, pld); // back into the LRU
+                return pld;
+            }
+        }
+        return load(locale);
+    }
+
+    /**
+     * Slow path of {@link #get(CLDRLocale)}: load the locale, or bring it back into the LRU.
      *
      * @param locale
      * @return
      */
-    private synchronized final PerLocaleData get(CLDRLocale locale) {
-        PerLocaleData pld = rLocales.get(locale);
+    private synchronized final PerLocaleData load(CLDRLocale locale) {
+        PerLocaleData pld = rLocales.getIfPresent(locale);
         if (pld == null) {
             Reference<PerLocaleData> ref = locales.get(locale);
             if (ref != null) {
@@ -1160,15 +1160,12 @@ public class SurveyAjax extends HttpServlet {
         Set<PathHeader> resultPh = new TreeSet<PathHeader>();
 
         if (new UnicodeSet("[:Letter:]").containsSome(q)) {
-            // check English
-            Set<String> retrievedPaths = new HashSet<String>();
+            // check values, English and codes; with a final "*", only for those starting with q
+            boolean prefixOnly = q.endsWith("*");
+            String text = prefixOnly ? q.substring(0, q.length() - 1) : q;
             SurveyMain sm = CookieSession.sm;
-            sm.getTranslationHintsFile().getPathsWithValue(q, "", null, retrievedPaths);
             final STFactory stFactory = sm.getSTFactory();
-            if (l != null) {
-                stFactory.make(l, true).getPathsWithValue(q, "", null, retrievedPaths);
-            }
-            for (String xp : retrievedPaths) {
+            for (String xp : ValueSearchIndex.getInstance(sm, l).search(text, prefixOnly)) {
                 PathHeader ph = stFactory.getPathHeader(xp);
                 if (ph != null) {
                     resultPh.add(ph);
@@ -2662,7 +2659,6 @@ public class SurveyAjax extends HttpServlet {
                          * There is no "xpath" parameter.
                          */
                         section = ctx.getDataSection(null /* prefix */, null /* matcher */, pageId);
-                        section.setUserForVotelist(mySession.user);
                     } else if (xp != null) {
                         /*
                          * We arrive here when a user votes for an item, invoked by request from survey.js
@@ -2716,7 +2712,7 @@ public class SurveyAjax extends HttpServlet {
                         .key("stro").value(STFactory.isReadOnlyLocale(locale))
                         .key("baseXpath").value(baseXp)
                         .key("pageId").value((pageId != null) ? pageId.name() : null)
-                        .key("section").value(section)
+                        .key("section").value(section.forUser(mySession.user)) // the section may be shared
                         .key("localeDisplayName").value(locale.getDisplayName())
                         .key("displaySets").value(dsets)
                         .key("dir").value(ctx.getDirectionForLocale())
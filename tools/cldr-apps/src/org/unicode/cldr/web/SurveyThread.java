@@ -3,15 +3,35 @@
  */
 package org.unicode.cldr.web;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.unicode.cldr.util.CLDRConfig;
 
 /**
  * @author srl
  *
- *         A worker thread that performs various SurveyTool tasks, starting with
- *         booting.
+ *         A pool of worker threads that perform various SurveyTool tasks,
+ *         starting with booting.
+ *
+ *         Tasks are taken in priority order (see {@link Priority}), and in
+ *         the order they were added within a priority. One worker is reserved
+ *         for {@link Priority#INTERACTIVE} tasks, so that a long batch task
+ *         (or another user's dashboard) does not hold everyone else up. The
+ *         number of workers can be set with the CLDR_SURVEYTHREADS property.
  */
-public class SurveyThread extends Thread {
+public class SurveyThread {
+
+    /**
+     * The priority of a task. Interactive tasks (such as a single user's
+     * dashboard) are taken before batch tasks (startup, summaries, output
+     * files).
+     */
+    public enum Priority {
+        INTERACTIVE, BATCH
+    }
 
     public static boolean shouldStop() {
         SurveyTask ct = currentTask();
@@ -24,7 +44,7 @@ public class SurveyThread extends Thread {
 
     public static boolean inTask() {
         Thread th = Thread.currentThread();
-        if (th instanceof SurveyThread) {
+        if (th instanceof Worker) {
             return true;
         } else {
             return false;
@@ -33,22 +53,31 @@ public class SurveyThread extends Thread {
 
     public static SurveyTask currentTask() {
         Thread th = Thread.currentThread();
-        if (th instanceof SurveyThread) {
-            SurveyThread st = (SurveyThread) th;
+        if (th instanceof Worker) {
+            Worker w = (Worker) th;
 
-            return st.current;
+            return w.current;
         } else {
             return null;
         }
     }
 
     /**
-     * Are we still running?
+     * The life cycle of the pool: tasks may be added while it is NEW or RUNNING;
+     * once STOPPED, it never runs again.
      */
-    boolean surveyThreadIsRunning = true;
+    private enum State {
+        NEW, RUNNING, STOPPED
+    }
+
+    /**
+     * The current state. Only changed while holding the tasks lock, so that a task is never
+     * added after the pool has stopped; read without locking.
+     */
+    private volatile State state = State.NEW;
 
     boolean mainThreadRunning() {
-        return surveyThreadIsRunning;
+        return state != State.STOPPED;
     }
 
     /**
@@ -66,7 +95,21 @@ public class SurveyThread extends Thread {
          */
         public String name;
 
-        private boolean taskRunning = true;
+        private volatile boolean taskRunning = true;
+
+        private final Priority priority;
+
+        /**
+         * Order in which the task was added, to keep tasks of the same
+         * priority first-in-first-out.
+         */
+        private long sequence;
+
+        /**
+         * The worker running this task, or null if it has not started (or
+         * has finished).
+         */
+        private volatile Worker theWorker = null;
 
         /**
          * Request this task to stop.
@@ -81,7 +124,10 @@ public class SurveyThread extends Thread {
          */
         public void kill() {
             stop();
-            theThread.interrupt();
+            Worker w = theWorker;
+            if (w != null) {
+                w.interrupt();
+            }
         }
 
         protected SurveyThread theThread = null;
@@ -92,18 +138,44 @@ public class SurveyThread extends Thread {
          * @return true if the task is running
          */
         public boolean running() {
-            if (theThread != null && !theThread.surveyThreadIsRunning)
+            if (theThread != null && !theThread.mainThreadRunning())
                 return false;
             return taskRunning;
         }
 
+        /**
+         * Has a worker picked up this task?
+         *
+         * @return true if the task has started and not yet finished
+         */
+        public boolean started() {
+            return theWorker != null;
+        }
+
         /**
          * C'tor. The name is the initial name of the task.
          *
          * @param taskName
          */
         public SurveyTask(String taskName) {
+            this(taskName, Priority.BATCH);
+        }
+
+        /**
+         * C'tor.
+         *
+         * @param taskName
+         *            the initial name of the task
+         * @param priority
+         *            whether the task is interactive or batch
+         */
+        public SurveyTask(String taskName, Priority priority) {
             name = taskName;
+            this.priority = priority;
+        }
+
+        public Priority getPriority() {
+            return priority;
         }
 
         void setName(String taskName) {
@@ -111,9 +183,9 @@ public class SurveyThread extends Thread {
 
             // if possible, update current thread name.
             Thread th = Thread.currentThread();
-            if (th instanceof SurveyThread) {
-                SurveyThread st = (SurveyThread) th;
-                st.setName();
+            if (th instanceof Worker) {
+                Worker w = (Worker) th;
+                w.setName();
             }
         }
 
@@ -154,18 +226,113 @@ public class SurveyThread extends Thread {
         }
     }
 
+    /**
+     * One of the worker threads.
+     */
+    private class Worker extends Thread {
+        /**
+         * The current task, or null if none.
+         */
+        volatile SurveyTask current = null;
+
+        /**
+         * If true, this worker only takes interactive tasks.
+         */
+        private final boolean interactiveOnly;
+
+        private final int number;
+
+        Worker(int number, boolean interactiveOnly) {
+            this.number = number;
+            this.interactiveOnly = interactiveOnly;
+            setName();
+        }
+
+        /**
+         * The main run loop. Perform tasks or wait.
+         */
+        public void run() {
+            if (DEBUG)
+                System.err.println(getName() + ": Bootation.");
+            while (mainThreadRunning()) {
+                try {
+                    if (DEBUG)
+                        System.err.println(getName() + ": About to take from queue (count:" + tasksRemaining() + "):");
+                    current = take(interactiveOnly);
+                    if (current != null) {
+                        current.theWorker = this; // set the back pointer
+                    }
+                    setName();
+                    if (DEBUG)
+                        System.err.println(getName() + ": Got: " + current);
+                } catch (InterruptedException e) {
+                    if (DEBUG)
+                        System.err.println(getName() + ": Interrupted- running=" + mainThreadRunning());
+                }
+                if (current != null)
+                    try {
+                    if (DEBUG)
+                        System.err.println(getName() + "(count:" + tasksRemaining() + "): About to run: " + current);
+                    current.run();
+                    if (DEBUG)
+                        System.err.println(getName() + "(count:" + tasksRemaining() + "): Done running : " + current);
+                    } catch (Throwable t) {
+                    if (DEBUG)
+                        System.err.println(getName() + "(count:" + tasksRemaining() + "): Got exception on: " + current + " - "
+                            + t.toString());
+                    t.printStackTrace();
+                    SurveyMain.busted("While working on task " + current + " - " + t.toString(), t);
+                    } finally {
+                    current.theWorker = null;
+                    }
+                current = null; /* done. */
+                Thread.interrupted(); // clear any kill() aimed at the old task
+                setName();
+            }
+            if (DEBUG)
+                System.err.println(getName() + ": exitting!");
+        }
+
+        private void setName() {
+            this.setName("{ST Worker " + number + (interactiveOnly ? " (interactive)" : "") + ": Current:" + current + "}");
+        }
+    }
+
     /**
      * Debugging info on the main loop.
      */
     private static boolean DEBUG = false;
 
+    /**
+     * Take the next task, waiting if there is none.
+     *
+     * @param interactiveOnly
+     *            only take a task if it is {@link Priority#INTERACTIVE}
+     * @return the task, or null if the thread is stopping
+     * @throws InterruptedException
+     */
+    private SurveyTask take(boolean interactiveOnly) throws InterruptedException {
+        synchronized (tasks) {
+            while (mainThreadRunning()) {
+                SurveyTask head = tasks.peek();
+                if (head != null && (!interactiveOnly || head.priority == Priority.INTERACTIVE)) {
+                    return tasks.poll();
+                }
+                tasks.wait();
+            }
+            return null;
+        }
+    }
+
     /**
      * How many tasks are remaining? 0 if none.
      *
      * @return Number of tasks remaining (0 if none)
      */
     public int tasksRemaining() {
-        return tasks.size();
+        synchronized (tasks) {
+            return tasks.size();
+        }
     }
 
     /**
@@ -173,9 +340,44 @@ public class SurveyThread extends Thread {
      */
     public int tasksRemaining(@SuppressWarnings("rawtypes") Class ofClass) {
         int ret = 0;
-        for (SurveyTask t : tasks) {
-            if (ofClass.isInstance(t)) {
-                ret++;
+        synchronized (tasks) {
+            for (SurveyTask t : tasks) {
+                if (ofClass.isInstance(t)) {
+                    ret++;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * How many tasks of a certain kind are ahead of the given task in the
+     * queue? 0 if the task is not waiting.
+     */
+    public int tasksAhead(SurveyTask task, @SuppressWarnings("rawtypes") Class ofClass) {
+        int ret = 0;
+        synchronized (tasks) {
+            if (!tasks.contains(task)) {
+                return 0;
+            }
+            for (SurveyTask t : tasks) {
+                if (t != task && ofClass.isInstance(t) && TASK_ORDER.compare(t, task) < 0) {
+                    ret++;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * The tasks currently being worked on.
+     */
+    public List<SurveyTask> currentTasks() {
+        List<SurveyTask> ret = new ArrayList<SurveyTask>();
+        for (Worker w : workers) {
+            SurveyTask t = w.current;
+            if (t != null) {
+                ret.add(t);
             }
         }
         return ret;
@@ -185,19 +387,23 @@ public class SurveyThread extends Thread {
      * The current state of the thread.
      */
     public String toString() {
-        return "{ST Threads: Tasks waiting:" + tasksRemaining() + ", Current:" + current + ", Running:" + surveyThreadIsRunning
-            + "}";
+        return "{ST Threads: " + workers.size() + " workers, Tasks waiting:" + tasksRemaining() + ", Current:" + currentTasks()
+            + ", State:" + state + "}";
     }
 
     /**
      * The status, as HTML
      */
     public String htmlStatus() {
-        if (tasksRemaining() == 0 && current == null)
+        List<SurveyTask> current = currentTasks();
+        if (tasksRemaining() == 0 && current.isEmpty())
             return null;
         StringBuffer sb = new StringBuffer();
-        if (current != null) {
-            sb.append(current);
+        for (SurveyTask t : current) {
+            if (sb.length() > 0) {
+                sb.append(" * ");
+            }
+            sb.append(t);
         }
         if (tasksRemaining() > 0) {
             if (sb.length() > 0) {
@@ -209,49 +415,20 @@ public class SurveyThread extends Thread {
     }
 
     /**
-     * The current task, or null if none.
-     */
-    SurveyTask current = null;
-
-    /**
-     * The main run loop. Perform tasks or wait.
+     * Start the workers. Tasks added before this are held until now.
+     * Does nothing if the workers have already been started, or if the pool has been stopped.
      */
-    public void run() {
-        if (DEBUG)
-            System.err.println("SurveyThread: Bootation.");
-        setName();
-        while (this.surveyThreadIsRunning) {
-            try {
-                if (DEBUG)
-                    System.err.println("SurveyThread: About to take from queue (count:" + tasksRemaining() + "):");
-                current = tasks.take();
-                setName();
-                if (DEBUG)
-                    System.err.println("SurveyThread: Got: " + current);
-                current.theThread = this; // set the back pointer
-            } catch (InterruptedException e) {
-                if (DEBUG)
-                    System.err.println("SurveyThread: Interrupted- running=" + surveyThreadIsRunning);
+    public void start() {
+        synchronized (tasks) {
+            if (state != State.NEW) {
+                System.err.println("SurveyThread: not starting, state is " + state);
+                return;
+            }
+            state = State.RUNNING;
+            for (Worker w : workers) {
+                w.start();
             }
-            if (current != null)
-                try {
-                if (DEBUG)
-                    System.err.println("SurveyThread(count:" + tasksRemaining() + "): About to run: " + current);
-                current.run();
-                if (DEBUG)
-                    System.err.println("SurveyThread(count:" + tasksRemaining() + "): Done running : " + current);
-                } catch (Throwable t) {
-                if (DEBUG)
-                    System.err.println("SurveyThread(count:" + tasksRemaining() + "): Got exception on: " + current + " - "
-                        + t.toString());
-                t.printStackTrace();
-                SurveyMain.busted("While working on task " + current + " - " + t.toString(), t);
-                }
-            current = null; /* done. */
-            setName();
         }
-        if (DEBUG)
-            System.err.println("SurveyThread(count:" + tasksRemaining() + "): exitting!");
     }
 
     /**
@@ -269,41 +446,91 @@ public class SurveyThread extends Thread {
 
     /**
      * Add a task, use the default name. Throws an internal error if for some
-     * reason it couldn't be added.
+     * reason it couldn't be added, such as the pool having been stopped.
      *
      * @param t
      */
     public void addTask(SurveyTask t) {
-        if (!tasks.offer(t)) {
-            String complaint = "SurveyThread: can't add task " + t.name;
-            System.err.println(complaint);
-            throw new InternalError(complaint);
+        synchronized (tasks) {
+            if (state == State.STOPPED) {
+                t.taskRunning = false;
+                String complaint = "SurveyThread: stopped, can't add task " + t.name;
+                System.err.println(complaint);
+                throw new InternalError(complaint);
+            }
+            t.theThread = this; // set the back pointer
+            t.sequence = nextSequence++;
+            if (!tasks.offer(t)) {
+                String complaint = "SurveyThread: can't add task " + t.name;
+                System.err.println(complaint);
+                throw new InternalError(complaint);
+            }
+            tasks.notifyAll();
         }
     }
 
     public boolean removeTask(SurveyTask t) {
-        return tasks.remove(t);
+        synchronized (tasks) {
+            return tasks.remove(t);
+        }
+    }
+
+    /**
+     * Cancel a task: remove it from the queue if it is still waiting,
+     * otherwise ask it to stop.
+     *
+     * @param t
+     * @return true if the task had not started yet
+     */
+    public boolean cancel(SurveyTask t) {
+        if (removeTask(t)) {
+            t.taskRunning = false;
+            return true;
+        }
+        if (t.running()) {
+            t.stop();
+        }
+        return false;
     }
 
     /**
      * Request the ST to stop at its next available opportunity.
+     * Tasks still waiting are dropped, and no more tasks can be added.
      */
     public void requestStop() {
-        surveyThreadIsRunning = false; // shutdown the next time through
-        addTask(new SurveyTask("shutdown") {
-            public void run() throws Throwable {
-                System.err.println("Shutdown task: stop requested!");
-                // add other items here.
+        synchronized (tasks) {
+            state = State.STOPPED; // shutdown the next time through
+            for (SurveyTask t : tasks) {
+                t.taskRunning = false;
             }
-        });
+            if (!tasks.isEmpty()) {
+                System.err.println("SurveyThread: dropping " + tasks.size() + " waiting tasks");
+                tasks.clear();
+            }
+            tasks.notifyAll(); // wake up any idle workers
+        }
     }
 
     /**
-     *
+     * Stop, and interrupt the workers.
      */
     public void interruptStop() {
-        surveyThreadIsRunning = false;
-        this.interrupt();
+        requestStop();
+        for (Worker w : workers) {
+            w.interrupt();
+        }
+    }
+
+    /**
+     * Are any of the workers still alive?
+     */
+    public boolean isAlive() {
+        for (Worker w : workers) {
+            if (w.isAlive()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -313,18 +540,37 @@ public class SurveyThread extends Thread {
      */
     SurveyThread(SurveyMain sm) {
         this.sm = sm;
-        current = null;
-        setName();
+        int count = Math.max(1, CLDRConfig.getInstance().getProperty("CLDR_SURVEYTHREADS", DEFAULT_WORKERS));
+        for (int i = 0; i < count; i++) {
+            // With more than one worker, keep the first one for interactive tasks.
+            workers.add(new Worker(i, count > 1 && i == 0));
+        }
     }
 
-    private void setName() {
-        this.setName(toString());
-    }
+    private static final int DEFAULT_WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * Interactive before batch, then first-in-first-out.
+     */
+    private static final Comparator<SurveyTask> TASK_ORDER = new Comparator<SurveyTask>() {
+        @Override
+        public int compare(SurveyTask o1, SurveyTask o2) {
+            int diff = o1.priority.compareTo(o2.priority);
+            if (diff != 0) {
+                return diff;
+            }
+            return Long.compare(o1.sequence, o2.sequence);
+        }
+    };
 
     /**
-     * Main list of tasks.
+     * Main list of tasks. Guarded by itself.
      */
-    LinkedBlockingQueue<SurveyTask> tasks = new LinkedBlockingQueue<SurveyTask>();
+    private final PriorityQueue<SurveyTask> tasks = new PriorityQueue<SurveyTask>(11, TASK_ORDER);
+
+    private long nextSequence = 0;
+
+    private final List<Worker> workers = new ArrayList<Worker>();
 
     /**
      * Back-pointer.
@@ -339,26 +585,30 @@ public class SurveyThread extends Thread {
 
         System.err.println("SurveyThread: attempting shutdown...");
         try {
+            System.err.println("attempting requestStop()");
+            this.requestStop(); // even if never started, so that no more tasks are accepted
             if (!this.isAlive())
                 return;
-            System.err.println("attempting requestStop()");
-            this.requestStop();
             Thread.sleep(1000);
             if (!this.isAlive())
                 return;
 
-            SurveyTask aCurrent = current;
-            if (aCurrent != null) {
+            List<SurveyTask> aCurrent = currentTasks();
+            if (!aCurrent.isEmpty()) {
                 System.err.println("Attempting task stop on " + aCurrent + "..");
-                aCurrent.stop();
+                for (SurveyTask t : aCurrent) {
+                    t.stop();
+                }
                 Thread.sleep(1000);
                 if (!this.isAlive())
                     return;
             }
-            aCurrent = current; // in case it changed
-            if (aCurrent != null) {
+            aCurrent = currentTasks(); // in case it changed
+            if (!aCurrent.isEmpty()) {
                 System.err.println("Attempting task kill on " + aCurrent + "..");
-                aCurrent.kill();
+                for (SurveyTask t : aCurrent) {
+                    t.kill();
+                }
                 Thread.sleep(1000);
                 if (!this.isAlive())
                     return;
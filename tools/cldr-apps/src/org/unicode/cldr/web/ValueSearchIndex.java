@@ -0,0 +1,196 @@
+package org.unicode.cldr.web;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.unicode.cldr.util.CLDRConfig;
+import org.unicode.cldr.util.CLDRFile;
+import org.unicode.cldr.util.CLDRLocale;
+import org.unicode.cldr.util.CldrUtility;
+import org.unicode.cldr.util.PathHeader;
+import org.unicode.cldr.util.PathTextIndex;
+import org.unicode.cldr.util.XMLSource;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * In-memory search over the values of a locale, for the Survey Tool search (SurveyAjax WHAT_SEARCH).
+ *
+ * Each locale's resolved values are indexed on its first search, from the STFactory, and then kept
+ * current by listening to the locale's sources: the locale and its parents up to (not including) root,
+ * the same sources its resolved file listens to. A changed value is looked up in those sources and root,
+ * without resolving. The English values and PathHeader codes are the same for every locale, so they are
+ * indexed once.
+ *
+ * Paths that only inherit a changed value through an alias keep their old value until the index is rebuilt,
+ * which happens when the locale (or a parent) is reloaded.
+ */
+public class ValueSearchIndex implements XMLSource.Listener {
+    /**
+     * Most paths returned by one search.
+     */
+    public static final int MAX_RESULTS = 200;
+
+    /**
+     * Number of locales whose index is kept. Set with CLDR_SEARCH_INDEX_LOCALES.
+     */
+    private static final int INDEX_LOCALES = CLDRConfig.getInstance().getProperty("CLDR_SEARCH_INDEX_LOCALES", 32);
+
+    private static final Cache<CLDRLocale, ValueSearchIndex> byLocale = CacheBuilder.newBuilder()
+        .maximumSize(INDEX_LOCALES).build();
+
+    private static volatile PathTextIndex englishValues = null;
+    private static volatile PathTextIndex pathHeaderCodes = null;
+    private static final Object SHARED_MUTEX = new Object();
+
+    private final STFactory stFactory;
+    private final CLDRLocale locale;
+    private final Set<String> paths;
+
+    /**
+     * The sources of the locale and its parents, up to root; weak, so as not to keep a locale loaded only for its index.
+     */
+    private final List<WeakReference<XMLSource>> sources = new ArrayList<WeakReference<XMLSource>>();
+
+    private final PathTextIndex values = new PathTextIndex();
+
+    /**
+     * Get the index for a locale, building it if needed.
+     *
+     * @param sm the SurveyMain
+     * @param locale the locale
+     * @return the index
+     */
+    public static ValueSearchIndex getInstance(SurveyMain sm, final CLDRLocale locale) {
+        final STFactory stFactory = sm.getSTFactory();
+        buildShared(sm, stFactory);
+        ValueSearchIndex index = byLocale.getIfPresent(locale);
+        if (index != null) {
+            if (index.isCurrent()) {
+                return index;
+            }
+            byLocale.asMap().remove(locale, index); // a source was reloaded since
+        }
+        try {
+            return byLocale.get(locale, new Callable<ValueSearchIndex>() {
+                @Override
+                public ValueSearchIndex call() {
+                    return new ValueSearchIndex(stFactory, locale);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not index " + locale, e.getCause());
+        }
+    }
+
+    private static void buildShared(SurveyMain sm, STFactory stFactory) {
+        if (pathHeaderCodes != null) {
+            return;
+        }
+        synchronized (SHARED_MUTEX) {
+            if (pathHeaderCodes == null) {
+                CLDRFile english = sm.getTranslationHintsFile();
+                PathTextIndex englishIndex = new PathTextIndex();
+                PathTextIndex codeIndex = new PathTextIndex();
+                for (String path : english.fullIterable()) {
+                    englishIndex.put(path, english.getStringValue(path));
+                    PathHeader ph = stFactory.getPathHeader(path);
+                    if (ph != null) {
+                        codeIndex.put(path, ph.getCode());
+                    }
+                }
+                englishValues = englishIndex;
+                pathHeaderCodes = codeIndex; // last, since it marks both as built
+            }
+        }
+    }
+
+    private ValueSearchIndex(STFactory stFactory, CLDRLocale locale) {
+        this.stFactory = stFactory;
+        this.locale = locale;
+        this.paths = stFactory.getPathsForFile(locale);
+        CLDRFile resolvedFile = stFactory.make(locale, true);
+        for (CLDRLocale loc = locale; loc != null; loc = loc.getParent()) {
+            XMLSource source = stFactory.makeSource(loc.getBaseName(), false);
+            sources.add(new WeakReference<XMLSource>(source));
+            if (!loc.getBaseName().equals("root")) { // root isn't expected to change, as for a ResolvingSource
+                source.addListener(this);
+            }
+        }
+        synchronized (this) { // listening first, so that changes made while building wait, then read the new value
+            for (String path : paths) {
+                values.put(path, resolvedFile.getStringValue(path));
+            }
+        }
+        SurveyLog.debug("ValueSearchIndex: indexed " + values.size() + " values for " + locale);
+    }
+
+    /**
+     * Are the sources listened to still the ones the STFactory uses?
+     */
+    private boolean isCurrent() {
+        CLDRLocale loc = locale;
+        for (WeakReference<XMLSource> ref : sources) {
+            XMLSource source = ref.get();
+            if (source == null || source != stFactory.makeSource(loc.getBaseName(), false)) {
+                return false;
+            }
+            loc = loc.getParent();
+        }
+        return true;
+    }
+
+    /**
+     * Called on the thread making the change, so the value is read from the sources (the changed one
+     * among them), not from the STFactory.
+     */
+    @Override
+    public void valueChanged(String xpath, XMLSource source) {
+        if (!paths.contains(xpath)) {
+            return;
+        }
+        synchronized (this) {
+            values.put(xpath, getNearestValue(xpath));
+        }
+    }
+
+    /**
+     * The value of the path in the nearest of the locale and its parents that has one.
+     */
+    private String getNearestValue(String xpath) {
+        for (WeakReference<XMLSource> ref : sources) {
+            XMLSource source = ref.get();
+            String value = source == null ? null : source.getValueAtDPath(xpath);
+            if (value != null && !CldrUtility.INHERITANCE_MARKER.equals(value)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the paths of this locale whose value, English value, or PathHeader code contains the query,
+     * in that order; at most MAX_RESULTS.
+     *
+     * @param query the text to look for; case, spaces and most punctuation are ignored
+     * @param prefixOnly true to only find texts starting with the query
+     * @return the paths found
+     */
+    public Set<String> search(String query, boolean prefixOnly) {
+        Set<String> result = new LinkedHashSet<String>();
+        values.search(query, prefixOnly, MAX_RESULTS, result);
+        for (PathTextIndex shared : new PathTextIndex[] { englishValues, pathHeaderCodes }) {
+            if (result.size() >= MAX_RESULTS) {
+                break;
+            }
+            shared.search(query, prefixOnly, paths, MAX_RESULTS - result.size(), result);
+        }
+        return result;
+    }
+}
@@ -21,7 +21,6 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.Vector;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import javax.servlet.RequestDispatcher;
@@ -1117,10 +1116,6 @@ public class WebContext implements Cloneable, Appendable {
         dontShowLoading, showLoading
     };
 
-    private static final boolean CACHE_DATA_SECTION = false; // TESTING, not ready for use
-
-    private static final Map<String, DataSection> dataSectionCache = CACHE_DATA_SECTION ? new ConcurrentHashMap<String, DataSection>() : null;
-
     /**
      * Get a DataSection
      *
@@ -1133,9 +1128,8 @@ public class WebContext implements Cloneable, Appendable {
      *    ctx.getDataSection(null [prefix], null [matcher], pageId);
      *    ctx.getDataSection(baseXp [prefix], matcher, null [pageId]);
      *
-     * TODO: as part of DataSection performance improvement, consider moving this code to a different
-     * module, maybe DataSection itself, especially if we can make DataSection not be user-specific.
-     * WebContext is user-specific, and even request-specific.
+     * Whole pages (pageId not null) come from the page cache in DataSection.make, and may be shared with
+     * other sessions; use DataSection.forUser to get their JSON.
      *
      * Renamed 2019-05-15 from getSection (5 args) to getDataSection
      *
@@ -1145,28 +1139,18 @@ public class WebContext implements Cloneable, Appendable {
 
         DataSection section = null;
         synchronized (this) {
-            String cacheKey = null;
-            if (CACHE_DATA_SECTION) {
-                cacheKey = locale.toString(); // not enough!
-                section = dataSectionCache.get(cacheKey);
+            CLDRProgressTask progress = sm.openProgress("Loading");
+            try {
+                progress.update("<span title='" + sm.xpt.getPrettyPath(prefix) + "'>" + locale + "</span>");
+                flush();
+                synchronized (session) {
+                    section = DataSection.make(pageId, this /* ctx */, this.session, locale, prefix, matcher);
+                }
+            } finally {
+                progress.close(); // TODO: this can trigger "State Error: Closing an already-closed CLDRProgressIndicator"
             }
             if (section == null) {
-                CLDRProgressTask progress = sm.openProgress("Loading");
-                try {
-                    progress.update("<span title='" + sm.xpt.getPrettyPath(prefix) + "'>" + locale + "</span>");
-                    flush();
-                    synchronized (session) {
-                        section = DataSection.make(pageId, this /* ctx */, this.session, locale, prefix, matcher);
-                    }
-                } finally {
-                    progress.close(); // TODO: this can trigger "State Error: Closing an already-closed CLDRProgressIndicator"
-                }
-                if (section == null) {
-                    throw new InternalError("No section.");
-                }
-                if (CACHE_DATA_SECTION) {
-                    dataSectionCache.put(cacheKey, section);
-                }
+                throw new InternalError("No section.");
             }
         }
         return section;
@@ -14,11 +14,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.unicode.cldr.icu.LDMLConstants;
 import org.unicode.cldr.util.CLDRConfig;
@@ -34,8 +37,10 @@ import com.ibm.icu.impl.Utility;
 
 /**
  * This class maps between full and partial xpaths, and the small integers (xpids) which
- * are actually stored in the database. It keeps an in-memory cache which is
- * populated as ids are requested.
+ * are actually stored in the database. The whole table is loaded into memory
+ * when it is created, so lookups never go to the database and take no lock.
+ * Only adding new xpaths (in batches, see {@link #loadXPaths(XMLSource)}) is
+ * synchronized.
  *
  *
  * Definitions:
@@ -146,8 +151,8 @@ public class XPathTable {
         }
     }
 
-    public Hashtable<String, Integer> stringToId = new Hashtable<String, Integer>(4096); // public for statistics only
-    public Hashtable<Long, String> sidToString = new Hashtable<Long, String>(4096); // public for statistics only
+    public final Map<String, Integer> stringToId = new ConcurrentHashMap<String, Integer>(4096); // public for statistics only
+    public final Map<Long, String> sidToString = new ConcurrentHashMap<Long, String>(4096); // public for statistics only
 
     public String statistics() {
         return "DB: " + stat_dbAdd + "add/" + stat_dbFetch + "fetch/"
@@ -184,13 +189,17 @@ public class XPathTable {
      * the specified XMLSource which are not already in the database, they will
      * be created here.
      */
-    public synchronized void loadXPaths(XMLSource source) {
+    public void loadXPaths(XMLSource source) {
         // Get list of xpaths that aren't already loaded.
         Set<String> unloadedXpaths = new HashSet<String>();
         for (String xpath : source) {
-            unloadedXpaths.add(xpath);
+            if (!stringToId.containsKey(xpath)) {
+                unloadedXpaths.add(xpath);
+            }
+        }
+        if (unloadedXpaths.isEmpty()) {
+            return; // all known, no need for a connection
         }
-        unloadedXpaths.removeAll(stringToId.keySet());
 
         Connection conn = null;
         PreparedStatement queryStmt = null;
@@ -218,95 +227,127 @@ public class XPathTable {
     }
 
     /**
-     * Add a set of xpaths to the database.
+     * Add a set of xpaths to the database, in one batch.
+     * Xpaths which are already known are skipped.
      *
      * @param xpaths
      * @param conn
      * @throws SQLException
      */
-    private synchronized void addXpaths(Set<String> xpaths, Connection conn) throws SQLException {
-        if (xpaths.size() == 0)
+    private synchronized void addXpaths(Collection<String> xpaths, Connection conn) throws SQLException {
+        List<String> toAdd = new ArrayList<String>(xpaths.size());
+        for (String xpath : xpaths) {
+            if (!stringToId.containsKey(xpath)) { // may have been added while we waited
+                toAdd.add(xpath);
+            }
+        }
+        if (toAdd.isEmpty())
             return;
 
-        PreparedStatement queryStmt = null;
         PreparedStatement insertStmt = null;
-        // Insert new xpaths.
-        insertStmt = conn.prepareStatement("INSERT INTO " + CLDR_XPATHS + " (xpath) " + " values ("
-            + " ?)");
-        for (String xpath : xpaths) {
-            insertStmt.setString(1, Utility.escape(xpath));
-            insertStmt.addBatch();
-            stat_dbAdd++;
-        }
-        insertStmt.executeBatch();
-        conn.commit();
-        insertStmt.close();
-
-        // PreparedStatement.getGeneratedKeys() only returns the ID of the
-        // last INSERT statement, so we have to improvise here by performing
-        // another SELECT to get the newly-inserted IDs.
-        queryStmt = conn.prepareStatement("SELECT id,xpath FROM " + CLDR_XPATHS + " ORDER BY id DESC");
-        queryStmt.setMaxRows(xpaths.size());
-        queryStmt.setFetchSize(xpaths.size());
-        ResultSet rs = queryStmt.executeQuery();
-        while (rs.next()) {
-            int id = rs.getInt(1);
-            String xpath = Utility.unescape(rs.getString(2));
-            setById(id, xpath);
+        ResultSet rs = null;
+        List<String> missing = null;
+        try {
+            // Insert new xpaths.
+            insertStmt = conn.prepareStatement("INSERT INTO " + CLDR_XPATHS + " (xpath) " + " values ("
+                + " ?)", Statement.RETURN_GENERATED_KEYS);
+            for (String xpath : toAdd) {
+                insertStmt.setString(1, Utility.escape(xpath));
+                insertStmt.addBatch();
+                stat_dbAdd++;
+            }
+            insertStmt.executeBatch();
+
+            // MySQL returns one generated key per row of the batch, in order.
+            // Other drivers (Derby) may only return the last one; see below.
+            List<Integer> ids = new ArrayList<Integer>(toAdd.size());
+            rs = insertStmt.getGeneratedKeys();
+            if (rs != null) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+            if (ids.size() == toAdd.size()) {
+                for (int i = 0; i < toAdd.size(); i++) {
+                    setById(ids.get(i), toAdd.get(i));
+                }
+            } else {
+                missing = toAdd;
+            }
+            conn.commit();
+        } finally {
+            DBUtils.close(rs, insertStmt);
+        }
+        if (missing != null) {
+            fetchIds(missing, conn);
+        }
+    }
+
+    /**
+     * Maximum number of xpaths to ask for in a single SELECT
+     */
+    private static final int FETCH_CHUNK = 256;
+
+    /**
+     * Read back the ids of the given xpaths, for drivers which don't return
+     * all of the generated keys of a batch.
+     *
+     * @param xpaths
+     * @param conn
+     * @throws SQLException
+     */
+    private void fetchIds(List<String> xpaths, Connection conn) throws SQLException {
+        for (int start = 0; start < xpaths.size(); start += FETCH_CHUNK) {
+            List<String> chunk = xpaths.subList(start, Math.min(xpaths.size(), start + FETCH_CHUNK));
+            StringBuilder sql = new StringBuilder("SELECT id,xpath FROM " + CLDR_XPATHS + " WHERE xpath IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            sql.append(")");
+            PreparedStatement queryStmt = null;
+            ResultSet rs = null;
+            try {
+                queryStmt = conn.prepareStatement(sql.toString());
+                for (int i = 0; i < chunk.size(); i++) {
+                    queryStmt.setString(i + 1, Utility.escape(chunk.get(i)));
+                }
+                rs = queryStmt.executeQuery();
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    String xpath = Utility.unescape(rs.getString(2));
+                    setById(id, xpath);
+                }
+            } finally {
+                DBUtils.close(rs, queryStmt);
+            }
         }
-        queryStmt.close();
     }
 
     /**
-     * @return the xpath's id (as an Integer)
+     * @return the xpath's id (as an Integer), {@link #NO_XPATH} if not found and
+     *         addIfNotFound is false, or null on error
      */
-    private synchronized Integer addXpath(String xpath, boolean addIfNotFound, Connection inConn) {
-        Integer nid = (Integer) stringToId.get(xpath); // double check
+    private Integer addXpath(String xpath, boolean addIfNotFound, Connection inConn) {
+        Integer nid = stringToId.get(xpath); // double check
         if (nid != null) {
             return nid;
         }
+        if (!addIfNotFound) {
+            return NO_XPATH; // the whole table is in memory, see loadXPaths(Connection)
+        }
 
         Connection conn = null;
-        PreparedStatement queryStmt = null;
-        PreparedStatement insertStmt = null;
         try {
             if (inConn != null) {
                 conn = inConn;
             } else {
                 conn = DBUtils.getInstance().getDBConnection();
             }
-            queryStmt = conn.prepareStatement("SELECT id FROM " + CLDR_XPATHS + "   " + " where XPATH="
-                + " ? ");
-            queryStmt.setString(1, Utility.escape(xpath));
-            // First, try to query it back from the DB.
-            ResultSet rs = queryStmt.executeQuery();
-            if (!rs.next()) {
-                if (!addIfNotFound) {
-                    return -1;
-                } else {
-                    // add it
-                    insertStmt = conn.prepareStatement("INSERT INTO " + CLDR_XPATHS + " (xpath ) " + " values ("
-                        + " ?)", Statement.RETURN_GENERATED_KEYS);
-
-                    insertStmt.setString(1, Utility.escape(xpath));
-                    insertStmt.execute();
-                    conn.commit();
-                    rs = insertStmt.getGeneratedKeys();
-                    if (!rs.next()) {
-                        SurveyLog.errln("Couldn't retrieve newly added xpath " + xpath);
-                    } else {
-                        stat_dbAdd++;
-                    }
-                }
-            } else {
-                stat_dbFetch++;
+            addXpaths(Collections.singleton(xpath), conn);
+            nid = stringToId.get(xpath);
+            if (nid == null) {
+                SurveyLog.errln("Couldn't retrieve newly added xpath " + xpath);
             }
-
-            int id = rs.getInt(1);
-            nid = Integer.valueOf(id);
-            setById(id, xpath);
-            // logger.info("Mapped " + id + " back to " + xpath);
-            rs.close();
             return nid;
         } catch (SQLException sqe) {
             SurveyLog.logger.warning("xpath [" + xpath + "] len " + xpath.length());
@@ -316,7 +357,7 @@ public class XPathTable {
             if (inConn != null) {
                 conn = null; // don't close
             }
-            DBUtils.close(insertStmt, queryStmt, conn);
+            DBUtils.close(conn);
         }
         return null; // an exception occured.
     }
@@ -364,6 +405,7 @@ public class XPathTable {
      * @param xpath
      */
     public final void setById(int id, String xpath) {
+        // id to string first, so that any id found in stringToId can be looked up.
         stringToId.put(idToString_put(id, xpath), id);
         sidToString.put(getStringID(xpath), xpath);
     }
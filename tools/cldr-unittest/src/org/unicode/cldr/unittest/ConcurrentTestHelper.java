@@ -0,0 +1,58 @@
+package org.unicode.cldr.unittest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * Runs the same lookups from several threads at once, for testing objects that are meant to be shared between threads.
+ */
+public final class ConcurrentTestHelper {
+    private ConcurrentTestHelper() {
+    }
+
+    /**
+     * Get the value for each index from 0 to count - 1, in each of the given number of threads at once.
+     * Each thread starts at a different index and wraps around, so that at first the threads ask for
+     * different values (filling any caches concurrently), and then for values the others have already asked for.
+     *
+     * @param threads the number of threads
+     * @param count the number of indexes
+     * @param getter gets the value for an index; called from all the threads
+     * @return for each thread, the values it got, in index order
+     */
+    public static <T> List<List<T>> getInThreads(int threads, final int count, final IntFunction<T> getter)
+        throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<List<T>>> tasks = new ArrayList<Callable<List<T>>>();
+            for (int i = 0; i < threads; ++i) {
+                final int offset = (int) ((long) i * count / threads);
+                tasks.add(new Callable<List<T>>() {
+                    @Override
+                    public List<T> call() {
+                        List<T> result = new ArrayList<T>(Collections.<T> nCopies(count, null));
+                        for (int j = 0; j < count; ++j) {
+                            int index = (j + offset) % count;
+                            result.set(index, getter.apply(index));
+                        }
+                        return result;
+                    }
+                });
+            }
+            List<List<T>> results = new ArrayList<List<T>>();
+            for (Future<List<T>> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
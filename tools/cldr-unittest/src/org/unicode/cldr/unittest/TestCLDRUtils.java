@@ -177,6 +177,41 @@ public class TestCLDRUtils extends TestFmwk {
         assertEquals(test, test, CLDRLocale.getInstance(test).toLanguageTag());
     }
 
+    public void TestCLDRLocaleRegistry() throws InterruptedException {
+        final String[] ids = { "fr_CA", "fr", "sr_Latn_BA", "pt_PT", "en_001", "en_GB", "zh_Hant_HK", "es_419" };
+        final CLDRLocale[][] results = new CLDRLocale[8][];
+        Thread[] threads = new Thread[results.length];
+        for (int t = 0; t < threads.length; ++t) {
+            final int thread = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    CLDRLocale[] got = new CLDRLocale[ids.length];
+                    for (int i = 0; i < ids.length; ++i) {
+                        got[i] = CLDRLocale.getInstance(ids[(i + thread) % ids.length]);
+                    }
+                    results[thread] = got;
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int t = 0; t < results.length; ++t) {
+            for (int i = 0; i < ids.length; ++i) {
+                assertSame("singleton " + ids[(i + t) % ids.length], CLDRLocale.getInstance(ids[(i + t) % ids.length]),
+                    results[t][i]);
+            }
+        }
+        for (String id : ids) {
+            CLDRLocale locale = CLDRLocale.getInstance(id);
+            for (CLDRLocale child = locale; child.getParent() != null; child = child.getParent()) {
+                assertTrue(child + " is a child of " + child.getParent(), child.getParent().getChildren().contains(child));
+            }
+        }
+        assertTrue("root has children", CLDRLocale.ROOT.getChildren().contains(CLDRLocale.getInstance("fr")));
+    }
+
     private boolean checkChild(CLDRLocale parent, CLDRLocale child,
         boolean expected) {
         boolean got = child.childOf(parent);
@@ -165,6 +165,27 @@ public class TestCheckCLDR extends TestFmwk {
         }
     }
 
+    /**
+     * Test that a TestCache.DependentCache hears of a change for the locale and its sublocales
+     */
+    public void TestTestCacheDependentCache() {
+        TestCache testCache = new TestCache();
+        testCache.setFactory(testInfo.getCldrFactory(), ".*");
+        final String path = "//ldml/localeDisplayNames/languages/language[@type=\"pt\"]";
+        final Set<CLDRLocale> heard = new TreeSet<CLDRLocale>();
+        testCache.addDependentCache(new TestCache.DependentCache() {
+            @Override
+            public void valueChanged(String xpath, CLDRLocale locale) {
+                assertEquals("xpath", path, xpath);
+                heard.add(locale);
+            }
+        });
+        testCache.valueChanged(path, new SimpleXMLSource("pt"));
+        assertTrue("pt heard", heard.contains(CLDRLocale.getInstance("pt")));
+        assertTrue("pt_PT heard", heard.contains(CLDRLocale.getInstance("pt_PT")));
+        assertFalse("fr not heard", heard.contains(CLDRLocale.getInstance("fr")));
+    }
+
     /**
      * Test the "collisionless" error/warning messages.
      */
@@ -9,6 +9,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.IntFunction;
 
 import org.unicode.cldr.draft.FileUtilities;
 import org.unicode.cldr.test.ExampleGenerator;
@@ -1002,4 +1003,33 @@ public class TestExampleGenerator extends TestFmwk {
         writer.close();
         System.out.println("Wrote " + keysWritten + " keys to " + dir + name);
     }
+
+    public void TestPooledExampleGenerator() throws Exception {
+        final CLDRFile nativeCldrFile = info.getCLDRFile("de", true);
+        final List<String> paths = new ArrayList<String>();
+        List<String> expected = new ArrayList<String>();
+        ExampleGenerator serial = new ExampleGenerator(nativeCldrFile, info.getEnglish(),
+            CLDRPaths.DEFAULT_SUPPLEMENTAL_DIRECTORY);
+        for (String path : nativeCldrFile.fullIterable()) {
+            if (path.startsWith("//ldml/numbers") || path.startsWith("//ldml/units") || path.contains("gregorian")) {
+                paths.add(path);
+                expected.add(serial.getExampleHtml(path, nativeCldrFile.getStringValue(path), ExampleType.NATIVE));
+            }
+        }
+
+        final ExampleGenerator pooled = ExampleGenerator.getPooledInstance(nativeCldrFile, info.getEnglish(),
+            CLDRPaths.DEFAULT_SUPPLEMENTAL_DIRECTORY, 3);
+        List<List<String>> results = ConcurrentTestHelper.getInThreads(6, paths.size(), new IntFunction<String>() {
+            @Override
+            public String apply(int index) {
+                String path = paths.get(index);
+                return pooled.getExampleHtml(path, nativeCldrFile.getStringValue(path), ExampleType.NATIVE);
+            }
+        });
+        for (List<String> examples : results) {
+            for (int j = 0; j < paths.size(); ++j) {
+                assertEquals(paths.get(j), expected.get(j), examples.get(j));
+            }
+        }
+    }
 }
@@ -16,6 +16,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.IntFunction;
 import java.util.regex.Matcher;
 
 import org.unicode.cldr.test.CoverageLevel2;
@@ -47,6 +48,8 @@ import org.unicode.cldr.util.PatternPlaceholders;
 import org.unicode.cldr.util.PatternPlaceholders.PlaceholderInfo;
 import org.unicode.cldr.util.PatternPlaceholders.PlaceholderStatus;
 import org.unicode.cldr.util.PrettyPath;
+import org.unicode.cldr.util.RegexLookup;
+import org.unicode.cldr.util.RegexLookup.LookupType;
 import org.unicode.cldr.util.StandardCodes;
 import org.unicode.cldr.util.SupplementalDataInfo;
 import org.unicode.cldr.util.SupplementalDataInfo.PluralInfo;
@@ -64,6 +67,7 @@ import com.ibm.icu.dev.util.CollectionUtilities;
 import com.ibm.icu.impl.Relation;
 import com.ibm.icu.impl.Row;
 import com.ibm.icu.impl.Row.R2;
+import com.ibm.icu.util.Output;
 
 public class TestPathHeader extends TestFmwkPlus {
     private static final DtdType DEBUG_DTD_TYPE = null; // DtdType.supplementalData;
@@ -1330,4 +1334,61 @@ public class TestPathHeader extends TestFmwkPlus {
         }
     }
 
+
+    /**
+     * The PREFIX_TRIE_LOOKUP must give the same results, with the same arguments, as the STANDARD lookup.
+     */
+    public void TestPrefixTrieLookup() {
+        RegexLookup<String> standard = RegexLookup.<String> of(LookupType.STANDARD, RegexLookup.RegexFinderTransformPath)
+            .loadFromFile(PathHeader.class, "data/PathHeader.txt");
+        RegexLookup<String> prefixTrie = RegexLookup.<String> of(LookupType.PREFIX_TRIE_LOOKUP, RegexLookup.RegexFinderTransformPath)
+            .loadFromFile(PathHeader.class, "data/PathHeader.txt");
+        assertEquals("size", standard.size(), prefixTrie.size());
+        Output<String[]> standardArgs = new Output<>();
+        Output<String[]> prefixTrieArgs = new Output<>();
+        for (String path : english.fullIterable()) {
+            String expected = standard.get(path, null, standardArgs);
+            String actual = prefixTrie.get(path, null, prefixTrieArgs);
+            if (!assertEquals(path, expected, actual)) {
+                continue;
+            }
+            assertEquals(path + " arguments", Arrays.asList(standardArgs.value == null ? new String[0] : standardArgs.value),
+                Arrays.asList(prefixTrieArgs.value == null ? new String[0] : prefixTrieArgs.value));
+        }
+    }
+
+    public void TestConcurrentFromPath() throws Exception {
+        final List<String> paths = new ArrayList<String>();
+        Map<String, String> expected = new HashMap<String, String>();
+        for (String path : english.fullIterable()) {
+            PathHeader pathHeader = pathHeaderFactory.fromPath(path);
+            if (pathHeader != null) {
+                paths.add(path);
+                expected.put(path, pathHeader.toString());
+            }
+        }
+        pathHeaderFactory.clearCache();
+
+        // several threads asking for the same (uncached) paths must all get the same headers
+        List<List<PathHeader>> results = ConcurrentTestHelper.getInThreads(4, paths.size(), new IntFunction<PathHeader>() {
+            @Override
+            public PathHeader apply(int index) {
+                return pathHeaderFactory.fromPath(paths.get(index));
+            }
+        });
+        List<PathHeader> first = results.get(0);
+        for (List<PathHeader> headers : results) {
+            for (int j = 0; j < paths.size(); ++j) {
+                String path = paths.get(j);
+                PathHeader pathHeader = headers.get(j);
+                assertEquals(path, expected.get(path), pathHeader.toString());
+                assertTrue(path + " same instance", first.get(j) == pathHeader);
+            }
+        }
+        for (String path : paths) {
+            PathHeader pathHeader = pathHeaderFactory.fromPath(path);
+            assertTrue(path + " cached", PathHeader.Factory.getCachedPaths(pathHeader.getSectionId(), pathHeader.getPageId())
+                .contains(path));
+        }
+    }
 }
@@ -4,6 +4,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -349,6 +350,126 @@ public class TestPaths extends TestFmwkPlus {
         }
     }
 
+    public void TestDistinguishingXPath() {
+        String[][] tests = {
+            { "//ldml/localeDisplayNames/languages/language[@type=\"en\"][@draft=\"contributed\"]",
+                "//ldml/localeDisplayNames/languages/language[@type=\"en\"]",
+                "//ldml/localeDisplayNames/languages/language[@type=\"en\"][@draft=\"contributed\"]" },
+            { "//ldml/localeDisplayNames/languages/language[@draft=\"contributed\"][@type=\"en\"]",
+                "//ldml/localeDisplayNames/languages/language[@type=\"en\"]",
+                "//ldml/localeDisplayNames/languages/language[@draft=\"contributed\"][@type=\"en\"]" },
+            { "//ldml/localeDisplayNames/languages[@draft=\"provisional\"]/language[@type='en'][@alt=\"short\"]",
+                "//ldml/localeDisplayNames/languages/language[@type=\"en\"][@alt=\"short\"]",
+                "//ldml/localeDisplayNames/languages/language[@type=\"en\"][@alt=\"short\"][@draft=\"provisional\"]" },
+            { "//ldml/characters/exemplarCharacters", "//ldml/characters/exemplarCharacters", "//ldml/characters/exemplarCharacters" },
+        };
+        String[] normalizedPath = { "" };
+        for (String[] test : tests) {
+            assertEquals(test[0], test[1], CLDRFile.getDistinguishingXPath(test[0], normalizedPath));
+            assertEquals(test[0], test[2], normalizedPath[0]);
+        }
+        String path = tests[3][0];
+        assertSame("unchanged path is not copied", path, CLDRFile.getDistinguishingXPath(path, null));
+
+        // same results as rewriting an XPathParts, for ldml
+        CLDRFile english = testInfo.getEnglish().getUnresolved();
+        for (String dpath : english) {
+            checkDistinguishingXPath(english.getFullXPath(dpath));
+        }
+
+        // and for the other DTDs, whose attributes are ordered differently
+        int maxPerDirectory = getInclusion() <= 5 ? 20 : Integer.MAX_VALUE;
+        Set<DtdType> seenTypes = EnumSet.noneOf(DtdType.class);
+        for (String directory : Arrays.asList("keyboards/", "common/")) {
+            String dirPath = CLDRPaths.BASE_DIRECTORY + directory;
+            for (String fileName : new File(dirPath).list()) {
+                File dir2 = new File(dirPath + fileName);
+                if (!dir2.isDirectory() || fileName.equals("main") || fileName.equals("properties")) {
+                    continue;
+                }
+                int count = 0;
+                for (String file : dir2.list()) {
+                    if (!file.endsWith(".xml")) {
+                        continue;
+                    }
+                    if (++count > maxPerDirectory) {
+                        break;
+                    }
+                    for (Pair<String, String> pathValue : XMLFileReader.loadPathValues(dir2 + "/" + file,
+                        new ArrayList<Pair<String, String>>(), true)) {
+                        String fullPath = pathValue.getFirst();
+                        seenTypes.add(XPathParts.getFrozenInstance(fullPath).getDtdData().dtdType);
+                        checkDistinguishingXPath(fullPath);
+                    }
+                }
+            }
+        }
+        assertTrue("supplemental paths checked", seenTypes.contains(DtdType.supplementalData));
+    }
+
+    private void checkDistinguishingXPath(String fullPath) {
+        String[] normalizedPath = { "" };
+        String[] expectedNormalized = { "" };
+        String expected = getDistinguishingXPathFromParts(fullPath, expectedNormalized);
+        assertEquals(fullPath, expected, CLDRFile.getDistinguishingXPath(fullPath, normalizedPath));
+        assertEquals(fullPath, expectedNormalized[0], normalizedPath[0]);
+    }
+
+    /**
+     * The XPathParts-based rewrite that CLDRFile.getDistinguishingXPath must match.
+     */
+    private static String getDistinguishingXPathFromParts(String xpath, String[] normalizedPath) {
+        XPathParts parts = XPathParts.getInstance(xpath);
+        DtdData dtdData = parts.getDtdData();
+        String draft = null;
+        String alt = null;
+        String references = "";
+        for (int i = 0; i < parts.size() - 1; ++i) {
+            Set<String> toRemove = new HashSet<String>();
+            for (Entry<String, String> entry : parts.getAttributes(i).entrySet()) {
+                String attribute = entry.getKey();
+                if (attribute.equals("draft")) {
+                    draft = entry.getValue();
+                } else if (attribute.equals("alt")) {
+                    alt = entry.getValue();
+                } else if (attribute.equals("references")) {
+                    references += (references.isEmpty() ? "" : " ") + entry.getValue();
+                } else {
+                    continue;
+                }
+                toRemove.add(attribute);
+            }
+            parts.removeAttributes(i, toRemove);
+        }
+        normalizedPath[0] = xpath;
+        if (draft != null || alt != null || !references.isEmpty()) {
+            int placementIndex = parts.size() - 1;
+            while (dtdData.isOrdered(parts.getElement(placementIndex))) {
+                --placementIndex;
+            }
+            if (draft != null) {
+                parts.putAttributeValue(placementIndex, "draft", draft);
+            }
+            if (alt != null) {
+                parts.putAttributeValue(placementIndex, "alt", alt);
+            }
+            if (!references.isEmpty()) {
+                parts.putAttributeValue(placementIndex, "references", references);
+            }
+            normalizedPath[0] = parts.toString();
+        }
+        for (int i = 0; i < parts.size(); ++i) {
+            Set<String> toRemove = new HashSet<String>();
+            for (String attribute : parts.getAttributeKeys(i)) {
+                if (!dtdData.isDistinguishing(parts.getElement(i), attribute)) {
+                    toRemove.add(attribute);
+                }
+            }
+            parts.removeAttributes(i, toRemove);
+        }
+        return parts.toString();
+    }
+
     public void TestNonLdml() {
         int maxPerDirectory = getInclusion() <= 5 ? 20 : Integer.MAX_VALUE;
         CheckDeprecated checkDeprecated = new CheckDeprecated(this);
@@ -1,21 +1,29 @@
 package org.unicode.cldr.unittest;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.IntFunction;
 
 import org.unicode.cldr.util.CLDRConfig;
 import org.unicode.cldr.util.CLDRFile;
 import org.unicode.cldr.util.DtdData;
 import org.unicode.cldr.util.DtdData.AttributeValueComparator;
 import org.unicode.cldr.util.DtdType;
+import org.unicode.cldr.util.PathHeader;
+import org.unicode.cldr.util.RegexLookup;
+import org.unicode.cldr.util.RegexLookup.RegexFinder;
 import org.unicode.cldr.util.Timer;
 import org.unicode.cldr.util.XPathParts;
 
 import com.ibm.icu.dev.util.CollectionUtilities;
+import com.ibm.icu.text.Transform;
 import com.ibm.icu.util.Output;
 
 public class TestPerf extends TestFmwkPlus {
@@ -196,6 +204,69 @@ public class TestPerf extends TestFmwkPlus {
         return timer.getSeconds() / iterations;
     }
 
+    /**
+     * Compare RegexFinders sharing a synchronized Matcher with thread-confined ones,
+     * looking up all the English paths in the PathHeader rules from 8 to 64 threads.
+     */
+    public void TestRegexFinderThreads() throws Exception {
+        RegexLookup<String> shared = getPathHeaderLookup(true);
+        RegexLookup<String> confined = getPathHeaderLookup(false);
+        String[] expected = new String[sortedArray.length];
+        for (int i = 0; i < sortedArray.length; ++i) {
+            expected[i] = shared.get(sortedArray[i]);
+            assertEquals(sortedArray[i], expected[i], confined.get(sortedArray[i]));
+        }
+        // warmup
+        lookupInThreads(shared, 8, expected);
+        lookupInThreads(confined, 8, expected);
+
+        for (int threads : Arrays.asList(8, 16, 32, 64)) {
+            double sharedSeconds = lookupInThreads(shared, threads, expected);
+            double confinedSeconds = lookupInThreads(confined, threads, expected);
+            logln("threads: " + threads
+                + "\tshared: " + sharedSeconds
+                + "\tthread-confined: " + confinedSeconds);
+        }
+    }
+
+    private RegexLookup<String> getPathHeaderLookup(final boolean shareMatcher) {
+        return RegexLookup.<String> of()
+            .setPatternTransform(new Transform<String, RegexFinder>() {
+                @Override
+                public RegexFinder transform(String source) {
+                    final String newSource = source.replace("[@", "\\[@");
+                    return new RegexFinder(newSource.startsWith("//") ? "^" + newSource : newSource, shareMatcher);
+                }
+            })
+            .loadFromFile(PathHeader.class, "data/PathHeader.txt");
+    }
+
+    /**
+     * Look up all the sortedArray paths in each of the given number of threads at once, checking the results.
+     * @return the elapsed time in seconds
+     */
+    private double lookupInThreads(final RegexLookup<String> lookup, final int threads, final String[] expected)
+        throws Exception {
+        Timer timer = new Timer();
+        List<List<String>> results = ConcurrentTestHelper.getInThreads(threads, sortedArray.length, new IntFunction<String>() {
+            @Override
+            public String apply(int i) {
+                return lookup.get(sortedArray[i]);
+            }
+        });
+        timer.stop();
+        int failures = 0;
+        for (List<String> result : results) {
+            for (int i = 0; i < sortedArray.length; ++i) {
+                if (!Objects.equals(expected[i], result.get(i))) {
+                    ++failures;
+                }
+            }
+        }
+        assertEquals("lookup failures with " + threads + " threads", 0, failures);
+        return timer.getSeconds();
+    }
+
     public void TestUnused() {
 
     }
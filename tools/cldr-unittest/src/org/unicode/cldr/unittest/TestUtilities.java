@@ -12,6 +12,7 @@ import java.io.StringWriter;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -50,8 +51,10 @@ import org.unicode.cldr.util.VoteResolver.Level;
 import org.unicode.cldr.util.VoteResolver.Status;
 import org.unicode.cldr.util.VoteResolver.VoterInfo;
 import org.unicode.cldr.util.XMLUploader;
+import org.unicode.cldr.util.XPathParts;
 import org.unicode.cldr.util.props.ICUPropertyFactory;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
 import com.ibm.icu.dev.util.UnicodeMap;
 import com.ibm.icu.impl.Utility;
@@ -143,6 +146,78 @@ public class TestUtilities extends TestFmwkPlus {
         }
     }
 
+    public void TestStringIdValues() throws Exception {
+        // ids are persisted (e.g. in hex in the Survey Tool), so they must not change
+        String[] tests = { "", "a", "//ldml/localeDisplayNames/languages/language[@type=\"de\"]",
+            "\u00E9t\u00E9", "\u4E2D\u6587", "\uD83D\uDE00 emoji", "lone \uD800 surrogate", "\uDC00" };
+        java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-1");
+        for (String test : tests) {
+            byte[] hash = digest.digest(test.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            long expected = 0;
+            for (int i = 0; i < 8; ++i) {
+                expected <<= 8;
+                expected ^= hash[i];
+            }
+            expected &= 0x7FFFFFFFFFFFFFFFL;
+            assertEquals(test, expected, StringId.getId(test));
+            assertEquals(test, expected, StringId.getId(new StringBuilder(test)));
+            assertEquals(test, test, StringId.getStringFromHexId(StringId.getHexId(test)));
+        }
+    }
+
+    public void TestStringIdRetained() {
+        // ids handed out earlier must still map back, however many strings were hashed since
+        long[] ids = new long[100000];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = StringId.getId("retained " + i);
+        }
+        for (int i = 0; i < ids.length; ++i) {
+            if (!assertEquals("string for id " + i, "retained " + i, StringId.getStringFromId(ids[i]))) {
+                break;
+            }
+        }
+    }
+
+    public void TestXPathPartsFrozenInstance() {
+        final String[] paths = new String[200];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = "//ldml/localeDisplayNames/territories/territory[@type=\"T" + i + "\"][@alt=\"variant\"]";
+        }
+        final CacheStats before = XPathParts.getCacheStatistics();
+        ArrayList<Thread> threads = new ArrayList<Thread>();
+        final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread("XPathParts Thread " + t) {
+                public void run() {
+                    for (int pass = 0; pass < 3; pass++) {
+                        for (String path : paths) {
+                            XPathParts xpp = XPathParts.getFrozenInstance(path);
+                            if (!xpp.isFrozen() || !path.equals(xpp.toString()) || !"variant".equals(xpp.getAttributeValue(-1, "alt"))) {
+                                failures.add(path + " -> " + xpp);
+                            }
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                errln(e.toString());
+            }
+        }
+        if (!failures.isEmpty()) {
+            errln("Bad frozen instances: " + failures.subList(0, Math.min(5, failures.size())));
+        }
+        CacheStats delta = XPathParts.getCacheStatistics().minus(before);
+        logln("XPathParts cache: " + delta + ", size " + XPathParts.getCacheSize());
+        assertTrue("cache hits recorded", delta.hitCount() > 0);
+        assertEquals("lookups recorded", 8L * 3 * paths.length, delta.requestCount());
+    }
+
     public void TestUrlEscape() {
         Matcher byte1 = PatternCache.get("%[A-Za-z0-9]{2}").matcher("");
         Matcher byte2 = PatternCache.get("%[A-Za-z0-9]{2}%[A-Za-z0-9]{2}")
@@ -1,18 +1,41 @@
 package org.unicode.cldr.unittest;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.unicode.cldr.util.CLDRConfig;
 import org.unicode.cldr.util.CLDRFile;
+import org.unicode.cldr.util.CLDRFile.DraftStatus;
+import org.unicode.cldr.util.CLDRPaths;
 import org.unicode.cldr.util.CldrUtility;
+import org.unicode.cldr.util.CompactXMLSource;
+import org.unicode.cldr.util.Factory;
+import org.unicode.cldr.util.LocaleIDParser;
+import org.unicode.cldr.util.MappedFactory;
+import org.unicode.cldr.util.PathTextIndex;
+import org.unicode.cldr.util.ResolutionIndex;
+import org.unicode.cldr.util.SimpleFactory;
+import org.unicode.cldr.util.SimpleXMLSource;
 import org.unicode.cldr.util.XMLSource;
+import org.unicode.cldr.util.XMLSource.ResolvingSource;
+import org.unicode.cldr.util.XMLSourceSnapshot;
 import org.unicode.cldr.util.XPathParts.Comments;
+import org.unicode.cldr.util.XPathParts.Comments.CommentType;
 
+import com.google.common.cache.CacheStats;
 import com.ibm.icu.dev.test.TestFmwk;
+import com.ibm.icu.util.Output;
 
 public class TestXMLSource extends TestFmwk {
     public static class DummyXMLSource extends XMLSource {
@@ -134,4 +157,301 @@ public class TestXMLSource extends TestFmwk {
         }
 
     }
+
+    public void TestCompactXMLSource() {
+        XMLSource source = new CompactXMLSource("und");
+        for (int i = 0; i < 1000; ++i) {
+            source.putValueAtDPath("//ldml/foo[@type=\"" + i + "\"]", String.valueOf(i));
+        }
+        source.putFullPathAtDPath("//ldml/foo[@type=\"7\"]", "//ldml/foo[@type=\"7\"][@draft=\"contributed\"]");
+        for (int i = 0; i < 1000; i += 3) {
+            source.removeValueAtDPath("//ldml/foo[@type=\"" + i + "\"]");
+        }
+        int count = 0;
+        for (Iterator<String> it = source.iterator(); it.hasNext(); it.next()) {
+            ++count;
+        }
+        assertEquals("path count", 666, count);
+        for (int i = 0; i < 1000; ++i) {
+            String path = "//ldml/foo[@type=\"" + i + "\"]";
+            assertEquals(path, i % 3 == 0 ? null : String.valueOf(i), source.getValueAtDPath(path));
+        }
+        assertEquals("full path", "//ldml/foo[@type=\"7\"][@draft=\"contributed\"]",
+            source.getFullPathAtDPath("//ldml/foo[@type=\"7\"]"));
+        assertEquals("full path", "//ldml/foo[@type=\"8\"]", source.getFullPathAtDPath("//ldml/foo[@type=\"8\"]"));
+    }
+
+    public void TestCompactMatchesSimple() {
+        Factory simpleFactory = SimpleFactory.make(new File[] { new File(CLDRPaths.MAIN_DIRECTORY) }, "fr", DraftStatus.unconfirmed, false);
+        Factory compactFactory = SimpleFactory.make(new File[] { new File(CLDRPaths.MAIN_DIRECTORY) }, "fr", DraftStatus.unconfirmed, true);
+        CLDRFile simple = simpleFactory.make("fr", false);
+        CLDRFile compact = compactFactory.make("fr", false);
+        Set<String> simplePaths = new HashSet<String>();
+        for (String path : simple) {
+            simplePaths.add(path);
+        }
+        Set<String> compactPaths = new HashSet<String>();
+        for (String path : compact) {
+            compactPaths.add(path);
+            assertEquals("value of " + path, simple.getStringValue(path), compact.getStringValue(path));
+            assertEquals("full path of " + path, simple.getFullXPath(path), compact.getFullXPath(path));
+        }
+        assertEquals("paths", simplePaths, compactPaths);
+        assertEquals("dtd version", simple.getDtdVersion(), compact.getDtdVersion());
+    }
+
+    public void TestResolutionIndex() throws IOException {
+        Factory factory = CLDRConfig.getInstance().getCldrFactory();
+        List<XMLSource> chain = new ArrayList<XMLSource>();
+        for (String locale = "fr_CA"; locale != null; locale = LocaleIDParser.getParent(locale)) {
+            chain.add(factory.makeSource(locale));
+        }
+        ResolvingSource source = (ResolvingSource) Factory.makeResolvingSource(new ArrayList<XMLSource>(chain));
+        File file = File.createTempFile("fr_CA", ".idx");
+        try {
+            ResolutionIndex.build(source, 1234).write(file);
+            assertNull("stale index", ResolutionIndex.read(file, 5678));
+            ResolutionIndex index = ResolutionIndex.read(file, 1234);
+            ResolvingSource indexed = (ResolvingSource) Factory.makeResolvingSource(new ArrayList<XMLSource>(chain));
+            indexed.setResolutionIndex(index);
+
+            Set<String> paths = new HashSet<String>();
+            CLDRFile.Status status = new CLDRFile.Status();
+            CLDRFile.Status indexedStatus = new CLDRFile.Status();
+            for (String path : source) {
+                paths.add(path);
+                assertEquals("value of " + path, source.getValueAtDPath(path), indexed.getValueAtDPath(path));
+                assertEquals("locale of " + path, source.getSourceLocaleID(path, status),
+                    indexed.getSourceLocaleID(path, indexedStatus));
+                assertEquals("path where found for " + path, status.pathWhereFound, indexedStatus.pathWhereFound);
+            }
+            Set<String> indexedPaths = new HashSet<String>();
+            for (String path : indexed) {
+                indexedPaths.add(path);
+            }
+            assertEquals("paths", paths, indexedPaths);
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void TestLocationCache() {
+        Factory factory = CLDRConfig.getInstance().getCldrFactory();
+        List<XMLSource> chain = new ArrayList<XMLSource>();
+        for (String locale = "de_AT"; locale != null; locale = LocaleIDParser.getParent(locale)) {
+            chain.add(factory.makeSource(locale));
+        }
+        ResolvingSource source = (ResolvingSource) Factory.makeResolvingSource(chain);
+        String path = "//ldml/localeDisplayNames/languages/language[@type=\"fr\"]";
+        Output<String> pathWhereFound = new Output<String>();
+        Output<String> localeWhereFound = new Output<String>();
+        String first = source.getValueAtDPath(path);
+        String bailey = source.getBaileyValue(path, pathWhereFound, localeWhereFound);
+        CacheStats before = source.getLocationCacheStats();
+        assertEquals("value", first, source.getValueAtDPath(path));
+        assertEquals("bailey", bailey, source.getBaileyValue(path, pathWhereFound, localeWhereFound));
+        source.getSourceLocaleIdExtended(path, null, false);
+        source.getSourceLocaleIdExtended(path, null, false);
+        CacheStats after = source.getLocationCacheStats();
+        assertTrue("cache hits " + before + " => " + after, after.hitCount() - before.hitCount() >= 3);
+    }
+
+    public void TestLocationCacheEviction() {
+        XMLSource xx = new SimpleXMLSource("xx");
+        List<XMLSource> chain = new ArrayList<XMLSource>();
+        chain.add(xx);
+        chain.add(CLDRConfig.getInstance().getCldrFactory().makeSource("root"));
+        ResolvingSource source;
+        String oldSize = System.getProperty("CLDR_LOCATION_CACHE_SIZE");
+        System.setProperty("CLDR_LOCATION_CACHE_SIZE", "1");
+        try {
+            source = (ResolvingSource) Factory.makeResolvingSource(chain);
+        } finally {
+            if (oldSize == null) {
+                System.clearProperty("CLDR_LOCATION_CACHE_SIZE");
+            } else {
+                System.setProperty("CLDR_LOCATION_CACHE_SIZE", oldSize);
+            }
+        }
+        String months = "//ldml/dates/calendars/calendar[@type=\"gregorian\"]/months/";
+        String target = months + "monthContext[@type=\"format\"]/monthWidth[@type=\"abbreviated\"]/month[@type=\"1\"]";
+        String alias = months + "monthContext[@type=\"stand-alone\"]/monthWidth[@type=\"abbreviated\"]/month[@type=\"1\"]";
+        assertEquals("target", "M01", source.getValueAtDPath(target));
+        assertEquals("alias", "M01", source.getValueAtDPath(alias)); // evicts the target
+        xx.putValueAtDPath(target, "Xab");
+        source.valueChanged(target, xx);
+        assertEquals("target changed", "Xab", source.getValueAtDPath(target));
+        assertEquals("alias after target changed", "Xab", source.getValueAtDPath(alias));
+    }
+
+    public void TestValuePathIndex() {
+        XMLSource simple = new SimpleXMLSource("xx");
+        simple.putValueAtDPath("//ldml/foo", "x");
+        simple.putValueAtDPath("//ldml/bar", "X");
+        simple.putValueAtDPath("//ldml/baz", CldrUtility.INHERITANCE_MARKER);
+        Set<String> result = new TreeSet<String>();
+        simple.getPathsWithValue("x", "", result);
+        assertEquals("built", "[//ldml/bar, //ldml/foo]", result.toString());
+        simple.putValueAtDPath("//ldml/foo", "y");
+        simple.removeValueAtDPath("//ldml/bar");
+        simple.putValueAtDPath("//ldml/baz", "x");
+        result.clear();
+        simple.getPathsWithValue("x", "", result);
+        assertEquals("updated", "[//ldml/baz]", result.toString());
+        result.clear();
+        simple.getPathsWithValue("y", "//ldml/f", result);
+        assertEquals("prefix", "[//ldml/foo]", result.toString());
+
+        Factory factory = CLDRConfig.getInstance().getCldrFactory();
+        List<XMLSource> chain = new ArrayList<XMLSource>();
+        for (String locale = "de_AT"; locale != null; locale = LocaleIDParser.getParent(locale)) {
+            chain.add(factory.makeSource(locale).cloneAsThawed());
+        }
+        ResolvingSource source = (ResolvingSource) Factory.makeResolvingSource(chain);
+        String path = "//ldml/localeDisplayNames/languages/language[@type=\"fr\"]";
+        String value = source.getValueAtDPath(path);
+        result.clear();
+        source.getPathsWithValue(value, "//ldml/localeDisplayNames/languages", result);
+        assertTrue(value + " found at " + path, result.contains(path));
+        chain.get(0).putValueAtDPath(path, "Franzoesisch-Test");
+        source.valueChanged(path, chain.get(0));
+        result.clear();
+        source.getPathsWithValue(value, "//ldml/localeDisplayNames/languages", result);
+        assertFalse("old value no longer at " + path, result.contains(path));
+        result.clear();
+        source.getPathsWithValue("franzoesisch-test", "", result);
+        assertTrue("new value at " + path, result.contains(path));
+    }
+
+    public void TestPathTextIndex() {
+        PathTextIndex index = new PathTextIndex();
+        index.put("//ldml/a", "New York");
+        index.put("//ldml/b", "York");
+        index.put("//ldml/c", "Yorkshire pudding");
+        index.put("//ldml/d", CldrUtility.INHERITANCE_MARKER);
+        Set<String> result = new TreeSet<String>();
+        index.search("york", false, 10, result);
+        assertEquals("substring", "[//ldml/a, //ldml/b, //ldml/c]", result.toString());
+        result.clear();
+        index.search("YORK", true, 10, result);
+        assertEquals("prefix", "[//ldml/b, //ldml/c]", result.toString());
+        result.clear();
+        index.search("w y", false, 10, result);
+        assertEquals("spaces ignored", "[//ldml/a]", result.toString());
+        result.clear();
+        index.search("ne", false, 10, result);
+        assertEquals("short query", "[//ldml/a]", result.toString());
+        result.clear();
+        assertEquals("limit", 2, index.search("york", false, 2, result));
+        result.clear();
+        Set<String> within = new HashSet<String>(Arrays.asList("//ldml/c"));
+        assertEquals("limit within", 1, index.search("york", false, within, 1, result));
+        assertEquals("within", "[//ldml/c]", result.toString());
+        index.put("//ldml/a", "Boston");
+        index.put("//ldml/c", null);
+        result.clear();
+        index.search("york", false, 10, result);
+        assertEquals("updated", "[//ldml/b]", result.toString());
+        result.clear();
+        index.search("osto", false, 10, result);
+        assertEquals("new value", "[//ldml/a]", result.toString());
+        assertEquals("size", 2, index.size());
+    }
+
+    public void TestSnapshot() throws IOException {
+        XMLSource source = CLDRConfig.getInstance().getCldrFactory().makeSource("de");
+        File file = File.createTempFile("de", ".bin");
+        try {
+            XMLSourceSnapshot.write(source, 42, file);
+            assertFalse("stale snapshot", XMLSourceSnapshot.read(file, 43, new SimpleXMLSource("de")));
+            XMLSource copy = new SimpleXMLSource("de");
+            assertTrue("read", XMLSourceSnapshot.read(file, 42, copy));
+            Set<String> paths = new HashSet<String>();
+            for (String path : source) {
+                paths.add(path);
+                assertEquals("value of " + path, source.getValueAtDPath(path), copy.getValueAtDPath(path));
+                assertEquals("full path of " + path, source.getFullPathAtDPath(path), copy.getFullPathAtDPath(path));
+            }
+            Set<String> copyPaths = new HashSet<String>();
+            for (String path : copy) {
+                copyPaths.add(path);
+            }
+            assertEquals("paths", paths, copyPaths);
+            assertEquals("locale", source.getLocaleID(), copy.getLocaleID());
+            assertEquals("dtd version", source.getDtdVersionInfo(), copy.getDtdVersionInfo());
+            assertEquals("initial comment", source.getXpathComments().getInitialComment(),
+                copy.getXpathComments().getInitialComment());
+            for (CommentType style : CommentType.values()) {
+                assertEquals(style + " comments", source.getXpathComments().getComments(style),
+                    copy.getXpathComments().getComments(style));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void TestCorruptSnapshot() throws IOException {
+        File file = File.createTempFile("de", ".bin");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write("not a snapshot".getBytes(StandardCharsets.UTF_8));
+            } finally {
+                out.close();
+            }
+            XMLSource target = new SimpleXMLSource("de");
+            assertFalse("corrupt snapshot", XMLSourceSnapshot.read(file, 42, target));
+            assertFalse("target unchanged", target.iterator().hasNext());
+            assertFalse("missing snapshot", XMLSourceSnapshot.read(new File(file.getPath() + ".missing"), 42,
+                new SimpleXMLSource("de")));
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void TestMappedFactory() throws IOException {
+        File[] dirs = { new File(CLDRPaths.MAIN_DIRECTORY) };
+        Factory simpleFactory = SimpleFactory.make(dirs, "(root|de|de_.*)", DraftStatus.unconfirmed);
+        File file = File.createTempFile("main", ".data");
+        file.delete();
+        try {
+            Factory mappedFactory = MappedFactory.make(file, dirs, "(root|de|de_.*)", DraftStatus.unconfirmed);
+            assertTrue("data file written", file.exists());
+            assertEquals("available", simpleFactory.getAvailable(), mappedFactory.getAvailable());
+            for (String locale : new String[] { "root", "de", "de_CH" }) {
+                for (boolean resolved : new boolean[] { false, true }) {
+                    CLDRFile expected = simpleFactory.make(locale, resolved);
+                    CLDRFile actual = mappedFactory.make(locale, resolved);
+                    Set<String> expectedPaths = new HashSet<String>();
+                    for (String path : expected) {
+                        expectedPaths.add(path);
+                        assertEquals(locale + " value of " + path, expected.getStringValue(path), actual.getStringValue(path));
+                        assertEquals(locale + " full path of " + path, expected.getFullXPath(path), actual.getFullXPath(path));
+                    }
+                    Set<String> actualPaths = new HashSet<String>();
+                    for (String path : actual) {
+                        actualPaths.add(path);
+                    }
+                    assertEquals(locale + " paths", expectedPaths, actualPaths);
+                }
+            }
+            assertNull("missing path", mappedFactory.make("de", false).getStringValue("//ldml/no/such/path"));
+            XMLSource expectedSource = simpleFactory.makeSource("de");
+            XMLSource actualSource = mappedFactory.makeSource("de");
+            for (String value : new String[] { "Deutsch", "deutsch", "Französisch" }) {
+                for (String prefix : new String[] { "", "//ldml/localeDisplayNames/languages" }) {
+                    Set<String> expectedPaths = new TreeSet<String>();
+                    expectedSource.getPathsWithValue(value, prefix, expectedPaths);
+                    Set<String> actualPaths = new TreeSet<String>();
+                    actualSource.getPathsWithValue(value, prefix, actualPaths);
+                    assertEquals("paths with " + value + " under " + prefix, expectedPaths, actualPaths);
+                }
+            }
+            long modified = file.lastModified();
+            MappedFactory.make(file, dirs, "(root|de|de_.*)", DraftStatus.unconfirmed);
+            assertEquals("data file reused", modified, file.lastModified());
+        } finally {
+            file.delete();
+        }
+    }
 }
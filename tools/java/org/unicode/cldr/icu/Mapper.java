@@ -1,9 +1,21 @@
 package org.unicode.cldr.icu;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
 
 /**
  * Superclass for mappers that convert CLDR data to ICU text files.
@@ -87,6 +99,129 @@ public abstract class Mapper {
         }
     }
 
+    /**
+     * Returns an iterator like {@link #iterator(Filter)}, except that the locales are converted ahead of time
+     * on numThreads worker threads. Mappers aren't thread-safe, so each worker thread converts with its own
+     * mapper from workerMappers. At most 2 * numThreads locales are being converted or waiting to be
+     * consumed at any time, and the IcuData objects are returned in the same order as by iterator(filter).
+     */
+    public Iterator<IcuData> iterator(final Filter filter, int numThreads, Supplier<? extends Mapper> workerMappers) {
+        if (numThreads <= 1) {
+            return iterator(filter);
+        }
+        return new ConcurrentIcuDataIterator(filter, numThreads, workerMappers);
+    }
+
+    private class ConcurrentIcuDataIterator implements Iterator<IcuData> {
+        private final Filter filter;
+        private final Iterator<String> localeIterator;
+        private final ExecutorService executor;
+        private final ThreadLocal<Mapper> workerMapper;
+        private final int maxPending;
+        private final Deque<Future<IcuData[]>> pending = new ArrayDeque<Future<IcuData[]>>();
+        private IcuData[] curArray = new IcuData[0];
+        private int curIndex = 0;
+        private IcuData nextData;
+
+        private ConcurrentIcuDataIterator(Filter filter, int numThreads, final Supplier<? extends Mapper> workerMappers) {
+            this.filter = filter;
+            List<String> locales = new ArrayList<String>();
+            for (String locale : getAvailable()) {
+                if (filter.includes(locale)) {
+                    locales.add(locale);
+                }
+            }
+            localeIterator = locales.iterator();
+            maxPending = 2 * numThreads;
+            workerMapper = new ThreadLocal<Mapper>() {
+                @Override
+                protected Mapper initialValue() {
+                    return workerMappers.get();
+                }
+            };
+            executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Mapper worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            loadNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextData != null;
+        }
+
+        @Override
+        public IcuData next() {
+            if (nextData == null) {
+                throw new NoSuchElementException();
+            }
+            IcuData icuData = nextData;
+            sources.add(icuData.getName());
+            loadNext();
+            return icuData;
+        }
+
+        /**
+         * Keeps the workers busy, and waits for the next IcuData in order.
+         */
+        private void loadNext() {
+            nextData = null;
+            while (true) {
+                while (pending.size() < maxPending && localeIterator.hasNext()) {
+                    final String locale = localeIterator.next();
+                    pending.add(executor.submit(new Callable<IcuData[]>() {
+                        @Override
+                        public IcuData[] call() {
+                            return workerMapper.get().fillFromCldr(locale);
+                        }
+                    }));
+                }
+                while (curIndex < curArray.length) {
+                    IcuData icuData = curArray[curIndex++];
+                    if (filter.includes(icuData.getName())) {
+                        nextData = icuData;
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    executor.shutdown();
+                    return;
+                }
+                curArray = waitFor(pending.removeFirst());
+                curIndex = 0;
+            }
+        }
+
+        private IcuData[] waitFor(Future<IcuData[]> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while converting", e);
+            } catch (ExecutionException e) {
+                executor.shutdownNow();
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     /**
      * @return the set of IcuData objects that were generated by the mapper.
      */
@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import org.unicode.cldr.ant.CLDRConverterTool;
@@ -75,7 +76,9 @@ public class NewLdml2IcuConverter extends CLDRConverterTool {
                 .add("makefile", 'g', ".*", null, "If set, generates makefiles and alias files for the specified type. " +
                     "The value to set should be the name of the makefile.")
                 .add("depgraphfile", 'e', ".*", null, "If set, generates a dependency graph file in JSON form summarizing parent and alias mappings between locale files. Only works when --type=locales.")
-                .add("verbose", 'v', null, null, "Debugging aids");
+                .add("verbose", 'v', null, null, "Debugging aids")
+                .add("jobs", 'j', "\\d+", "1", "Number of threads used to convert locales concurrently (locales only). " +
+                    "The files are still written one at a time, in the same order.");
 
     private static final String LOCALES_DIR = "locales";
 
@@ -88,6 +91,9 @@ public class NewLdml2IcuConverter extends CLDRConverterTool {
     private IcuDataSplitter splitter;
     private Filter filter;
     private boolean verbose = false;
+    private int numThreads = 1;
+    // Creates the mappers used by worker threads when converting concurrently.
+    private Supplier<? extends Mapper> workerMappers;
 
     /**
      * Maps ICU paths to the directories they should end up in.
@@ -160,6 +166,7 @@ public class NewLdml2IcuConverter extends CLDRConverterTool {
         }
 
         verbose = options.get("verbose").doesOccur();
+        numThreads = Integer.parseInt(options.get("jobs").getValue());
 
         String debugXPath = options.get("xpath").getValue();
         // Quotes are stripped out at the command line so add them back in.
@@ -237,12 +244,22 @@ public class NewLdml2IcuConverter extends CLDRConverterTool {
                 generateDependencyGraphFile(dependencyGraphData, option.getValue());
             }
 
-            Factory factory = Factory.make(sourceDir, ".*", DraftStatus.contributed);
-            String organization = options.get("organization").getValue();
-            LocaleMapper localeMapper = new LocaleMapper(factory, specialFactory,
-                supplementalDataInfo, options.get("filter").doesOccur(), organization);
-            localeMapper.setDebugXPath(debugXPath);
-            mapper = localeMapper;
+            final Factory factory = Factory.make(sourceDir, ".*", DraftStatus.contributed);
+            final Factory localeSpecialFactory = specialFactory;
+            final SupplementalDataInfo localeSupplementalDataInfo = supplementalDataInfo;
+            final String organization = options.get("organization").getValue();
+            final boolean useAltValues = options.get("filter").doesOccur();
+            final String localeDebugXPath = debugXPath;
+            workerMappers = new Supplier<LocaleMapper>() {
+                @Override
+                public LocaleMapper get() {
+                    LocaleMapper localeMapper = new LocaleMapper(factory, localeSpecialFactory,
+                        localeSupplementalDataInfo, useAltValues, organization);
+                    localeMapper.setDebugXPath(localeDebugXPath);
+                    return localeMapper;
+                }
+            };
+            mapper = workerMappers.get();
             break;
         case keyTypeData:
             processBcp47Data();
@@ -337,11 +354,14 @@ public class NewLdml2IcuConverter extends CLDRConverterTool {
     }
 
     /**
-     * Converts CLDR XML files using the specified mapper.
+     * Converts CLDR XML files using the specified mapper. If more than one thread was requested and the
+     * mapper supports it, the files are converted concurrently, but still written here in order.
      */
     private void convert(Mapper mapper) {
         IcuData icuData;
-        Iterator<IcuData> iterator = mapper.iterator(filter);
+        Iterator<IcuData> iterator = workerMappers == null
+            ? mapper.iterator(filter)
+            : mapper.iterator(filter, numThreads, workerMappers);
         final Type type = Type.valueOf(options.get("type").getValue());
         while (iterator.hasNext()) {
             long time = System.currentTimeMillis();
@@ -13,6 +13,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -98,7 +102,9 @@ public class Ldml2JsonConverter {
                     "Whether to group data files into installable packages")
                 .add("identity", 'i', "(true|false)", "true",
                     "Whether to copy the identity info into all sections containing data")
-                .add("konfig", 'k', ".*", null, "LDML to JSON configuration file");
+                .add("konfig", 'k', ".*", null, "LDML to JSON configuration file")
+                .add("jobs", 'j', "[0-9]+", "1",
+                    "Number of threads used to convert locales concurrently, 1 for a serial run");
 
     public static void main(String[] args) throws Exception {
         options.parse(args, true);
@@ -112,7 +118,8 @@ public class Ldml2JsonConverter {
             options.get("coverage").getValue(),
             options.get("match").getValue(),
             Boolean.parseBoolean(options.get("packages").getValue()),
-            options.get("konfig").getValue());
+            options.get("konfig").getValue(),
+            Integer.parseInt(options.get("jobs").getValue()));
 
         long start = System.currentTimeMillis();
         DraftStatus status = DraftStatus.valueOf(options.get("draftstatus").getValue());
@@ -137,10 +144,12 @@ public class Ldml2JsonConverter {
     private boolean writePackages;
     // Type of run for this converter: main, supplemental, or segments
     private RunType type;
+    // Number of threads used to convert files concurrently
+    private int numThreads;
 
     private class JSONSection implements Comparable<JSONSection> {
         public String section;
-        public Matcher matcher;
+        public Pattern pattern;
         public String packageName;
 
         public int compareTo(JSONSection other) {
@@ -149,14 +158,12 @@ public class Ldml2JsonConverter {
 
     }
 
-    private Map<JSONSection, List<CldrItem>> sectionItems = new TreeMap<JSONSection, List<CldrItem>>();
-
     private Map<String, String> dependencies;
     private List<JSONSection> sections;
     private Set<String> packages;
 
     public Ldml2JsonConverter(String cldrDir, String outputDir, String runType, boolean fullNumbers, boolean resolve, String coverage, String match,
-        boolean writePackages, String configFile) {
+        boolean writePackages, String configFile, int numThreads) {
         this.cldrCommonDir = cldrDir;
         this.outputDir = outputDir;
         this.type = RunType.valueOf(runType);
@@ -165,6 +172,7 @@ public class Ldml2JsonConverter {
         this.match = match;
         this.writePackages = writePackages;
         this.coverageValue = Level.get(coverage).getLevel();
+        this.numThreads = numThreads;
 
         sections = new ArrayList<JSONSection>();
         packages = new TreeSet<String>();
@@ -203,7 +211,7 @@ public class Ldml2JsonConverter {
                 if (hasSection && hasPath) {
                     JSONSection j = new JSONSection();
                     j.section = section;
-                    j.matcher = PatternCache.get(path).matcher("");
+                    j.pattern = PatternCache.get(path);
                     if (hasPackage) {
                         j.packageName = packageName;
                     }
@@ -239,7 +247,7 @@ public class Ldml2JsonConverter {
         // Add a section at the end of the list that will match anything not already matched.
         JSONSection j = new JSONSection();
         j.section = "other";
-        j.matcher = PatternCache.get(".*").matcher("");
+        j.pattern = PatternCache.get(".*");
         sections.add(j);
 
     }
@@ -289,9 +297,19 @@ public class Ldml2JsonConverter {
         return result;
     }
 
-    private void mapPathsToSections(CLDRFile file, String pathPrefix, SupplementalDataInfo sdi)
+    /**
+     * Sort the paths of the file into sections.
+     *
+     * @return the items for each section. This is local to the file, so that files can be converted concurrently.
+     */
+    private Map<JSONSection, List<CldrItem>> mapPathsToSections(CLDRFile file, String pathPrefix, SupplementalDataInfo sdi)
         throws IOException, ParseException {
 
+        Map<JSONSection, List<CldrItem>> sectionItems = new TreeMap<JSONSection, List<CldrItem>>();
+        Map<JSONSection, Matcher> sectionMatchers = new HashMap<JSONSection, Matcher>();
+        for (JSONSection js : sections) {
+            sectionMatchers.put(js, js.pattern.matcher(""));
+        }
         String locID = file.getLocaleID();
         Matcher noNumberingSystemMatcher = LdmlConvertRules.NO_NUMBERING_SYSTEM_PATTERN.matcher("");
         Matcher numberingSystemMatcher = LdmlConvertRules.NUMBERING_SYSTEM_PATTERN.matcher("");
@@ -362,8 +380,9 @@ public class Ldml2JsonConverter {
             String transformedFullPath = transformPath(fullPath, pathPrefix);
 
             for (JSONSection js : sections) {
-                js.matcher.reset(transformedPath);
-                if (js.matcher.matches()) {
+                Matcher sectionMatcher = sectionMatchers.get(js);
+                sectionMatcher.reset(transformedPath);
+                if (sectionMatcher.matches()) {
                     CldrItem item = new CldrItem(transformedPath, transformedFullPath, path, fullPath, value);
 
                     List<CldrItem> cldrItems = sectionItems.get(js);
@@ -382,7 +401,7 @@ public class Ldml2JsonConverter {
         JSONSection otherSection = sections.get(sections.size() - 1);
         List<CldrItem> others = sectionItems.get(otherSection);
         if (others == null) {
-            return;
+            return sectionItems;
         }
         List<CldrItem> otherSectionItems = new ArrayList<CldrItem>(others);
         int addedItemCount = 0;
@@ -407,6 +426,7 @@ public class Ldml2JsonConverter {
                 addedItemCount++;
             }
         }
+        return sectionItems;
     }
 
     /**
@@ -416,10 +436,13 @@ public class Ldml2JsonConverter {
      *            CLDRFile object.
      * @param outFilename
      *            The file name used to save JSON data.
+     * @param sectionItems
+     *            The items for each section, from mapPathsToSections.
      * @throws IOException
      * @throws ParseException
      */
-    private void convertCldrItems(String dirName, String filename, String pathPrefix)
+    private void convertCldrItems(String dirName, String filename, String pathPrefix,
+        Map<JSONSection, List<CldrItem>> sectionItems)
         throws IOException, ParseException {
         // zone and timezone items are queued for sorting first before they are
         // processed.
@@ -444,7 +467,9 @@ public class Ldml2JsonConverter {
                         if (defaultContentLocales.contains(filename) &&
                             lp.getRegion().length() > 0) {
                             if (type == RunType.main) {
-                                skippedDefaultContentLocales.add(filename.replaceAll("_", "-"));
+                                synchronized (skippedDefaultContentLocales) {
+                                    skippedDefaultContentLocales.add(filename.replaceAll("_", "-"));
+                                }
                             }
                             continue;
                         }
@@ -452,13 +477,17 @@ public class Ldml2JsonConverter {
                         if (localeCoverageLevel == Level.MODERN || filename.equals("root")) {
                             tier = "-modern";
                             if (type == RunType.main) {
-                                avl.modern.add(filename.replaceAll("_", "-"));
+                                synchronized (avl) {
+                                    avl.modern.add(filename.replaceAll("_", "-"));
+                                }
                             }
                         } else {
                             tier = "-full";
                         }
                         if (type == RunType.main) {
-                            avl.full.add(filename.replaceAll("_", "-"));
+                            synchronized (avl) {
+                                avl.full.add(filename.replaceAll("_", "-"));
+                            }
                         }
                     } else if (type == RunType.rbnf) {
                         js.packageName = "rbnf";
@@ -467,7 +496,9 @@ public class Ldml2JsonConverter {
                     if (js.packageName != null) {
                         String packageName = "cldr-" + js.packageName + tier;
                         outputDirname.append("/" + packageName);
-                        packages.add(packageName);
+                        synchronized (packages) {
+                            packages.add(packageName);
+                        }
                     }
                     outputDirname.append("/" + dirName + "/");
                     if (type != RunType.supplemental && type != RunType.rbnf) {
@@ -1199,12 +1230,13 @@ public class Ldml2JsonConverter {
      * @throws IOException
      * @throws ParseException
      */
-    public void processDirectory(String dirName, DraftStatus minimalDraftStatus)
+    public void processDirectory(final String dirName, final DraftStatus minimalDraftStatus)
         throws IOException, ParseException {
-        SupplementalDataInfo sdi = SupplementalDataInfo.getInstance(cldrCommonDir + "supplemental");
-        Factory cldrFactory = Factory.make(
+        final SupplementalDataInfo sdi = SupplementalDataInfo.getInstance(cldrCommonDir + "supplemental");
+        final Factory cldrFactory = Factory.make(
             cldrCommonDir + dirName + "/", ".*");
         Set<String> files = cldrFactory.getAvailable();
+        List<String> filesToProcess = new ArrayList<String>();
         for (String filename : files) {
             if (LdmlConvertRules.IGNORE_FILE_SET.contains(filename)) {
                 continue;
@@ -1212,21 +1244,57 @@ public class Ldml2JsonConverter {
             if (!filename.matches(match)) {
                 continue;
             }
+            filesToProcess.add(filename);
+        }
 
-            System.out.println("Processing file " + dirName + "/" + filename);
-            String pathPrefix;
-            CLDRFile file = cldrFactory.make(filename, resolve && type == RunType.main, minimalDraftStatus);
-
-            sectionItems.clear();
-            if (type == RunType.main) {
-                pathPrefix = "/cldr/" + dirName + "/" + filename.replaceAll("_", "-") + "/";
-            } else {
-                pathPrefix = "/cldr/" + dirName + "/";
+        // Files can only be converted concurrently if each one is written to its own output files.
+        // Otherwise, later files overwrite the sections of earlier ones, and the result would depend on timing.
+        boolean separateOutput = type == RunType.rbnf
+            || writePackages && (type == RunType.main || type == RunType.segments);
+        if (numThreads > 1 && !separateOutput) {
+            System.out.println("Converting serially, since all " + type + " files write to the same output files");
+        }
+        if (numThreads <= 1 || !separateOutput) {
+            for (String filename : filesToProcess) {
+                processFile(cldrFactory, sdi, dirName, filename, minimalDraftStatus);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(numThreads);
+            try {
+                List<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>();
+                for (final String filename : filesToProcess) {
+                    tasks.add(pool.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException, ParseException {
+                            processFile(cldrFactory, sdi, dirName, filename, minimalDraftStatus);
+                            return null;
+                        }
+                    }));
+                }
+                // wait in order, so that the first failure (in file order) is the one reported
+                for (ForkJoinTask<Void> task : tasks) {
+                    try {
+                        task.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while converting " + dirName, e);
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof IOException) {
+                            throw (IOException) cause;
+                        } else if (cause instanceof ParseException) {
+                            throw (ParseException) cause;
+                        } else if (cause instanceof RuntimeException) {
+                            throw (RuntimeException) cause;
+                        } else if (cause instanceof Error) {
+                            throw (Error) cause;
+                        }
+                        throw new IllegalStateException(cause);
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
             }
-            mapPathsToSections(file, pathPrefix, sdi);
-
-            convertCldrItems(dirName, filename, pathPrefix);
-
         }
 
         if (writePackages) {
@@ -1243,6 +1311,26 @@ public class Ldml2JsonConverter {
         }
     }
 
+    /**
+     * Convert a single file of a directory. All the conversion state is local to the call, except for the sets of
+     * packages and locales that are collected for the packaging files.
+     */
+    private void processFile(Factory cldrFactory, SupplementalDataInfo sdi, String dirName, String filename,
+        DraftStatus minimalDraftStatus) throws IOException, ParseException {
+        System.out.println("Processing file " + dirName + "/" + filename);
+        String pathPrefix;
+        CLDRFile file = cldrFactory.make(filename, resolve && type == RunType.main, minimalDraftStatus);
+
+        if (type == RunType.main) {
+            pathPrefix = "/cldr/" + dirName + "/" + filename.replaceAll("_", "-") + "/";
+        } else {
+            pathPrefix = "/cldr/" + dirName + "/";
+        }
+        Map<JSONSection, List<CldrItem>> sectionItems = mapPathsToSections(file, pathPrefix, sdi);
+
+        convertCldrItems(dirName, filename, pathPrefix, sectionItems);
+    }
+
     /**
      * Replacement pattern for escaping.
      */
@@ -3,11 +3,14 @@ package org.unicode.cldr.test;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -17,7 +20,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.unicode.cldr.draft.FileUtilities;
 import org.unicode.cldr.test.CheckCLDR.CheckStatus;
@@ -114,7 +123,9 @@ public class ConsoleCheckCLDR {
         ID_VIEW = 18,
         SUBTYPE_FILTER = 19,
         SOURCE_ALL = 20,
-        BAILEY = 21
+        BAILEY = 21,
+        EXEMPLAR_ERROR = 22,
+        JOBS = 23
     // VOTE_RESOLVE2 = 21
     ;
 
@@ -156,7 +167,9 @@ public class ConsoleCheckCLDR {
             "Partially qualified directories. Standard subdirectories added if not specified (/main, /annotations, /subdivisions). (Conflicts with -s.)")
             .setMatch(".*").setFlag('S').setDefault("common,seed,exemplars")), //, 'S', <changed>),
         bailey(new Params().setHelp("check bailey values (" + CldrUtility.INHERITANCE_MARKER + ")")), //, 'b', UOption.NO_ARG)
-        exemplarError(new Params().setFlag('E').setHelp("include to force strict Exemplar check"));
+        exemplarError(new Params().setFlag('E').setHelp("include to force strict Exemplar check")),
+        jobs(new Params().setHelp("Number of locales to check in parallel, eg -j4")
+            .setDefault("1").setMatch("[0-9]+")); //, 'j', UOption.OPTIONAL_ARG).setDefault("1"),
 
         // BOILERPLATE TO COPY
         final Option option;
@@ -200,7 +213,8 @@ public class ConsoleCheckCLDR {
         UOption.create("subtype_filter", 'y', UOption.REQUIRES_ARG),
         UOption.create("source_all", 'S', UOption.OPTIONAL_ARG).setDefault("common,seed,exemplars"),
         UOption.create("bailey", 'b', UOption.NO_ARG),
-        UOption.create("exemplarError", 'E', UOption.NO_ARG)
+        UOption.create("exemplarError", 'E', UOption.NO_ARG),
+        UOption.create("jobs", 'j', UOption.OPTIONAL_ARG).setDefault("1")
         // UOption.create("vote resolution2", 'w', UOption.OPTIONAL_ARG).setDefault(Utility.BASE_DIRECTORY +
         // "incoming/vetted/main/votes/"),
     };
@@ -239,11 +253,27 @@ public class ConsoleCheckCLDR {
         "-u \t User, eg -uu148",
         "-y \t error/warning subtype filter, eg unexpectedOrderOfEraYear",
         "-b \t check bailey values (" + CldrUtility.INHERITANCE_MARKER + ")",
+        "-jN \t Check N locales in parallel",
     };
 
-    static Counter<ErrorType> subtotalCount = new Counter<ErrorType>(true); // new ErrorCount();
     static Counter<ErrorType> totalCount = new Counter<ErrorType>(true);
 
+    private static final List<String> SPECIAL_PURPOSE_LOCALES = Arrays.asList("en_US_POSIX", "en_ZZ", "und", "und_ZZ");
+
+    // settings from the command line, read by checkLocale
+    private static Factory cldrFactory;
+    private static PathHeader.Factory pathHeaderFactory;
+    private static EnumSet<Subtype> subtypeFilter;
+    private static Pattern pathFilterPattern;
+    private static Level coverageLevel;
+    private static Organization organization;
+    private static Phase phase;
+    private static String user;
+    private static boolean showAll;
+    private static boolean checkFlexibleDates;
+    private static boolean checkOnSubmit;
+    private static boolean baileyTest;
+
     /**
      * This will be the test framework way of using these tests. It is preliminary for now.
      * The Survey Tool will call setDisplayInformation, and getCheckAll.
@@ -271,7 +301,7 @@ public class ConsoleCheckCLDR {
         }
         String checkFilter = options[TEST_FILTER].value;
         String subtypeFilterString = options[SUBTYPE_FILTER].value;
-        EnumSet<Subtype> subtypeFilter = null;
+        subtypeFilter = null;
         if (subtypeFilterString != null) {
             subtypeFilter = EnumSet.noneOf(Subtype.class);
             Matcher m = PatternCache.get(subtypeFilterString).matcher("");
@@ -292,17 +322,17 @@ public class ConsoleCheckCLDR {
         // }
 
         SHOW_EXAMPLES = options[EXAMPLES].doesOccur;
-        boolean showAll = options[SHOWALL].doesOccur;
-        boolean checkFlexibleDates = options[DATE_FORMATS].doesOccur;
+        showAll = options[SHOWALL].doesOccur;
+        checkFlexibleDates = options[DATE_FORMATS].doesOccur;
         String pathFilterString = options[PATH_FILTER].value;
-        Matcher pathFilter = null;
+        pathFilterPattern = null;
         if (!pathFilterString.equals(".*")) {
-            pathFilter = PatternCache.get(pathFilterString).matcher("");
+            pathFilterPattern = PatternCache.get(pathFilterString);
         }
-        boolean checkOnSubmit = options[CHECK_ON_SUBMIT].doesOccur;
+        checkOnSubmit = options[CHECK_ON_SUBMIT].doesOccur;
         boolean noaliases = options[NO_ALIASES].doesOccur;
 
-        Level coverageLevel = null;
+        coverageLevel = null;
         String coverageLevelInput = options[COVERAGE].value;
         if (coverageLevelInput != null) {
             coverageLevel = Level.get(coverageLevelInput);
@@ -312,7 +342,7 @@ public class ConsoleCheckCLDR {
             }
         }
 
-        Organization organization = options[ORGANIZATION].value == null ? null : Organization.fromString(options[ORGANIZATION].value);
+        organization = options[ORGANIZATION].value == null ? null : Organization.fromString(options[ORGANIZATION].value);
         if (organization != null) {
             Set<Organization> organizations = StandardCodes.make().getLocaleCoverageOrganizations();
             if (!organizations.contains(organization)) {
@@ -324,7 +354,6 @@ public class ConsoleCheckCLDR {
         // set the envronment to UNITTEST as suggested
         cldrConf.setEnvironment(Environment.UNITTEST);
         // get the Phase from CLDRConfig object
-        final Phase phase;
         //   Phase phase = Phase.BUILD;
         if (options[PHASE].doesOccur) {
             String phaseVal = options[PHASE].value;
@@ -359,7 +388,7 @@ public class ConsoleCheckCLDR {
             phase = cldrConf.getPhase();
         }
 
-        boolean baileyTest = options[BAILEY].doesOccur;
+        baileyTest = options[BAILEY].doesOccur;
 
         File sourceDirectories[] = null;
 
@@ -405,7 +434,7 @@ public class ConsoleCheckCLDR {
         // System.out.println(cc.compare("Antarctica/Rothera", "America/Cordoba"));
         // System.out.println(cc.compare("Antarctica/Rothera", "America/Indianapolis"));
 
-        String user = options[USER].value;
+        user = options[USER].value;
 
         System.out.println("Source directories:\n");
         for (File f : sourceDirectories) {
@@ -431,7 +460,7 @@ public class ConsoleCheckCLDR {
 //        System.out.println("subtype filter: " + subtypeFilter);
 
         // set up the test
-        Factory cldrFactory = SimpleFactory.make(sourceDirectories, factoryFilter)
+        cldrFactory = SimpleFactory.make(sourceDirectories, factoryFilter)
             .setSupplementalDirectory(new File(CLDRPaths.SUPPLEMENTAL_DIRECTORY));
         CompoundCheckCLDR checkCldr = CheckCLDR.getCheckAll(cldrFactory, checkFilter);
         if (checkCldr.getFilteredTestList().size() == 0) {
@@ -445,46 +474,175 @@ public class ConsoleCheckCLDR {
         checkCldr.setDisplayInformation(english);
         checkCldr.setEnglishFile(english);
         setExampleGenerator(new ExampleGenerator(english, english, CLDRPaths.SUPPLEMENTAL_DIRECTORY));
-        PathShower pathShower = new PathShower();
 
         // call on the files
         Set<String> locales = new TreeSet<String>(baseFirstCollator);
         locales.addAll(cldrFactory.getAvailable());
 
-        List<CheckStatus> result = new ArrayList<CheckStatus>();
-        Set<PathHeader> paths = new TreeSet<PathHeader>(); // CLDRFile.ldmlComparator);
-        Map m = new TreeMap();
-        // double testNumber = 0;
-        Map<String, String> options = new HashMap<String, String>();
-        FlexibleDateFromCLDR fset = new FlexibleDateFromCLDR();
-        Set<String> englishPaths = null;
-
         Set<String> fatalErrors = new TreeSet<String>();
 
         showHeaderLine();
 
         supplementalDataInfo = SupplementalDataInfo.getInstance(CLDRPaths.SUPPLEMENTAL_DIRECTORY);
 
-        LocaleIDParser localeIDParser = new LocaleIDParser();
         String lastBaseLanguage = "";
-        PathHeader.Factory pathHeaderFactory = PathHeader.getFactory(english);
+        pathHeaderFactory = PathHeader.getFactory(english);
+
+        Set<String> englishPaths = new HashSet<String>();
+        final CLDRFile displayFile = CheckCLDR.getDisplayInformation();
+        Matcher pathFilter = pathFilterPattern == null ? null : pathFilterPattern.matcher("");
+        addPrettyPaths(displayFile, pathFilter, pathHeaderFactory, noaliases, true, englishPaths);
+        addPrettyPaths(displayFile, displayFile.getExtraPaths(), pathFilter, pathHeaderFactory, noaliases,
+            true, englishPaths);
+        englishPaths = Collections.unmodifiableSet(englishPaths); // for robustness
+
+        int jobs = Integer.parseInt(options[JOBS].value);
+        if (jobs > 1 && (checkFlexibleDates || resolveVotesDirectory != null)) {
+            // the date format checks and vote resolution print directly and share state across locales
+            System.out.println("# -d and -v are not supported with -j; checking locales serially");
+            jobs = 1;
+        }
+
+        final List<CompoundCheckCLDR> checks = Collections.synchronizedList(new ArrayList<CompoundCheckCLDR>());
+        checks.add(checkCldr);
+        if (jobs <= 1) {
+            for (String localeID : locales) {
+                LocaleResult localeResult = checkLocale(localeID, checkCldr, false);
+                lastBaseLanguage = mergeLocaleResult(localeResult, lastBaseLanguage, fatalErrors);
+            }
+        } else {
+            // each worker gets its own checks, since they keep per-locale state; the factory is shared
+            final String workerCheckFilter = checkFilter;
+            final ThreadLocal<CompoundCheckCLDR> workerChecks = new ThreadLocal<CompoundCheckCLDR>() {
+                @Override
+                protected CompoundCheckCLDR initialValue() {
+                    CompoundCheckCLDR workerCheck = CheckCLDR.getCheckAll(cldrFactory, workerCheckFilter);
+                    workerCheck.setEnglishFile(english);
+                    checks.add(workerCheck);
+                    return workerCheck;
+                }
+            };
+            ExecutorService executor = Executors.newFixedThreadPool(jobs);
+            try {
+                // only keep a bounded number of locales in flight, so that the buffered output stays small
+                Deque<Future<LocaleResult>> pending = new ArrayDeque<Future<LocaleResult>>();
+                for (final String localeID : locales) {
+                    pending.add(executor.submit(new Callable<LocaleResult>() {
+                        @Override
+                        public LocaleResult call() {
+                            return checkLocale(localeID, workerChecks.get(), true);
+                        }
+                    }));
+                    if (pending.size() >= 2 * jobs) {
+                        lastBaseLanguage = mergeLocaleResult(getLocaleResult(pending.removeFirst()), lastBaseLanguage,
+                            fatalErrors);
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    lastBaseLanguage = mergeLocaleResult(getLocaleResult(pending.removeFirst()), lastBaseLanguage,
+                        fatalErrors);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        if (ErrorFile.errorFileWriter != null) {
+            ErrorFile.closeErrorFile();
+        }
+
+        if (ErrorFile.generated_html_directory != null) {
+            ErrorFile.writeErrorCountsText();
+            ErrorFile.writeErrorFileIndex();
+        }
+        System.out.println();
+        for (ErrorType type : totalCount.keySet()) {
+            System.out.println("# Total " + type + ":\t" + totalCount.getCount(type));
+        }
+
+        System.out.println();
+        System.out.println("# Total elapsed time: " + totalTimer);
+        if (fatalErrors.size() != 0) {
+            System.out.println("# FATAL ERRORS:");
+        }
+        long errorCount = totalCount.getCount(ErrorType.error) + fatalErrors.size();
+        if (errorCount != 0) {
+            //            System.exit((int) errorCount); // cast is safe; we'll never have that many errors
+            System.out.println();
+            System.out.println("<< FAILURE - Error count is " + errorCount + " . >>");
+            System.exit(-1);
+        } else {
+            System.out.println();
+            System.out.println("<< SUCCESS - No errors found. >>");
+        }
+        if (LogicalGrouping.GET_TYPE_COUNTS) {
+            for (String s : LogicalGrouping.typeCount.keySet()) {
+                System.out.println(s + "=" + LogicalGrouping.typeCount.get(s));
+            }
+        }
+        for (CompoundCheckCLDR check : checks) {
+            check.handleFinish();
+        }
+    }
 
-        final List<String> specialPurposeLocales = new ArrayList<String>(Arrays.asList("en_US_POSIX", "en_ZZ", "und", "und_ZZ"));
-        for (String localeID : locales) {
-            if (CLDRFile.isSupplementalName(localeID)) continue;
+    /**
+     * The output and error counts of checking one locale. With -j, locales are checked on worker threads into
+     * buffered results, which are merged on the main thread in locale order, so the output matches a serial run.
+     */
+    private static class LocaleResult {
+        final String localeID;
+        final StringWriter buffer;
+        final PrintWriter out;
+        final Counter<ErrorType> subtotalCount = new Counter<ErrorType>(true);
+        /** path, status and subtype of each problem, for the error file */
+        final List<Row.R3<String, ErrorType, Subtype>> errorFileData = new ArrayList<Row.R3<String, ErrorType, Subtype>>();
+        /** paths with disputed votes, for the error file */
+        final List<String> disputedPaths = new ArrayList<String>();
+        boolean checked = false;
+        boolean fatal = false;
+
+        LocaleResult(String localeID, boolean buffered) {
+            this.localeID = localeID;
+            buffer = buffered ? new StringWriter() : null;
+            out = buffered ? new PrintWriter(buffer) : new PrintWriter(System.out, true);
+        }
+    }
+
+    private static final ThreadLocal<LocaleResult> currentLocaleResult = new ThreadLocal<LocaleResult>();
+
+    /**
+     * Run the checks on one locale. Only touches shared state that is safe for concurrent use;
+     * everything that is written ends up in the returned result.
+     */
+    private static LocaleResult checkLocale(String localeID, CompoundCheckCLDR checkCldr, boolean buffered) {
+        LocaleResult localeResult = new LocaleResult(localeID, buffered);
+        final PrintWriter out = localeResult.out;
+        final CLDRConfig cldrConf = CLDRConfig.getInstance();
+
+        List<CheckStatus> result = new ArrayList<CheckStatus>();
+        Set<PathHeader> paths = new TreeSet<PathHeader>(); // CLDRFile.ldmlComparator);
+        Map m = new TreeMap();
+        Map<String, String> options = new HashMap<String, String>();
+        FlexibleDateFromCLDR fset = new FlexibleDateFromCLDR();
+        LocaleIDParser localeIDParser = new LocaleIDParser();
+        PathShower pathShower = new PathShower();
+        Matcher pathFilter = pathFilterPattern == null ? null : pathFilterPattern.matcher("");
+
+        currentLocaleResult.set(localeResult);
+        try {
+            if (CLDRFile.isSupplementalName(localeID)) return localeResult;
             if (supplementalDataInfo.getDefaultContentLocales().contains(localeID)) {
-                System.out.println("# Skipping default content locale: " + localeID);
-                continue;
+                out.println("# Skipping default content locale: " + localeID);
+                return localeResult;
             }
 
             // We don't really need to check the POSIX locale, as it is a special purpose locale
-            if (specialPurposeLocales.contains(localeID)) {
-                System.out.println("# Skipping special purpose locale: " + localeID);
-                continue;
+            if (SPECIAL_PURPOSE_LOCALES.contains(localeID)) {
+                out.println("# Skipping special purpose locale: " + localeID);
+                return localeResult;
             }
 
             boolean isLanguageLocale = localeID.equals(localeIDParser.set(localeID).getLanguageScript());
-            options.clear();
 
             if (MyOptions.exemplarError.option.doesOccur()) {
                 options.put(Options.Option.exemplarErrors.toString(), "true");
@@ -497,10 +655,10 @@ public class ConsoleCheckCLDR {
             }
             if (organization != null) {
                 Map<String, Level> locale_status = StandardCodes.make().getLocaleToLevel(organization);
-                if (locale_status == null) continue;
+                if (locale_status == null) return localeResult;
                 level = locale_status.get(localeID);
-                if (level == null) continue;
-                if (level.compareTo(Level.BASIC) <= 0) continue;
+                if (level == null) return localeResult;
+                if (level.compareTo(Level.BASIC) <= 0) return localeResult;
             } else if (!isLanguageLocale) {
                 // otherwise, skip all language locales
                 options.put(Options.Option.CheckCoverage_skip.getKey(), "true");
@@ -511,7 +669,7 @@ public class ConsoleCheckCLDR {
             options.put(Options.Option.phase.getKey(), phase.toString());
             //options.put(Options.Option.SHOW_TIMES.getKey(), "true");
 
-            if (SHOW_LOCALE) System.out.println();
+            if (SHOW_LOCALE) out.println();
 
             // options.put("CheckCoverage.requiredLevel","comprehensive");
 
@@ -531,22 +689,13 @@ public class ConsoleCheckCLDR {
                 }
                 //englishFile = cldrFactory.make("en", true);
             } catch (RuntimeException e) {
-                fatalErrors.add(localeID);
-                System.out.println("FATAL ERROR: " + localeID);
-                e.printStackTrace(System.out);
-                continue;
-            }
-
-            // generate HTML if asked for
-            if (ErrorFile.generated_html_directory != null) {
-                String baseLanguage = localeIDParser.set(localeID).getLanguageScript();
-
-                if (!baseLanguage.equals(lastBaseLanguage)) {
-                    lastBaseLanguage = baseLanguage;
-                    ErrorFile.openErrorFile(localeID, baseLanguage);
-                }
-
+                localeResult.fatal = true;
+                out.println("FATAL ERROR: " + localeID);
+                e.printStackTrace(out);
+                return localeResult;
             }
+            // the error file (if generating HTML) is opened when the result is merged
+            localeResult.checked = true;
 
             if (user != null) {
                 file = new CLDRFile.TestUser(file, user, isLanguageLocale);
@@ -556,8 +705,6 @@ public class ConsoleCheckCLDR {
             }
             checkCldr.setCldrFileToCheck(file, options, result);
 
-            subtotalCount.clear();
-
             for (Iterator<CheckStatus> it3 = result.iterator(); it3.hasNext();) {
                 CheckStatus status = it3.next();
                 String statusString = status.toString(); // com.ibm.icu.impl.Utility.escape(
@@ -598,15 +745,6 @@ public class ConsoleCheckCLDR {
 
             // also add the English paths
             // CollectionUtilities.addAll(checkCldr.getDisplayInformation().iterator(pathFilter), paths);
-            // initialize the first time in.
-            if (englishPaths == null) {
-                englishPaths = new HashSet<String>();
-                final CLDRFile displayFile = CheckCLDR.getDisplayInformation();
-                addPrettyPaths(displayFile, pathFilter, pathHeaderFactory, noaliases, true, englishPaths);
-                addPrettyPaths(displayFile, displayFile.getExtraPaths(), pathFilter, pathHeaderFactory, noaliases,
-                    true, englishPaths);
-                englishPaths = Collections.unmodifiableSet(englishPaths); // for robustness
-            }
             // paths.addAll(englishPaths);
 
             UnicodeSet missingExemplars = new UnicodeSet();
@@ -704,7 +842,7 @@ public class ConsoleCheckCLDR {
                                 m.clear();
                                 // m.put("pattern", fd.getPattern());
                                 // m.put("input", fd.getRandomInput());
-                                if (d.processPost(m)) System.out.println("\tDemo:\t" + fd.getPlainText(m));
+                                if (d.processPost(m)) out.println("\tDemo:\t" + fd.getPlainText(m));
                             }
                             continue;
                         }
@@ -771,8 +909,8 @@ public class ConsoleCheckCLDR {
                         .setCompressRanges(true)
                         .format(missingCurrencyExemplars));
             }
-            for (ErrorType type : subtotalCount.keySet()) {
-                showSummary(localeID, level, "Subtotal " + type + ":\t" + subtotalCount.getCount(type));
+            for (ErrorType type : localeResult.subtotalCount.keySet()) {
+                showSummary(localeID, level, "Subtotal " + type + ":\t" + localeResult.subtotalCount.getCount(type));
             }
             if (checkFlexibleDates) {
                 fset.showFlexibles();
@@ -798,44 +936,76 @@ public class ConsoleCheckCLDR {
                     showExamples(checkCldr, prettyPath, localeID, path, null, fullPath, example);
                 }
             }
-            System.out.println("# Elapsed time: " + timer);
-            System.out.flush();
-        }
-
-        if (ErrorFile.errorFileWriter != null) {
-            ErrorFile.closeErrorFile();
+            out.println("# Elapsed time: " + timer);
+        } finally {
+            currentLocaleResult.remove();
+            out.flush();
         }
+        return localeResult;
+    }
 
-        if (ErrorFile.generated_html_directory != null) {
-            ErrorFile.writeErrorCountsText();
-            ErrorFile.writeErrorFileIndex();
+    /**
+     * Write out the result of checking one locale, and fold it into the totals and the error file.
+     * Must be called on the main thread, in locale order.
+     *
+     * @return the base language of the last error file opened
+     */
+    private static String mergeLocaleResult(LocaleResult localeResult, String lastBaseLanguage, Set<String> fatalErrors)
+        throws IOException {
+        String localeID = localeResult.localeID;
+        if (localeResult.buffer != null) {
+            System.out.print(localeResult.buffer);
+            System.out.flush();
         }
-        System.out.println();
-        for (ErrorType type : totalCount.keySet()) {
-            System.out.println("# Total " + type + ":\t" + totalCount.getCount(type));
+        if (localeResult.fatal) {
+            fatalErrors.add(localeID);
         }
+        totalCount.addAll(localeResult.subtotalCount);
 
-        System.out.println();
-        System.out.println("# Total elapsed time: " + totalTimer);
-        if (fatalErrors.size() != 0) {
-            System.out.println("# FATAL ERRORS:");
+        // generate HTML if asked for
+        if (ErrorFile.generated_html_directory != null && localeResult.checked) {
+            String baseLanguage = new LocaleIDParser().set(localeID).getLanguageScript();
+
+            if (!baseLanguage.equals(lastBaseLanguage)) {
+                lastBaseLanguage = baseLanguage;
+                ErrorFile.openErrorFile(localeID, baseLanguage);
+            }
         }
-        long errorCount = totalCount.getCount(ErrorType.error) + fatalErrors.size();
-        if (errorCount != 0) {
-            //            System.exit((int) errorCount); // cast is safe; we'll never have that many errors
-            System.out.println();
-            System.out.println("<< FAILURE - Error count is " + errorCount + " . >>");
-            System.exit(-1);
-        } else {
-            System.out.println();
-            System.out.println("<< SUCCESS - No errors found. >>");
+        for (String path : localeResult.disputedPaths) {
+            ErrorFile.addDataToErrorFile(localeID, path, ErrorType.disputed, Subtype.none);
         }
-        if (LogicalGrouping.GET_TYPE_COUNTS) {
-            for (String s : LogicalGrouping.typeCount.keySet()) {
-                System.out.println(s + "=" + LogicalGrouping.typeCount.get(s));
+        for (Row.R3<String, ErrorType, Subtype> item : localeResult.errorFileData) {
+            String path = item.get0();
+            ErrorType shortStatus = item.get1();
+            if (!localeID.equals(lastHtmlLocaleID)) {
+                ErrorFile.writeErrorCountsText();
+                // startGeneratedTable(generated_html, generated_html_table);
+                lastHtmlLocaleID = localeID;
+            }
+            addError(shortStatus);
+            ErrorFile.addDataToErrorFile(localeID, path, shortStatus, item.get2());
+            if (PATH_IN_COUNT && ErrorFile.generated_html_count != null) {
+                ErrorFile.generated_html_count.println(lastHtmlLocaleID + ";\tpath:\t" + path);
             }
         }
-        checkCldr.handleFinish();
+        return lastBaseLanguage;
+    }
+
+    private static LocaleResult getLocaleResult(Future<LocaleResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
     }
 
     static class LocaleVotingData {
@@ -916,7 +1086,7 @@ public class ConsoleCheckCLDR {
                     if (voteResolver.isDisputed()) {
                         disputedCount++;
                         String path = getIdToPath(basePath);
-                        ErrorFile.addDataToErrorFile(locale, path, ErrorType.disputed, Subtype.none);
+                        currentLocaleResult.get().disputedPaths.add(path);
                     }
                 } else {
                     for (Organization org : orgToMaxVote.keySet()) {
@@ -994,7 +1164,8 @@ public class ConsoleCheckCLDR {
             if (shortStatus == ErrorType.unknown) {
                 throw new IllegalArgumentException("Unknown error type: " + statusString);
             } else if (shortStatus == ErrorType.warning) {
-                if (coverageMatcher.reset(statusString).find()) {
+                Matcher coverageMatcher = coveragePattern.matcher(statusString);
+                if (coverageMatcher.find()) {
                     shortStatus = ErrorType.valueOf(coverageMatcher.group(1));
                 }
             }
@@ -1407,7 +1578,7 @@ public class ConsoleCheckCLDR {
 
     private static void showSummary(String localeID, Level level, String value) {
         String line = "# " + getLocaleAndName(localeID) + "\tSummary\t" + level + "\t" + value;
-        System.out.println(line);
+        currentLocaleResult.get().out.println(line);
     }
 
     private static void showExamples(CheckCLDR checkCldr, String prettyPath, String localeID,
@@ -1479,7 +1650,7 @@ public class ConsoleCheckCLDR {
 
     private static ExampleGenerator englishExampleGenerator;
 
-    static Matcher coverageMatcher = PatternCache.get("meet ([a-z]*) coverage").matcher(""); // HACK TODO fix
+    static final Pattern coveragePattern = PatternCache.get("meet ([a-z]*) coverage"); // HACK TODO fix
 
     private static void showHeaderLine() {
         if (SHOW_LOCALE) {
@@ -1496,7 +1667,7 @@ public class ConsoleCheckCLDR {
 
     private static PathDescription pathDescription = null;
 
-    private static String getIdString(String path, String value) {
+    private static synchronized String getIdString(String path, String value) {
         if (pathDescription == null) {
             pathDescription = new PathDescription(supplementalDataInfo, english, null, null,
                 PathDescription.ErrorHandling.CONTINUE);
@@ -1507,20 +1678,23 @@ public class ConsoleCheckCLDR {
 
     private static void showValue(CLDRFile cldrFile, String prettyPath, String localeID, String example,
         String path, String value, String fullPath, String statusString, Subtype subType) {
+        LocaleResult localeResult = currentLocaleResult.get();
         ErrorType shortStatus = ErrorType.fromStatusString(statusString);
-        subtotalCount.add(shortStatus, 1);
-        totalCount.add(shortStatus, 1);
+        localeResult.subtotalCount.add(shortStatus, 1);
         if (subType == null) {
             subType = Subtype.none;
         }
 
-        if (ErrorFile.errorFileWriter == null) {
+        if (ErrorFile.generated_html_directory == null) {
             example = example == null ? "" : example;
             String englishExample = null;
             final String englishPathValue = path == null ? null : getEnglishPathValue(path);
             if (SHOW_EXAMPLES && path != null) {
-                englishExample = ExampleGenerator.simplify(getExampleGenerator().getExampleHtml(path, englishPathValue,
-                    ExampleType.ENGLISH));
+                ExampleGenerator englishExampleGenerator = getExampleGenerator();
+                synchronized (englishExampleGenerator) {
+                    englishExample = ExampleGenerator.simplify(englishExampleGenerator.getExampleHtml(path, englishPathValue,
+                        ExampleType.ENGLISH));
+                }
             }
             englishExample = englishExample == null ? "" : englishExample;
             String cleanPrettyPath = path == null ? null : prettyPath; // prettyPathMaker.getOutputForm(prettyPath);
@@ -1537,7 +1711,7 @@ public class ConsoleCheckCLDR {
                     : "\t" + status.pathWhereFound);
 
             String idViewString = idView ? (path == null ? "\tNO_ID" : getIdString(path, value)) : "";
-            System.out.println(
+            localeResult.out.println(
                 getLocaleAndName(localeID)
                     + (idViewString.isEmpty() ?
                     // + "\t" + subtotalCount.getCount(shortStatus)
@@ -1560,23 +1734,15 @@ public class ConsoleCheckCLDR {
                             + "\t【" + example + "】"
                             + "\t⁅" + subType + "⁆"
                             + "\t❮" + statusString + "❯"));
-        } else if (ErrorFile.errorFileWriter != null) {
+        } else {
             if (shortStatus == ErrorType.contributed) {
                 return;
             }
             if (shortStatus == ErrorType.posix) {
                 shortStatus = ErrorType.minimal;
             }
-            if (!localeID.equals(lastHtmlLocaleID)) {
-                ErrorFile.writeErrorCountsText();
-                // startGeneratedTable(generated_html, generated_html_table);
-                lastHtmlLocaleID = localeID;
-            }
-            addError(shortStatus);
-            ErrorFile.addDataToErrorFile(localeID, path, shortStatus, subType);
-        }
-        if (PATH_IN_COUNT && ErrorFile.generated_html_count != null) {
-            ErrorFile.generated_html_count.println(lastHtmlLocaleID + ";\tpath:\t" + path);
+            // added to the error file by mergeLocaleResult
+            localeResult.errorFileData.add(Row.of(path, shortStatus, subType));
         }
     }
 
@@ -15,7 +15,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -186,6 +189,12 @@ public class ExampleGenerator {
      */
     private Map<String, String> cache = new ConcurrentHashMap<String, String>();
 
+    /*
+     * Only set for an ExampleGenerator made with getPooledInstance. Examples that aren't in the cache are then
+     * generated by one of the members of the pool, which all share this ExampleGenerator's cache.
+     */
+    private Pool pool = null;
+
     /**
      * For this (locale-specific) ExampleGenerator, clear the cached value for the given xpath,
      * and for any xpaths whose examples might also depend on this xpath.
@@ -271,7 +280,80 @@ public class ExampleGenerator {
     private String creationTime = null; // only used if DEBUG_EXAMPLE_GENERATOR
 
     /**
-     * Create an Example Generator. If this is shared across threads, it must be synchronized.
+     * Create an ExampleGenerator whose getExampleHtml can be called from several threads at once.
+     * Examples are generated by a bounded pool of ExampleGenerators for the same locale, created as needed,
+     * which share one cache. The background and error settings are copied to each member when it is created,
+     * so set them before use.
+     *
+     * @param resolvedCldrFile
+     * @param englishFile
+     * @param supplementalDataDirectory
+     * @param poolSize the maximum number of examples generated at the same time
+     */
+    public static ExampleGenerator getPooledInstance(CLDRFile resolvedCldrFile, CLDRFile englishFile,
+        String supplementalDataDirectory, int poolSize) {
+        ExampleGenerator result = new ExampleGenerator(resolvedCldrFile, englishFile, supplementalDataDirectory);
+        result.pool = new Pool(result, supplementalDataDirectory, poolSize);
+        return result;
+    }
+
+    private static class Pool {
+        private final ExampleGenerator owner;
+        private final String supplementalDataDirectory;
+        private final int maxSize;
+        private final BlockingQueue<ExampleGenerator> idle;
+        private final AtomicInteger created = new AtomicInteger();
+
+        Pool(ExampleGenerator owner, String supplementalDataDirectory, int maxSize) {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("Pool size must be at least 1: " + maxSize);
+            }
+            this.owner = owner;
+            this.supplementalDataDirectory = supplementalDataDirectory;
+            this.maxSize = maxSize;
+            idle = new ArrayBlockingQueue<ExampleGenerator>(maxSize);
+        }
+
+        ExampleGenerator borrow() {
+            ExampleGenerator member = idle.poll();
+            if (member != null) {
+                return member;
+            }
+            if (created.incrementAndGet() <= maxSize) {
+                try {
+                    return newMember();
+                } catch (RuntimeException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            }
+            created.decrementAndGet();
+            try {
+                return idle.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for an ExampleGenerator", e);
+            }
+        }
+
+        void release(ExampleGenerator member) {
+            idle.offer(member);
+        }
+
+        private ExampleGenerator newMember() {
+            ExampleGenerator member = new ExampleGenerator(owner.cldrFile, owner.englishFile, supplementalDataDirectory);
+            member.cache = owner.cache;
+            member.cachingIsEnabled = owner.cachingIsEnabled;
+            member.backgroundStart = owner.backgroundStart;
+            member.backgroundEnd = owner.backgroundEnd;
+            member.verboseErrors = owner.verboseErrors;
+            return member;
+        }
+    }
+
+    /**
+     * Create an Example Generator. If this is shared across threads, it must be synchronized,
+     * or made with getPooledInstance.
      *
      * @param resolvedCldrFile
      * @param englishFile
@@ -341,12 +423,14 @@ public class ExampleGenerator {
                 + typeIsEnglish + "; filesAreSame = " + filesAreSame;
             throw new IllegalArgumentException(msg);
         }
+        if (pool != null) {
+            return getPooledExampleHtml(xpath, value, exType);
+        }
         String cacheKey = null;
         String result = null;
         try {
             if (cachingIsEnabled) {
-                String exTypeLetter = (exType == ExampleType.ENGLISH) ? "E" : "N";
-                cacheKey = exTypeLetter + xpath + "," + value;
+                cacheKey = getCacheKey(xpath, value, exType);
                 result = cache.get(cacheKey);
                 if (result != null) {
                     if (result == NONE) {
@@ -457,6 +541,29 @@ public class ExampleGenerator {
         return result;
     }
 
+    private static String getCacheKey(String xpath, String value, ExampleType exType) {
+        String exTypeLetter = (exType == ExampleType.ENGLISH) ? "E" : "N";
+        return exTypeLetter + xpath + "," + value;
+    }
+
+    /**
+     * Return a cached example without waiting for the pool; otherwise have a member of the pool generate it.
+     */
+    private String getPooledExampleHtml(String xpath, String value, ExampleType exType) {
+        if (cachingIsEnabled) {
+            String result = cache.get(getCacheKey(xpath, value, exType));
+            if (result != null) {
+                return result == NONE ? null : result;
+            }
+        }
+        ExampleGenerator member = pool.borrow();
+        try {
+            return member.getExampleHtml(xpath, value, exType);
+        } finally {
+            pool.release(member);
+        }
+    }
+
     private String handleLabelPattern(XPathParts parts, String value) {
         switch (parts.getAttributeValue(-1, "type")) {
         case "category-list":
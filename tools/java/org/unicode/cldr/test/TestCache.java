@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.unicode.cldr.test.CheckCLDR.CheckStatus;
 import org.unicode.cldr.test.CheckCLDR.Options;
@@ -92,6 +93,30 @@ public class TestCache implements XMLSource.Listener {
 
     private String nameMatcher = null;
 
+    /**
+     * Other caches of per-locale results, to be told of changes along with the TestResultBundle cache
+     */
+    public interface DependentCache {
+        /**
+         * The value has changed for this xpath, in this locale or one of its parents
+         *
+         * @param xpath the xpath
+         * @param locale the CLDRLocale whose results may now be stale
+         */
+        void valueChanged(String xpath, CLDRLocale locale);
+    }
+
+    private final List<DependentCache> dependentCaches = new CopyOnWriteArrayList<DependentCache>();
+
+    /**
+     * Tell the given cache of changes, for each affected locale, after the caches here have been updated.
+     *
+     * @param cache the DependentCache
+     */
+    public void addDependentCache(DependentCache cache) {
+        dependentCaches.add(cache);
+    }
+
     /**
      * Get the bundle for this test
      */
@@ -202,6 +227,12 @@ public class TestCache implements XMLSource.Listener {
          * Update caching for ExampleGenerator
          */
         updateExampleGeneratorCache(xpath, locale);
+        /*
+         * Update other caches that depend on the test results, such as the Survey Tool pages
+         */
+        for (DependentCache cache : dependentCaches) {
+            cache.valueChanged(xpath, locale);
+        }
     }
 
     /**
@@ -254,6 +285,11 @@ public class TestCache implements XMLSource.Listener {
      */
     private static Cache<String, ExampleGenerator> exampleGeneratorCache = CacheBuilder.newBuilder().softValues().build();
 
+    /**
+     * How many examples can be generated at the same time for one locale
+     */
+    private static final int EXAMPLE_GENERATOR_POOL_SIZE = Math.min(8, Runtime.getRuntime().availableProcessors());
+
     /**
      * Get an ExampleGenerator for the given locale, etc.
      *
@@ -263,7 +299,7 @@ public class TestCache implements XMLSource.Listener {
      * @param ourSrc the CLDRFile for the locale
      * @param translationHintsFile the CLDRFile for translation hints (English)
      * @param englishPath (a.k.a. supplementalDataDirectory)
-     * @return the ExampleGenerator
+     * @return the ExampleGenerator, which may be used from several threads at once
      *
      * Called by DataSection.make for use in SurveyTool.
      *
@@ -285,7 +321,8 @@ public class TestCache implements XMLSource.Listener {
             synchronized(exampleGeneratorCache) {
                 eg = exampleGeneratorCache.getIfPresent(locString);
                 if (eg == null) {
-                    eg = new ExampleGenerator(ourSrc, translationHintsFile, englishPath);
+                    eg = ExampleGenerator.getPooledInstance(ourSrc, translationHintsFile, englishPath,
+                        EXAMPLE_GENERATOR_POOL_SIZE);
                     exampleGeneratorCache.put(locString, eg);
                 }
             }
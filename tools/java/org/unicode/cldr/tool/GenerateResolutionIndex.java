@@ -0,0 +1,31 @@
+package org.unicode.cldr.tool;
+
+import java.io.File;
+
+import org.unicode.cldr.util.CLDRPaths;
+import org.unicode.cldr.util.CLDRTool;
+import org.unicode.cldr.util.CldrUtility;
+import org.unicode.cldr.util.SimpleFactory;
+
+/**
+ * Write a ResolutionIndex for each locale, so that later runs with
+ * -DCLDR_RESOLUTION_INDEX_DIR=&lt;dir&gt; can make resolved files without resolving every path.
+ * Indexes are checked against the data they were built from, so stale ones are ignored rather than used.
+ */
+@CLDRTool(alias = "resolutionindex", description = "Precompute resolution indexes. Arguments: [directory [locale regex]]")
+public class GenerateResolutionIndex {
+    public static void main(String[] args) {
+        String dir = args.length > 0 ? args[0]
+            : CldrUtility.getProperty("CLDR_RESOLUTION_INDEX_DIR", CLDRPaths.GEN_DIRECTORY + "resolution-index/");
+        String match = args.length > 1 ? args[1] : ".*";
+        SimpleFactory factory = (SimpleFactory) SimpleFactory.make(CLDRPaths.MAIN_DIRECTORY, match);
+        int count = 0;
+        for (String locale : factory.getAvailable()) {
+            File file = factory.writeResolutionIndex(locale, new File(dir));
+            if (++count % 100 == 0) {
+                System.out.println(count + "\t" + file);
+            }
+        }
+        System.out.println("Wrote " + count + " resolution indexes to " + dir);
+    }
+}
@@ -32,7 +32,6 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -57,6 +56,8 @@ import org.xml.sax.helpers.XMLReaderFactory;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
@@ -1554,7 +1555,7 @@ public class CLDRFile implements Freezable<CLDRFile>, Iterable<String> {
                     // <!ATTLIST version cldrVersion CDATA #FIXED "24" >
                     if (attribute.equals("cldrVersion")
                         && (qName.equals("version"))) {
-                        ((SimpleXMLSource) target.dataSource).setDtdVersionInfo(VersionInfo.getInstance(value));
+                        target.dataSource.setDtdVersionInfo(VersionInfo.getInstance(value));
                     } else {
                         putAndFixDeprecatedAttribute(qName, attribute, value);
                     }
@@ -2820,107 +2821,43 @@ public class CLDRFile implements Freezable<CLDRFile>, Iterable<String> {
     private static class DistinguishedXPath {
 
         public static final String stats() {
-            return "distinguishingMap:" + distinguishingMap.size() + " " +
-                "normalizedPathMap:" + normalizedPathMap.size();
+            return "distinguishingCache:" + distinguishingCache.size() + " " + distinguishingCache.stats();
         }
 
-        private static Map<String, String> distinguishingMap = new ConcurrentHashMap<String, String>();
-        private static Map<String, String> normalizedPathMap = new ConcurrentHashMap<String, String>();
+        /**
+         * Maximum number of full paths whose distinguishing and normalized paths are remembered.
+         * Set with -DCLDR_DISTINGUISHING_CACHE_SIZE=...
+         */
+        private static final int CACHE_SIZE = Integer.parseInt(CldrUtility.getProperty("CLDR_DISTINGUISHING_CACHE_SIZE", "500000"));
 
-        static {
-            distinguishingMap.put("", ""); // seed this to make the code simpler
-        }
+        private static final Cache<String, DistinguishingEntry> distinguishingCache = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .recordStats()
+            .build();
 
         public static String getDistinguishingXPath(String xpath, String[] normalizedPath) {
-            //     synchronized (distinguishingMap) {
-            String result = (String) distinguishingMap.get(xpath);
-            if (result == null) {
-                XPathParts distinguishingParts = XPathParts.getInstance(xpath); // not frozen, for removeAttributes
-
-                DtdType type = distinguishingParts.getDtdData().dtdType;
-                Set<String> toRemove = new HashSet<String>();
-
-                // first clean up draft and alt
-                String draft = null;
-                String alt = null;
-                String references = "";
-                // note: we only need to clean up items that are NOT on the last element,
-                // so we go up to size() - 1.
-
-                // note: each successive item overrides the previous one. That's intended
-
-                for (int i = 0; i < distinguishingParts.size() - 1; ++i) {
-                    if (distinguishingParts.getAttributeCount(i) == 0) {
-                        continue;
-                    }
-                    toRemove.clear();
-                    Map<String, String> attributes = distinguishingParts.getAttributes(i);
-                    for (String attribute : attributes.keySet()) {
-                        if (attribute.equals("draft")) {
-                            draft = (String) attributes.get(attribute);
-                            toRemove.add(attribute);
-                        } else if (attribute.equals("alt")) {
-                            alt = (String) attributes.get(attribute);
-                            toRemove.add(attribute);
-                        } else if (attribute.equals("references")) {
-                            if (references.length() != 0) references += " ";
-                            references += (String) attributes.get("references");
-                            toRemove.add(attribute);
-                        }
-                    }
-                    distinguishingParts.removeAttributes(i, toRemove);
-                }
-                if (draft != null || alt != null || references.length() != 0) {
-                    // get the last element that is not ordered.
-                    int placementIndex = distinguishingParts.size() - 1;
-                    while (true) {
-                        String element = distinguishingParts.getElement(placementIndex);
-                        if (!DtdData.getInstance(type).isOrdered(element)) break;
-                        --placementIndex;
-                    }
-                    if (draft != null) {
-                        distinguishingParts.putAttributeValue(placementIndex, "draft", draft);
-                    }
-                    if (alt != null) {
-                        distinguishingParts.putAttributeValue(placementIndex, "alt", alt);
-                    }
-                    if (references.length() != 0) {
-                        distinguishingParts.putAttributeValue(placementIndex, "references", references);
-                    }
-                    String newXPath = distinguishingParts.toString();
-                    if (!newXPath.equals(xpath)) {
-                        normalizedPathMap.put(xpath, newXPath); // store differences
-                    }
-                }
-
-                // now remove non-distinguishing attributes (if non-inheriting)
-                for (int i = 0; i < distinguishingParts.size(); ++i) {
-                    if (distinguishingParts.getAttributeCount(i) == 0) {
-                        continue;
-                    }
-                    String element = distinguishingParts.getElement(i);
-                    toRemove.clear();
-                    for (String attribute : distinguishingParts.getAttributeKeys(i)) {
-                        if (!isDistinguishing(type, element, attribute)) {
-                            toRemove.add(attribute);
+            DistinguishingEntry entry = distinguishingCache.getIfPresent(xpath);
+            if (entry == null) {
+                if (xpath.isEmpty()) {
+                    entry = new DistinguishingEntry("", "");
+                } else {
+                    String[] normalized = { null };
+                    String distinguishing = XPathParts.getDistinguishingXPath(xpath, normalized);
+                    if (distinguishing != xpath) {
+                        // share one copy of a distinguishing path between the full paths that have it
+                        DistinguishingEntry known = distinguishingCache.getIfPresent(distinguishing);
+                        if (known != null) {
+                            distinguishing = known.distinguishing;
                         }
                     }
-                    distinguishingParts.removeAttributes(i, toRemove);
-                }
-
-                result = distinguishingParts.toString();
-                if (result.equals(xpath)) { // don't save the copy if we don't have to.
-                    result = xpath;
+                    entry = new DistinguishingEntry(distinguishing, normalized[0]);
                 }
-                distinguishingMap.put(xpath, result);
+                distinguishingCache.put(xpath, entry);
             }
             if (normalizedPath != null) {
-                normalizedPath[0] = (String) normalizedPathMap.get(xpath);
-                if (normalizedPath[0] == null) {
-                    normalizedPath[0] = xpath;
-                }
+                normalizedPath[0] = entry.normalized;
             }
-            return result;
+            return entry.distinguishing;
         }
 
         public Map<String, String> getNonDistinguishingAttributes(String fullPath, Map<String, String> result,
@@ -2944,6 +2881,19 @@ public class CLDRFile implements Freezable<CLDRFile>, Iterable<String> {
             }
             return result;
         }
+
+        /**
+         * The distinguishing and normalized paths for a full path.
+         */
+        private static final class DistinguishingEntry {
+            final String distinguishing;
+            final String normalized;
+
+            DistinguishingEntry(String distinguishing, String normalized) {
+                this.distinguishing = distinguishing;
+                this.normalized = normalized;
+            }
+        }
     }
 
     public static class Status {
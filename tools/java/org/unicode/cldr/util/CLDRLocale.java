@@ -2,11 +2,13 @@
 
 package org.unicode.cldr.util;
 
-import java.util.Hashtable;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 
 import com.google.common.cache.Cache;
@@ -19,6 +21,9 @@ import com.ibm.icu.util.ULocale;
  * This class implements a CLDR UTS#35 compliant locale.
  * It differs from ICU and Java locales in that it is singleton based, and that it is Comparable.
  * It uses LocaleIDParser to do the heavy lifting of parsing.
+ * <p>
+ * Instances are immutable, and are kept in a concurrent registry, so getInstance and getParent take no lock.
+ * Each instance also records the registered locales whose parent it is (see getChildren).
  *
  * @author srl
  * @see LocaleIDParser
@@ -217,30 +222,34 @@ public final class CLDRLocale implements Comparable<CLDRLocale> {
     /**
      * Reference to the parent CLDRLocale
      */
-    private CLDRLocale parent = null;
+    private final CLDRLocale parent;
     /**
      * Cached ICU format locale
      */
-    private ULocale ulocale;
+    private final ULocale ulocale;
     /**
      * base name, 'without parameters'. Currently same as fullname.
      */
-    private String basename;
+    private final String basename;
     /**
      * Full name
      */
-    private String fullname;
+    private final String fullname;
     /**
      * The LocaleIDParser interprets the various parts (language, country, script, etc).
      */
-    private LocaleIDParser parts = null;
+    private final LocaleIDParser parts;
+    /**
+     * The registered locales whose parent is this one.
+     */
+    private final Set<CLDRLocale> children = Collections.newSetFromMap(new ConcurrentHashMap<CLDRLocale, Boolean>());
 
     /**
      * Construct a CLDRLocale from an ICU ULocale.
      * Internal, called by the factory function.
      */
     private CLDRLocale(ULocale loc) {
-        init(loc);
+        this(loc.getBaseName(), loc);
     }
 
     /**
@@ -270,31 +279,22 @@ public final class CLDRLocale implements Comparable<CLDRLocale> {
      * @param str
      */
     private CLDRLocale(String str) {
-        init(str);
-    }
-
-    /**
-     * Initialize a CLDRLocale from a ULocale
-     *
-     * @param loc
-     */
-    private void init(ULocale loc) {
-        ulocale = loc;
-        init(loc.getBaseName());
+        this(str, null);
     }
 
     /**
-     * Initialize a CLDRLocale from a string.
+     * Initialize a CLDRLocale from a string, and optionally the ULocale it came from.
      *
      * @param str the string representing a locale.
      *
      * If str is empty, it's equal to ULocale.ROOT.getBaseName(), and we are
      * initializing a CLDRLocale for root.
      */
-    private void init(String str) {
+    private CLDRLocale(String str, ULocale loc) {
         str = process(str);
         if (rootMatches(str)) {
             fullname = ROOT_NAME;
+            parts = null;
             parent = null;
         } else {
             parts = new LocaleIDParser();
@@ -309,9 +309,7 @@ public final class CLDRLocale implements Comparable<CLDRLocale> {
             }
         }
         basename = fullname;
-        if (ulocale == null) {
-            ulocale = new ULocale(fullname);
-        }
+        ulocale = loc == null ? new ULocale(fullname) : loc;
     }
 
     /**
@@ -372,23 +370,26 @@ public final class CLDRLocale implements Comparable<CLDRLocale> {
      * @return
      */
     public static CLDRLocale getInstance(String s) {
-        synchronized(CLDRLocale.class) {
-            if (s == null) {
-                return null;
-            }
-            /*
-             * Normalize variations of ROOT_NAME before checking stringToLoc.
-             */
-            if (rootMatches(s)) {
-                s = ROOT_NAME;
-            }
-            CLDRLocale loc = stringToLoc.get(s);
-            if (loc == null) {
-                loc = new CLDRLocale(s);
-                loc.register();
-            }
+        if (s == null) {
+            return null;
+        }
+        CLDRLocale loc = stringToLoc.get(s);
+        if (loc != null) {
             return loc;
         }
+        /*
+         * Normalize variations of ROOT_NAME before checking stringToLoc.
+         */
+        if (rootMatches(s)) {
+            s = ROOT_NAME;
+        }
+        loc = stringToLoc.get(s);
+        if (loc == null) {
+            loc = new CLDRLocale(s).register();
+            // also remember the id as given, if it isn't canonical, so that the next lookup doesn't parse it again
+            stringToLoc.putIfAbsent(s, loc);
+        }
+        return loc;
     }
 
 
@@ -417,27 +418,43 @@ public final class CLDRLocale implements Comparable<CLDRLocale> {
      * @return the CLDRLocale
      */
     public static CLDRLocale getInstance(ULocale u) {
-        synchronized(CLDRLocale.class) {
-            if (u == null) return null;
-            CLDRLocale loc = ulocToLoc.get(u);
-            if (loc == null) {
-                loc = new CLDRLocale(u);
-                loc.register();
-            }
-            return loc;
+        if (u == null) return null;
+        CLDRLocale loc = ulocToLoc.get(u);
+        if (loc == null) {
+            loc = new CLDRLocale(u).register();
+            ulocToLoc.putIfAbsent(u, loc);
+        }
+        return loc;
+    }
+
+    /**
+     * Register the singleton instance, unless another thread got there first.
+     *
+     * @return the registered instance, which callers must use instead of this one.
+     */
+    private CLDRLocale register() {
+        CLDRLocale existing = stringToLoc.putIfAbsent(fullname, this);
+        if (existing != null) {
+            return existing;
+        }
+        ulocToLoc.putIfAbsent(ulocale, this);
+        if (parent != null) {
+            parent.children.add(this);
         }
+        return this;
     }
 
     /**
-     * Register the singleton instance.
+     * Register the locales ahead of use, so that the parent and child graph is complete for them.
      */
-    private void register() {
-        stringToLoc.put(this.toString(), this);
-        ulocToLoc.put(this.toULocale(), this);
+    public static void registerAll(Iterable<String> localeIds) {
+        for (String localeId : localeIds) {
+            getInstance(localeId);
+        }
     }
 
-    private static Hashtable<String, CLDRLocale> stringToLoc = new Hashtable<String, CLDRLocale>();
-    private static Hashtable<ULocale, CLDRLocale> ulocToLoc = new Hashtable<ULocale, CLDRLocale>();
+    private static final ConcurrentMap<String, CLDRLocale> stringToLoc = new ConcurrentHashMap<String, CLDRLocale>();
+    private static final ConcurrentMap<ULocale, CLDRLocale> ulocToLoc = new ConcurrentHashMap<ULocale, CLDRLocale>();
 
     /**
      * Return the parent locale of this item. Null if no parent (root has no parent)
@@ -448,6 +465,16 @@ public final class CLDRLocale implements Comparable<CLDRLocale> {
         return parent;
     }
 
+    /**
+     * Return the locales registered so far whose parent is this one. Every locale that has been returned by
+     * getInstance is registered.
+     *
+     * @return an unmodifiable, live view
+     */
+    public Set<CLDRLocale> getChildren() {
+        return Collections.unmodifiableSet(children);
+    }
+
     /**
      * Returns true if other is equal to or is an ancestor of this, false otherwise
      */
@@ -0,0 +1,367 @@
+package org.unicode.cldr.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.unicode.cldr.util.XPathParts.Comments;
+
+import com.ibm.icu.util.VersionInfo;
+
+/**
+ * An XMLSource with the same behavior as SimpleXMLSource, but a smaller footprint when many locales are loaded.
+ * <p>
+ * Every distinguishing path is interned once, process-wide, to a small int id; each source then keeps its
+ * values in an open-addressing table keyed by that id, instead of a hash map holding its own String keys and
+ * entry objects. Full paths are stored only where they differ from the distinguishing path, and are interned
+ * as well, since the same full path (typically with a draft or alt attribute) occurs in many locales.
+ * <p>
+ * Reads of a frozen source take no lock. A thawed source synchronizes on itself, so it may be shared between
+ * threads, but it is meant to be filled once and then frozen, as SimpleFactory does.
+ */
+public class CompactXMLSource extends XMLSource {
+    private IntMap values = new IntMap();
+    private IntMap fullPaths = new IntMap();
+    private Comments xpath_comments = new Comments(); // map from paths to comments.
+    private volatile ValuePathIndex VALUE_TO_PATH = null; // built on first use, then kept up to date
+    private Object VALUE_TO_PATH_MUTEX = new Object();
+    private VersionInfo dtdVersionInfo;
+
+    public CompactXMLSource(String localeID) {
+        this.setLocaleID(localeID);
+    }
+
+    /**
+     * Number of distinguishing and full paths interned so far, across all CompactXMLSources.
+     */
+    public static int getInternedPathCount() {
+        return PathIds.size();
+    }
+
+    public String getValueAtDPath(String xpath) {
+        int id = PathIds.peek(xpath);
+        if (id == 0) {
+            return null;
+        }
+        if (locked) {
+            return values.get(id);
+        }
+        synchronized (this) {
+            return values.get(id);
+        }
+    }
+
+    public String getValueAtDPathSkippingInheritanceMarker(String xpath) {
+        String result = getValueAtDPath(xpath);
+        return CldrUtility.INHERITANCE_MARKER.equals(result) ? null : result;
+    }
+
+    public String getFullPathAtDPath(String xpath) {
+        int id = PathIds.peek(xpath);
+        if (id == 0) {
+            return null;
+        }
+        String result;
+        boolean present;
+        if (locked) {
+            result = fullPaths.get(id);
+            present = values.get(id) != null;
+        } else {
+            synchronized (this) {
+                result = fullPaths.get(id);
+                present = values.get(id) != null;
+            }
+        }
+        if (result != null) return result;
+        return present ? xpath : null; // we don't store duplicates
+    }
+
+    public Comments getXpathComments() {
+        return xpath_comments;
+    }
+
+    public void setXpathComments(Comments xpath_comments) {
+        this.xpath_comments = xpath_comments;
+    }
+
+    public void removeValueAtDPath(String distinguishingXPath) {
+        int id = PathIds.peek(distinguishingXPath);
+        if (id == 0) {
+            return;
+        }
+        synchronized (this) {
+            values.remove(id);
+            fullPaths.remove(id);
+        }
+        updateValuePathMapping(distinguishingXPath, null);
+    }
+
+    public Iterator<String> iterator() { // must be unmodifiable or locked
+        if (locked) {
+            return new IdIterator(values.keys);
+        }
+        synchronized (this) {
+            return new IdIterator(values.keysSnapshot());
+        }
+    }
+
+    public XMLSource freeze() {
+        locked = true;
+        return this;
+    }
+
+    public XMLSource cloneAsThawed() {
+        CompactXMLSource result = (CompactXMLSource) super.cloneAsThawed();
+        synchronized (this) {
+            result.values = values.copy();
+            result.fullPaths = fullPaths.copy();
+        }
+        result.xpath_comments = (Comments) result.xpath_comments.clone();
+        result.VALUE_TO_PATH = null;
+        result.VALUE_TO_PATH_MUTEX = new Object();
+        return result;
+    }
+
+    public void putFullPathAtDPath(String distinguishingXPath, String fullxpath) {
+        int id = PathIds.intern(distinguishingXPath);
+        synchronized (this) {
+            if (fullxpath.equals(distinguishingXPath)) {
+                fullPaths.remove(id);
+            } else {
+                fullPaths.put(id, PathIds.get(PathIds.intern(fullxpath)));
+            }
+        }
+    }
+
+    public void putValueAtDPath(String distinguishingXPath, String value) {
+        int id = PathIds.intern(distinguishingXPath);
+        synchronized (this) {
+            values.put(id, value);
+        }
+        updateValuePathMapping(distinguishingXPath, value);
+    }
+
+    private void updateValuePathMapping(String distinguishingXPath, String newValue) {
+        ValuePathIndex index = VALUE_TO_PATH;
+        if (index == null) {
+            synchronized (VALUE_TO_PATH_MUTEX) { // wait for a build in progress, which may have missed this change
+                index = VALUE_TO_PATH;
+            }
+        }
+        if (index != null) {
+            index.put(distinguishingXPath, newValue);
+        }
+    }
+
+    @Override
+    public void getPathsWithValue(String valueToMatch, String pathPrefix, Set<String> result) {
+        ValuePathIndex index = VALUE_TO_PATH;
+        if (index == null) {
+            synchronized (VALUE_TO_PATH_MUTEX) {
+                index = VALUE_TO_PATH;
+                if (index == null) {
+                    VALUE_TO_PATH = index = ValuePathIndex.build(this);
+                }
+            }
+        }
+        index.getPathsWithValue(valueToMatch, pathPrefix, result);
+    }
+
+    @Override
+    public void setDtdVersionInfo(VersionInfo dtdVersionInfo) {
+        this.dtdVersionInfo = dtdVersionInfo;
+    }
+
+    public VersionInfo getDtdVersionInfo() {
+        return dtdVersionInfo;
+    }
+
+    /**
+     * Process-wide registry of interned paths. Ids start at 1, so that 0 can mark an empty slot.
+     * Lookups are lock-free; only the first sighting of a path takes the lock.
+     */
+    private static final class PathIds {
+        private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+        private static volatile String[] paths = new String[1024];
+        private static int count = 0;
+
+        /**
+         * Return the id of the path, or 0 if it has never been interned.
+         */
+        static int peek(String path) {
+            Integer id = ids.get(path);
+            return id == null ? 0 : id;
+        }
+
+        static int intern(String path) {
+            Integer id = ids.get(path);
+            if (id != null) {
+                return id;
+            }
+            synchronized (PathIds.class) {
+                id = ids.get(path);
+                if (id != null) {
+                    return id;
+                }
+                int newId = ++count;
+                String[] current = paths;
+                if (newId >= current.length) {
+                    current = Arrays.copyOf(current, current.length * 2);
+                }
+                current[newId] = path;
+                paths = current; // publish the slot before the id
+                ids.put(path, newId);
+                return newId;
+            }
+        }
+
+        static String get(int id) {
+            return paths[id];
+        }
+
+        static int size() {
+            return ids.size();
+        }
+    }
+
+    /**
+     * Open-addressing map from interned path id to String, with linear probing.
+     * Not synchronized; the enclosing source guards it.
+     */
+    private static final class IntMap {
+        private int[] keys = new int[64];
+        private String[] vals = new String[64];
+        private int size = 0;
+
+        private int home(int key) {
+            return (key * 0x9E3779B9) & (keys.length - 1);
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int i = home(key);
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        String get(int key) {
+            return vals[slot(key)];
+        }
+
+        String put(int key, String value) {
+            int i = slot(key);
+            String old = vals[i];
+            if (keys[i] == 0) {
+                if ((size + 1) * 4 > keys.length * 3) {
+                    rehash(keys.length * 2);
+                    i = slot(key);
+                }
+                keys[i] = key;
+                ++size;
+            }
+            vals[i] = value;
+            return old;
+        }
+
+        String remove(int key) {
+            int i = slot(key);
+            if (keys[i] == 0) {
+                return null;
+            }
+            String old = vals[i];
+            // shift back later entries in the probe run, so that no tombstones are needed
+            int mask = keys.length - 1;
+            int gap = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (keys[j] == 0) {
+                    break;
+                }
+                int home = home(keys[j]);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    vals[gap] = vals[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = 0;
+            vals[gap] = null;
+            --size;
+            return old;
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            String[] oldVals = vals;
+            keys = new int[capacity];
+            vals = new String[capacity];
+            for (int i = 0; i < oldKeys.length; ++i) {
+                if (oldKeys[i] != 0) {
+                    int j = slot(oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    vals[j] = oldVals[i];
+                }
+            }
+        }
+
+        int[] keysSnapshot() {
+            int[] result = new int[size];
+            int n = 0;
+            for (int key : keys) {
+                if (key != 0) {
+                    result[n++] = key;
+                }
+            }
+            return result;
+        }
+
+        IntMap copy() {
+            IntMap result = new IntMap();
+            result.keys = keys.clone();
+            result.vals = vals.clone();
+            result.size = size;
+            return result;
+        }
+    }
+
+    /**
+     * Iterates over the non-empty ids in an array, returning the interned paths.
+     */
+    private static final class IdIterator implements Iterator<String> {
+        private final int[] ids;
+        private int position = 0;
+
+        IdIterator(int[] ids) {
+            this.ids = ids;
+            skipEmpty();
+        }
+
+        private void skipEmpty() {
+            while (position < ids.length && ids[position] == 0) {
+                ++position;
+            }
+        }
+
+        public boolean hasNext() {
+            return position < ids.length;
+        }
+
+        public String next() {
+            if (position >= ids.length) {
+                throw new NoSuchElementException();
+            }
+            String result = PathIds.get(ids[position++]);
+            skipEmpty();
+            return result;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -295,8 +295,8 @@ public abstract class Factory implements SublocaleProvider {
      */
     public Set<CLDRLocale> calculateSubLocalesOf(CLDRLocale locale, Set<CLDRLocale> available) {
         Set<CLDRLocale> sub = new TreeSet<CLDRLocale>();
-        for (CLDRLocale l : available) {
-            if (l.getParent() == locale) {
+        for (CLDRLocale l : locale.getChildren()) { // every available locale is registered, so this covers them
+            if (available.contains(l)) {
                 sub.add(l);
             }
         }
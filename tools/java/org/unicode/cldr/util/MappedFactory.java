@@ -0,0 +1,537 @@
+package org.unicode.cldr.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.unicode.cldr.util.CLDRFile.DraftStatus;
+import org.unicode.cldr.util.XPathParts.Comments;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.ibm.icu.util.ICUUncheckedIOException;
+import com.ibm.icu.util.VersionInfo;
+
+/**
+ * A Factory whose unresolved files all live in a single memory-mapped data file, built once from the XML
+ * of a set of directories.
+ * <p>
+ * Paths and values are not copied onto the heap: each locale is a sorted run of (path, value, full path)
+ * string ids in the mapping, and a path is found through a hash table that is also in the mapping.
+ * The operating system pages in what is used, so opening every locale costs only a few objects per locale,
+ * and making a file again costs nothing. Resolved files are built on top in the usual way, and cached.
+ * <p>
+ * The data file records a fingerprint of the XML files it was built from; {@link #make} rebuilds it when they change.
+ * Comments are not kept. Files are read-only; cloneAsThawed gives an ordinary editable copy.
+ */
+public class MappedFactory extends Factory {
+    private static final int MAGIC = 0x434c4d46; // "CLMF"
+    /**
+     * Increment when the file format, or the way XML is turned into paths and values, changes.
+     */
+    private static final int VERSION = 1;
+    private static final int NONE = -1;
+    private static final int HEADER_SIZE = 32;
+    private static final int LOCALE_RECORD_SIZE = 5 * 4;
+    private static final int ENTRY_SIZE = 3 * 4;
+    private static final int RESOLVED_CACHE_LIMIT = 75;
+
+    private final SimpleFactory sourceFactory;
+    private final DraftStatus minimalDraftStatus;
+    private final ByteBuffer data;
+    private final int stringOffsetsPosition;
+    private final int pathTablePosition;
+    private final int pathTableMask;
+    private final Map<String, MappedSource> sources;
+    private final ConcurrentHashMap<String, CLDRFile> unresolvedFiles = new ConcurrentHashMap<String, CLDRFile>();
+    private final Cache<String, CLDRFile> resolvedFiles = CacheBuilder.newBuilder().maximumSize(RESOLVED_CACHE_LIMIT).build();
+
+    /**
+     * Open a factory for the directories, (re)building the data file first if it is missing or out of date.
+     *
+     * @param dataFile
+     * @param sourceDirectories
+     * @param matchString
+     * @param minimalDraftStatus
+     * @return
+     */
+    public static MappedFactory make(File dataFile, File sourceDirectories[], String matchString, DraftStatus minimalDraftStatus) {
+        SimpleFactory sourceFactory = (SimpleFactory) SimpleFactory.make(sourceDirectories, matchString, minimalDraftStatus);
+        long fingerprint = getFingerprint(sourceFactory);
+        MappedFactory result = open(dataFile, sourceFactory, fingerprint);
+        if (result == null) {
+            write(sourceFactory, fingerprint, dataFile);
+            result = open(dataFile, sourceFactory, fingerprint);
+            if (result == null) {
+                throw new ICUUncheckedIOException("Can't read back " + dataFile);
+            }
+        }
+        return result;
+    }
+
+    private static long getFingerprint(SimpleFactory sourceFactory) {
+        long result = sourceFactory.getMinimalDraftStatus().ordinal();
+        for (String locale : new TreeSet<String>(sourceFactory.getAvailable())) {
+            result = SimpleFactory.addFileFingerprint(result, locale, sourceFactory.getSourceDirectoriesForLocale(locale));
+        }
+        return result;
+    }
+
+    /**
+     * @return the factory, or null if the data file doesn't exist or was built from different data.
+     */
+    private static MappedFactory open(File dataFile, SimpleFactory sourceFactory, long fingerprint) {
+        if (!dataFile.canRead()) {
+            return null;
+        }
+        ByteBuffer data;
+        try (RandomAccessFile raf = new RandomAccessFile(dataFile, "r");
+            FileChannel channel = raf.getChannel()) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new ICUUncheckedIOException("Can't map " + dataFile, e);
+        }
+        if (data.capacity() < HEADER_SIZE
+            || data.getInt(0) != MAGIC || data.getInt(4) != VERSION || data.getLong(8) != fingerprint) {
+            return null;
+        }
+        return new MappedFactory(sourceFactory, data);
+    }
+
+    private MappedFactory(SimpleFactory sourceFactory, ByteBuffer data) {
+        this.sourceFactory = sourceFactory;
+        this.data = data;
+        minimalDraftStatus = DraftStatus.values()[data.getInt(16)];
+        int stringCount = data.getInt(20);
+        int pathTableCapacity = data.getInt(24);
+        int localeCount = data.getInt(28);
+        stringOffsetsPosition = HEADER_SIZE;
+        pathTablePosition = stringOffsetsPosition + 4 * stringCount;
+        pathTableMask = pathTableCapacity - 1;
+        int localeTablePosition = pathTablePosition + 4 * pathTableCapacity;
+
+        Map<String, MappedSource> sources = new LinkedHashMap<String, MappedSource>();
+        for (int i = 0; i < localeCount; ++i) {
+            int record = localeTablePosition + i * LOCALE_RECORD_SIZE;
+            String localeID = getString(data.getInt(record));
+            int dtdVersion = data.getInt(record + 4);
+            MappedSource source = new MappedSource(this, localeID,
+                dtdVersion == NONE ? null : VersionInfo.getInstance(getString(dtdVersion)),
+                data.getInt(record + 8) != 0, data.getInt(record + 12), data.getInt(record + 16));
+            sources.put(localeID, source);
+        }
+        this.sources = Collections.unmodifiableMap(sources);
+        setSupplementalDirectory(sourceFactory.getSupplementalDirectory());
+    }
+
+    @Override
+    public File[] getSourceDirectories() {
+        return sourceFactory.getSourceDirectories();
+    }
+
+    @Override
+    public List<File> getSourceDirectoriesForLocale(String localeName) {
+        return sourceFactory.getSourceDirectoriesForLocale(localeName);
+    }
+
+    @Override
+    public DraftStatus getMinimalDraftStatus() {
+        return minimalDraftStatus;
+    }
+
+    @Override
+    protected Set<String> handleGetAvailable() {
+        return sources.keySet();
+    }
+
+    @Override
+    protected CLDRFile handleMake(String localeID, boolean resolved, DraftStatus madeWithMinimalDraftStatus) {
+        if (madeWithMinimalDraftStatus != minimalDraftStatus) {
+            throw new IllegalArgumentException("Data was built for " + minimalDraftStatus + ", not " + madeWithMinimalDraftStatus);
+        }
+        if (resolved) {
+            CLDRFile result = resolvedFiles.getIfPresent(localeID);
+            if (result == null) {
+                result = new CLDRFile(makeResolvingSource(localeID, madeWithMinimalDraftStatus));
+                resolvedFiles.put(localeID, result);
+            }
+            return result;
+        }
+        CLDRFile result = unresolvedFiles.get(localeID);
+        if (result == null) {
+            MappedSource source = sources.get(localeID);
+            if (source == null) {
+                throw new SimpleFactory.NoSourceDirectoryException(localeID);
+            }
+            result = new CLDRFile(source).freeze();
+            CLDRFile old = unresolvedFiles.putIfAbsent(localeID, result);
+            if (old != null) {
+                result = old;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "{" + getClass().getName() + " dirs=" + Arrays.asList(getSourceDirectories()) + "}";
+    }
+
+    // ---- reading the mapping; absolute gets only, so that threads can share the buffer
+
+    String getString(int id) {
+        int offset = data.getInt(stringOffsetsPosition + 4 * id);
+        int length = data.getInt(offset);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = data.get(offset + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the string id of the path, or NONE if no locale has it.
+     */
+    int findPath(String path) {
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        for (int slot = hash(path) & pathTableMask;; slot = (slot + 1) & pathTableMask) {
+            int id = data.getInt(pathTablePosition + 4 * slot) - 1;
+            if (id == NONE) {
+                return NONE;
+            }
+            if (stringEquals(id, bytes)) {
+                return id;
+            }
+        }
+    }
+
+    private boolean stringEquals(int id, byte[] bytes) {
+        int offset = data.getInt(stringOffsetsPosition + 4 * id);
+        if (data.getInt(offset) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; ++i) {
+            if (data.get(offset + 4 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String path) {
+        int h = path.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // ---- building the data file
+
+    /**
+     * Write the unresolved files of the source factory to a data file.
+     */
+    private static void write(SimpleFactory sourceFactory, long fingerprint, File dataFile) {
+        Map<String, Integer> stringIds = new HashMap<String, Integer>();
+        List<byte[]> strings = new ArrayList<byte[]>();
+        BitSet pathIds = new BitSet();
+        List<int[]> localeRecords = new ArrayList<int[]>();
+        List<int[][]> localeEntries = new ArrayList<int[][]>();
+        long entryTotal = 0;
+        for (String localeID : new TreeSet<String>(sourceFactory.getAvailable())) {
+            XMLSource source = sourceFactory.make(localeID, false).dataSource;
+            List<int[]> entries = new ArrayList<int[]>();
+            for (String path : source) {
+                String value = source.getValueAtDPath(path);
+                if (value == null) {
+                    continue;
+                }
+                String fullPath = source.getFullPathAtDPath(path);
+                int pathId = addString(path, stringIds, strings);
+                pathIds.set(pathId);
+                entries.add(new int[] { pathId, addString(value, stringIds, strings),
+                    fullPath == null || fullPath.equals(path) ? NONE : addString(fullPath, stringIds, strings) });
+            }
+            Collections.sort(entries, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] o1, int[] o2) {
+                    return Integer.compare(o1[0], o2[0]);
+                }
+            });
+            VersionInfo dtdVersion = source.getDtdVersionInfo();
+            localeRecords.add(new int[] {
+                addString(localeID, stringIds, strings),
+                dtdVersion == null ? NONE : addString(dtdVersion.toString(), stringIds, strings),
+                source.isNonInheriting() ? 1 : 0 });
+            localeEntries.add(entries.toArray(new int[entries.size()][]));
+            entryTotal += entries.size();
+        }
+
+        // open-addressing table of path ids (+1, so that 0 is empty), at most half full
+        int capacity = Integer.highestOneBit(Math.max(1, pathIds.cardinality()) * 2) * 2;
+        int[] pathTable = new int[capacity];
+        for (int id = pathIds.nextSetBit(0); id >= 0; id = pathIds.nextSetBit(id + 1)) {
+            int slot = hash(new String(strings.get(id), StandardCharsets.UTF_8)) & (capacity - 1);
+            while (pathTable[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            pathTable[slot] = id + 1;
+        }
+
+        long localeTablePosition = HEADER_SIZE + 4L * strings.size() + 4L * capacity;
+        long entriesPosition = localeTablePosition + (long) LOCALE_RECORD_SIZE * localeRecords.size();
+        long stringsPosition = entriesPosition + ENTRY_SIZE * entryTotal;
+        long end = stringsPosition;
+        for (byte[] bytes : strings) {
+            end += 4 + bytes.length;
+        }
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Data too large to map: " + end + " bytes");
+        }
+
+        File parent = dataFile.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File temp;
+        try {
+            temp = File.createTempFile(dataFile.getName(), ".tmp", parent);
+        } catch (IOException e) {
+            throw new ICUUncheckedIOException("Can't write " + dataFile, e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(sourceFactory.getMinimalDraftStatus().ordinal());
+            out.writeInt(strings.size());
+            out.writeInt(capacity);
+            out.writeInt(localeRecords.size());
+            int offset = (int) stringsPosition;
+            for (byte[] bytes : strings) {
+                out.writeInt(offset);
+                offset += 4 + bytes.length;
+            }
+            for (int slot : pathTable) {
+                out.writeInt(slot);
+            }
+            int position = (int) entriesPosition;
+            for (int i = 0; i < localeRecords.size(); ++i) {
+                int[] record = localeRecords.get(i);
+                out.writeInt(record[0]);
+                out.writeInt(record[1]);
+                out.writeInt(record[2]);
+                out.writeInt(localeEntries.get(i).length);
+                out.writeInt(position);
+                position += ENTRY_SIZE * localeEntries.get(i).length;
+            }
+            for (int[][] entries : localeEntries) {
+                for (int[] entry : entries) {
+                    out.writeInt(entry[0]);
+                    out.writeInt(entry[1]);
+                    out.writeInt(entry[2]);
+                }
+            }
+            for (byte[] bytes : strings) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw new ICUUncheckedIOException("Can't write " + dataFile, e);
+        }
+        // replace atomically, so that a process that has the old file mapped keeps a consistent view
+        if (!temp.renameTo(dataFile)) {
+            dataFile.delete();
+            if (!temp.renameTo(dataFile)) {
+                temp.delete();
+                throw new ICUUncheckedIOException("Can't rename " + temp + " to " + dataFile);
+            }
+        }
+    }
+
+    private static int addString(String string, Map<String, Integer> stringIds, List<byte[]> strings) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(string, id);
+            strings.add(string.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    /**
+     * Read-only XMLSource over one locale's run of entries in the mapping.
+     */
+    private static final class MappedSource extends XMLSource {
+        private final MappedFactory factory;
+        private final VersionInfo dtdVersionInfo;
+        private final int entryCount;
+        private final int entriesPosition;
+        private final Comments comments = new Comments();
+        private volatile ValuePathIndex valueToPath = null; // built on first use; the source never changes
+        private final Object valueToPathMutex = new Object();
+
+        MappedSource(MappedFactory factory, String localeID, VersionInfo dtdVersionInfo, boolean nonInheriting,
+            int entryCount, int entriesPosition) {
+            this.factory = factory;
+            this.dtdVersionInfo = dtdVersionInfo;
+            this.entryCount = entryCount;
+            this.entriesPosition = entriesPosition;
+            setLocaleID(localeID);
+            setNonInheriting(nonInheriting);
+            locked = true;
+        }
+
+        /**
+         * @return the position of the entry for the path, or NONE
+         */
+        private int findEntry(String path) {
+            int pathId = factory.findPath(path);
+            if (pathId == NONE) {
+                return NONE;
+            }
+            int low = 0;
+            int high = entryCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int position = entriesPosition + mid * ENTRY_SIZE;
+                int midId = factory.data.getInt(position);
+                if (midId < pathId) {
+                    low = mid + 1;
+                } else if (midId > pathId) {
+                    high = mid - 1;
+                } else {
+                    return position;
+                }
+            }
+            return NONE;
+        }
+
+        @Override
+        public String getValueAtDPath(String path) {
+            int position = findEntry(path);
+            return position == NONE ? null : factory.getString(factory.data.getInt(position + 4));
+        }
+
+        @Override
+        public String getFullPathAtDPath(String path) {
+            int position = findEntry(path);
+            if (position == NONE) {
+                return null;
+            }
+            int fullPath = factory.data.getInt(position + 8);
+            return fullPath == NONE ? path : factory.getString(fullPath);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < entryCount;
+                }
+
+                @Override
+                public String next() {
+                    if (index >= entryCount) {
+                        throw new NoSuchElementException();
+                    }
+                    return factory.getString(factory.data.getInt(entriesPosition + ENTRY_SIZE * index++));
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public void getPathsWithValue(String valueToMatch, String pathPrefix, Set<String> result) {
+            // only locales that are searched pay for an index on the heap
+            ValuePathIndex index = valueToPath;
+            if (index == null) {
+                synchronized (valueToPathMutex) {
+                    index = valueToPath;
+                    if (index == null) {
+                        valueToPath = index = ValuePathIndex.build(this);
+                    }
+                }
+            }
+            index.getPathsWithValue(valueToMatch, pathPrefix, result);
+        }
+
+        @Override
+        public VersionInfo getDtdVersionInfo() {
+            return dtdVersionInfo;
+        }
+
+        @Override
+        public Comments getXpathComments() {
+            return comments;
+        }
+
+        @Override
+        public void setXpathComments(Comments comments) {
+            throw new UnsupportedOperationException("Mapped CLDRFiles are read-only");
+        }
+
+        @Override
+        public void putFullPathAtDPath(String distinguishingXPath, String fullxpath) {
+            throw new UnsupportedOperationException("Mapped CLDRFiles are read-only");
+        }
+
+        @Override
+        public void putValueAtDPath(String distinguishingXPath, String value) {
+            throw new UnsupportedOperationException("Mapped CLDRFiles are read-only");
+        }
+
+        @Override
+        public void removeValueAtDPath(String distinguishingXPath) {
+            throw new UnsupportedOperationException("Mapped CLDRFiles are read-only");
+        }
+
+        @Override
+        public XMLSource freeze() {
+            return this;
+        }
+
+        /**
+         * Copy into an editable SimpleXMLSource.
+         */
+        @Override
+        public XMLSource cloneAsThawed() {
+            SimpleXMLSource result = new SimpleXMLSource(getLocaleID());
+            for (int i = 0; i < entryCount; ++i) {
+                int position = entriesPosition + ENTRY_SIZE * i;
+                String path = factory.getString(factory.data.getInt(position));
+                result.putValueAtDPath(path, factory.getString(factory.data.getInt(position + 4)));
+                int fullPath = factory.data.getInt(position + 8);
+                if (fullPath != NONE) {
+                    result.putFullPathAtDPath(path, factory.getString(fullPath));
+                }
+            }
+            result.setDtdVersionInfo(dtdVersionInfo);
+            result.setNonInheriting(isNonInheriting());
+            return result;
+        }
+    }
+}
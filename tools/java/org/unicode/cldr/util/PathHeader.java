@@ -2,7 +2,6 @@ package org.unicode.cldr.util;
 
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -15,6 +14,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -22,6 +23,7 @@ import org.unicode.cldr.draft.ScriptMetadata;
 import org.unicode.cldr.draft.ScriptMetadata.Info;
 import org.unicode.cldr.tool.LikelySubtags;
 import org.unicode.cldr.util.RegexLookup.Finder;
+import org.unicode.cldr.util.RegexLookup.LookupType;
 import org.unicode.cldr.util.With.SimpleIterator;
 
 import com.google.common.base.Splitter;
@@ -346,9 +348,8 @@ public class PathHeader implements Comparable<PathHeader> {
     private final SubstringOrder codeSuborder;
 
     static final Pattern SEMI = PatternCache.get("\\s*;\\s*");
-    static final Matcher ALT_MATCHER = PatternCache.get(
-        "\\[@alt=\"([^\"]*+)\"]")
-        .matcher("");
+    static final Pattern ALT_PATTERN = PatternCache.get(
+        "\\[@alt=\"([^\"]*+)\"]");
 
     static final Collator alphabetic = CLDRConfig.getInstance().getCollatorRoot();
 
@@ -600,31 +601,24 @@ public class PathHeader implements Comparable<PathHeader> {
 
     public static class Factory implements Transform<String, PathHeader> {
         static final RegexLookup<RawData> lookup = RegexLookup
-            .of(new PathHeaderTransform())
-            .setPatternTransform(
-                RegexLookup.RegexFinderTransformPath)
+            .<RawData> of(LookupType.PREFIX_TRIE_LOOKUP, RegexLookup.RegexFinderTransformPath)
+            .setValueTransform(new PathHeaderTransform())
             .loadFromFile(
                 PathHeader.class,
                 "data/PathHeader.txt");
         // synchronized with lookup
-        static final Output<String[]> args = new Output<String[]>();
-        // synchronized with lookup
         static final Counter<RawData> counter = new Counter<RawData>();
         // synchronized with lookup
         static final Map<RawData, String> samples = new HashMap<RawData, String>();
-        // synchronized with lookup
+        // synchronized with lookup; set as a side effect of the functions called by fix()
         static int order;
         static SubstringOrder suborder;
 
-        static final Map<String, PathHeader> cache = new HashMap<String, PathHeader>();
-        // synchronized with cache
-        static final Map<SectionId, Map<PageId, SectionPage>> sectionToPageToSectionPage = new EnumMap<SectionId, Map<PageId, SectionPage>>(
-            SectionId.class);
-        static final Relation<SectionPage, String> sectionPageToPaths = Relation
-            .of(new TreeMap<SectionPage, Set<String>>(),
-                HashSet.class);
+        // read-mostly: once every path has been seen, fromPath never locks
+        static final ConcurrentMap<String, PathHeader> cache = new ConcurrentHashMap<String, PathHeader>();
+        static final ConcurrentMap<SectionPage, Set<String>> sectionPageToPaths = new ConcurrentHashMap<SectionPage, Set<String>>();
         private static CLDRFile englishFile;
-        private Set<String> matchersFound = new HashSet<String>();
+        private Set<String> matchersFound = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
         /**
          * Create a factory for creating PathHeaders.
@@ -656,9 +650,7 @@ public class PathHeader implements Comparable<PathHeader> {
          * Use only when trying to find unmatched patterns
          */
         public void clearCache() {
-            synchronized (cache) {
-                cache.clear();
-            }
+            cache.clear();
         }
 
         /**
@@ -683,80 +675,78 @@ public class PathHeader implements Comparable<PathHeader> {
             if (path == null) {
                 throw new NullPointerException("Path cannot be null");
             }
-            synchronized (cache) {
-                PathHeader old = cache.get(path);
-                if (old != null) {
-                    return old;
-                }
+            PathHeader old = cache.get(path);
+            if (old != null) {
+                return old;
             }
-            synchronized (lookup) {
-                String cleanPath = path;
-                // special handling for alt
-                String alt = null;
-                int altPos = cleanPath.indexOf("[@alt=");
-                if (altPos >= 0 && !cleanPath.endsWith("/symbol[@alt=\"narrow\"]")) {
-                    if (ALT_MATCHER.reset(cleanPath).find()) {
-                        alt = ALT_MATCHER.group(1);
-                        cleanPath = cleanPath.substring(0, ALT_MATCHER.start())
-                            + cleanPath.substring(ALT_MATCHER.end());
-                        int pos = alt.indexOf("proposed");
-                        if (pos >= 0 && !path.startsWith("//ldml/collations")) {
-                            alt = pos == 0 ? null : alt.substring(0, pos - 1);
-                            // drop "proposed",
-                            // change "xxx-proposed" to xxx.
-                        }
-                    } else {
-                        throw new IllegalArgumentException();
+            String cleanPath = path;
+            // special handling for alt
+            String alt = null;
+            int altPos = cleanPath.indexOf("[@alt=");
+            if (altPos >= 0 && !cleanPath.endsWith("/symbol[@alt=\"narrow\"]")) {
+                Matcher altMatcher = ALT_PATTERN.matcher(cleanPath);
+                if (altMatcher.find()) {
+                    alt = altMatcher.group(1);
+                    cleanPath = cleanPath.substring(0, altMatcher.start())
+                        + cleanPath.substring(altMatcher.end());
+                    int pos = alt.indexOf("proposed");
+                    if (pos >= 0 && !path.startsWith("//ldml/collations")) {
+                        alt = pos == 0 ? null : alt.substring(0, pos - 1);
+                        // drop "proposed",
+                        // change "xxx-proposed" to xxx.
                     }
+                } else {
+                    throw new IllegalArgumentException();
                 }
-                Output<Finder> matcherFound = new Output<Finder>();
-                RawData data = lookup.get(cleanPath, null, args, matcherFound, failures);
-                if (data == null) {
-                    return null;
-                }
-                matchersFound.add(matcherFound.value.toString());
+            }
+            // the regex matching is thread-safe, so only the functions (which pass the order back statically) lock
+            Output<String[]> args = new Output<String[]>();
+            Output<Finder> matcherFound = new Output<Finder>();
+            RawData data = lookup.get(cleanPath, null, args, matcherFound, failures);
+            if (data == null) {
+                return null;
+            }
+            matchersFound.add(matcherFound.value.toString());
+            PathHeader result;
+            synchronized (lookup) {
                 counter.add(data, 1);
                 if (!samples.containsKey(data)) {
                     samples.put(data, cleanPath);
                 }
                 try {
-                    PathHeader result = new PathHeader(
-                        SectionId.forString(fix(data.section, 0)),
-                        PageId.forString(fix(data.page, 0)),
-                        fix(data.header, data.headerOrder),
+                    result = new PathHeader(
+                        SectionId.forString(fix(data.section, 0, args.value)),
+                        PageId.forString(fix(data.page, 0, args.value)),
+                        fix(data.header, data.headerOrder, args.value),
                         order, // only valid after call to fix. TODO, make
                         // this cleaner
-                        fix(data.code + (alt == null ? "" : ("-" + alt)), data.codeOrder),
+                        fix(data.code + (alt == null ? "" : ("-" + alt)), data.codeOrder, args.value),
                         order, // only valid after call to fix
                         suborder,
                         data.status,
                         path);
-                    synchronized (cache) {
-                        PathHeader old = cache.get(path);
-                        if (old == null) {
-                            cache.put(path, result);
-                        } else {
-                            result = old;
-                        }
-                        Map<PageId, SectionPage> pageToPathHeaders = sectionToPageToSectionPage
-                            .get(result.sectionId);
-                        if (pageToPathHeaders == null) {
-                            sectionToPageToSectionPage.put(result.sectionId, pageToPathHeaders = new EnumMap<PageId, SectionPage>(PageId.class));
-                        }
-                        SectionPage sectionPage = pageToPathHeaders.get(result.pageId);
-                        if (sectionPage == null) {
-                            sectionPage = new SectionPage(result.sectionId, result.pageId);
-                            pageToPathHeaders.put(result.pageId, sectionPage);
-                        }
-                        sectionPageToPaths.put(sectionPage, path);
-                    }
-                    return result;
                 } catch (Exception e) {
                     throw new IllegalArgumentException(
                         "Probably mismatch in Page/Section enum, or too few capturing groups in regex for " + path,
                         e);
                 }
             }
+            // if another thread got there first, use its header so that callers all see the same instance
+            old = cache.putIfAbsent(path, result);
+            if (old != null) {
+                result = old;
+            }
+            SectionPage sectionPage = new SectionPage(result.sectionId, result.pageId);
+            Set<String> paths = sectionPageToPaths.get(sectionPage);
+            if (paths == null) {
+                Set<String> newPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                paths = sectionPageToPaths.putIfAbsent(sectionPage, newPaths);
+                if (paths == null) {
+                    paths = newPaths;
+                }
+            }
+            paths.add(path);
+            return result;
         }
 
         private static class SectionPage implements Comparable<SectionPage> {
@@ -785,12 +775,10 @@ public class PathHeader implements Comparable<PathHeader> {
 
             @Override
             public boolean equals(Object obj) {
-                PathHeader other;
-                try {
-                    other = (PathHeader) obj;
-                } catch (Exception e) {
+                if (!(obj instanceof SectionPage)) {
                     return false;
                 }
+                SectionPage other = (SectionPage) obj;
                 return sectionId == other.sectionId && pageId == other.pageId;
             }
 
@@ -819,17 +807,8 @@ public class PathHeader implements Comparable<PathHeader> {
          */
         public static Set<String> getCachedPaths(SectionId sectionId, PageId page) {
             Set<String> target = new HashSet<String>();
-            synchronized (cache) {
-                Map<PageId, SectionPage> pageToSectionPage = sectionToPageToSectionPage
-                    .get(sectionId);
-                if (pageToSectionPage == null) {
-                    return target;
-                }
-                SectionPage sectionPage = pageToSectionPage.get(page);
-                if (sectionPage == null) {
-                    return target;
-                }
-                Set<String> set = sectionPageToPaths.getAll(sectionPage);
+            Set<String> set = sectionPageToPaths.get(new SectionPage(sectionId, page));
+            if (set != null) {
                 target.addAll(set);
             }
             return target;
@@ -1827,14 +1806,15 @@ public class PathHeader implements Comparable<PathHeader> {
          *
          * @param input
          * @param order
+         * @param args the groups matched by the lookup
          * @return
          */
-        private static String fix(String input, int orderIn) {
+        private static String fix(String input, int orderIn, String[] args) {
             if (input.contains("👱")) {
                 int debug = 0;
             }
             String oldInput = input;
-            input = RegexLookup.replace(input, args.value);
+            input = RegexLookup.replace(input, args);
             order = orderIn;
             suborder = null;
             int pos = 0;
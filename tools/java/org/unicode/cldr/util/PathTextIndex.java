@@ -0,0 +1,134 @@
+package org.unicode.cldr.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index from paths to a text each (such as a value, or a PathHeader code), for finding the paths whose
+ * text contains, or starts with, a query. Texts and queries are compared after SimpleXMLSource.normalize,
+ * so case, spaces and most punctuation are ignored.
+ * <p>
+ * Each text is indexed by its trigrams, so that a query of three or more characters only checks the paths
+ * having its rarest trigram; shorter queries check every path. Lookups may run concurrently with put.
+ */
+public final class PathTextIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final ConcurrentHashMap<String, String> pathToText = new ConcurrentHashMap<String, String>();
+    private final ConcurrentHashMap<String, Set<String>> gramToPaths = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Set the text of the path, replacing any earlier one; null (or the inheritance marker) removes the path.
+     */
+    public synchronized void put(String path, String text) {
+        String key = text == null || CldrUtility.INHERITANCE_MARKER.equals(text) ? null : SimpleXMLSource.normalize(text);
+        if (key != null && key.isEmpty()) {
+            key = null; // nothing to find
+        }
+        String oldKey = key == null ? pathToText.remove(path) : pathToText.put(path, key);
+        if (key != null && key.equals(oldKey)) {
+            return;
+        }
+        Set<String> oldGrams = grams(oldKey);
+        Set<String> newGrams = grams(key);
+        for (String gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                // empty sets are left in place, as in ValuePathIndex
+                Set<String> paths = gramToPaths.get(gram);
+                if (paths != null) {
+                    paths.remove(path);
+                }
+            }
+        }
+        for (String gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                Set<String> paths = gramToPaths.get(gram);
+                if (paths == null) {
+                    Set<String> newPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                    paths = gramToPaths.putIfAbsent(gram, newPaths);
+                    if (paths == null) {
+                        paths = newPaths;
+                    }
+                }
+                paths.add(path);
+            }
+        }
+    }
+
+    /**
+     * Get the normalized text of the path, or null if there is none.
+     */
+    public String getText(String path) {
+        return pathToText.get(path);
+    }
+
+    public int size() {
+        return pathToText.size();
+    }
+
+    /**
+     * Add the paths whose text contains the query (or with prefixOnly, starts with it), up to a limit.
+     *
+     * @param query the text to look for; if it normalizes to nothing, no paths are added
+     * @param prefixOnly true to only find texts starting with the query
+     * @param limit the most paths to add
+     * @param result the set to add to; paths already in it don't count toward the limit
+     * @return the number of paths added
+     */
+    public int search(String query, boolean prefixOnly, int limit, Collection<String> result) {
+        return search(query, prefixOnly, null, limit, result);
+    }
+
+    /**
+     * Add the paths among the given ones whose text contains the query (or with prefixOnly, starts with it), up to a limit.
+     *
+     * @param within the paths to look at, or null for all; other paths don't count toward the limit
+     */
+    public int search(String query, boolean prefixOnly, Set<String> within, int limit, Collection<String> result) {
+        String key = SimpleXMLSource.normalize(query);
+        if (key.isEmpty() || limit <= 0) {
+            return 0;
+        }
+        Iterable<String> candidates;
+        if (key.length() < GRAM_LENGTH) {
+            candidates = pathToText.keySet();
+        } else {
+            Set<String> rarest = null;
+            for (String gram : grams(key)) {
+                Set<String> paths = gramToPaths.get(gram);
+                if (paths == null || paths.isEmpty()) {
+                    return 0;
+                }
+                if (rarest == null || paths.size() < rarest.size()) {
+                    rarest = paths;
+                }
+            }
+            candidates = rarest;
+        }
+        int count = 0;
+        for (String path : candidates) {
+            String text = pathToText.get(path);
+            if (text != null && (prefixOnly ? text.startsWith(key) : text.contains(key))
+                && (within == null || within.contains(path)) && result.add(path)) {
+                if (++count >= limit) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Set<String> grams(String key) {
+        if (key == null || key.length() < GRAM_LENGTH) {
+            return Collections.emptySet();
+        }
+        Set<String> result = new HashSet<String>();
+        for (int i = 0; i + GRAM_LENGTH <= key.length(); ++i) {
+            result.add(key.substring(i, i + GRAM_LENGTH));
+        }
+        return result;
+    }
+}
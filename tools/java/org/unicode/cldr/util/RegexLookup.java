@@ -1,6 +1,7 @@
 package org.unicode.cldr.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -26,7 +27,8 @@ import com.ibm.icu.util.Output;
 
 /**
  * Lookup items according to a set of regex patterns. Returns the value according to the first pattern that matches. Not
- * thread-safe.
+ * thread-safe while being built; once loaded, lookups (get, getAll) can be called from multiple threads, as long as the
+ * Finders are themselves thread-safe (RegexFinder is).
  *
  * @param <T>
  */
@@ -43,7 +45,7 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
     private static PathStarrer pathStarrer = new PathStarrer().setSubstitutionPattern("*");
 
     public enum LookupType {
-        STAR_PATTERN_LOOKUP, OPTIMIZED_DIRECTORY_PATTERN_LOOKUP, STANDARD
+        STAR_PATTERN_LOOKUP, OPTIMIZED_DIRECTORY_PATTERN_LOOKUP, STANDARD, PREFIX_TRIE_LOOKUP
     };
 
     private LookupType _lookupType;
@@ -68,6 +70,17 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
      * However regex's no longer need to follow any specific format (Slower but more versatile).
      */
 
+    /*
+     * PREFIX_TRIE_LOOKUP
+     *
+     * All the patterns are compiled into a single trie of their literal prefixes (the text after the ^ anchor, up to the
+     * first regex construct). A lookup walks the trie once along the source, and only tries the patterns whose literal
+     * prefix matches, plus those without one (the residual patterns), in the order they were added.
+     * The results are the same as STANDARD: the first pattern added that matches, with its arguments.
+     * The cost depends on the length of the source and the number of patterns sharing its prefix, not the number of
+     * patterns stored.
+     */
+
     public RegexLookup(LookupType type) {
         _lookupType = type;
         switch (type) {
@@ -79,6 +92,9 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
             //   RTEntries = new RegexTree<T>();
             storage = new RegexTree<T>();
             break;
+        case PREFIX_TRIE_LOOKUP:
+            storage = new PrefixTrieMap<T>();
+            break;
         default:
             MEntries = new LinkedHashMap<Finder, T>();
             break;
@@ -91,6 +107,9 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
 //        RTEntries = new RegexTree<T>();
     }
 
+    /**
+     * Matches a string against a pattern. Implementations are expected to be safe for concurrent find/matches calls.
+     */
     public abstract static class Finder {
         public static class Info {
             public String[] value;
@@ -112,18 +131,54 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
 
     public static class RegexFinder extends Finder {
         /**
-         * The matcher used by this RegexFinder
+         * The matcher used by this RegexFinder when the matcher is shared; null if thread-confined.
          */
         private final Matcher matcher;
 
+        /**
+         * The per-thread matchers used by this RegexFinder when thread-confined; null if shared.
+         */
+        private final ThreadLocal<Matcher> localMatcher;
+
         /**
          * The Pattern used by this RegexFinder
          */
         protected final Pattern pattern;
 
+        /**
+         * Create a thread-confined RegexFinder: each thread matches with its own Matcher,
+         * so concurrent lookups don't contend on a lock.
+         */
         public RegexFinder(String pattern) {
+            this(pattern, false);
+        }
+
+        /**
+         * @param shareMatcher if true, use a single Matcher guarded by a lock (the original behavior);
+         * if false, use one Matcher per thread.
+         */
+        public RegexFinder(String pattern, boolean shareMatcher) {
             this.pattern = Pattern.compile(pattern, Pattern.COMMENTS);
-            matcher = this.pattern.matcher("");
+            if (shareMatcher) {
+                matcher = this.pattern.matcher("");
+                localMatcher = null;
+            } else {
+                matcher = null;
+                final Pattern finalPattern = this.pattern;
+                localMatcher = new ThreadLocal<Matcher>() {
+                    @Override
+                    protected Matcher initialValue() {
+                        return finalPattern.matcher("");
+                    }
+                };
+            }
+        }
+
+        /**
+         * @return true if this finder uses a single Matcher guarded by a lock.
+         */
+        public boolean isSharedMatcher() {
+            return matcher != null;
         }
 
         /**
@@ -131,56 +186,59 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
          * if it is non null
          */
         public boolean matches(String item, Object context, Info info) {
+            if (matcher == null) {
+                return matchOrFind(localMatcher.get(), item, info, true);
+            }
             synchronized (matcher) {
-                try {
-                    boolean result = matcher.reset(item).matches();
-                    extractInfo(info, result);
-                    return result;
-                } catch (StringIndexOutOfBoundsException e) {
-                    // We don't know what causes this error (cldrbug 5051) so
-                    // make the exception message more detailed.
-                    throw new IllegalArgumentException("Matching error caused by pattern: ["
-                        + matcher.toString() + "] on text: [" + item + "]", e);
-                }
+                return matchOrFind(matcher, item, info, true);
+            }
+        }
+
+        /**
+         * Call find() on the pattern, returning additional information in the info field,
+         * if it is non-null
+         */
+        public boolean find(String item, Object context, Info info) {
+            if (matcher == null) {
+                return matchOrFind(localMatcher.get(), item, info, false);
+            }
+            synchronized (matcher) {
+                return matchOrFind(matcher, item, info, false);
+            }
+        }
+
+        private boolean matchOrFind(Matcher m, String item, Info info, boolean wholeString) {
+            try {
+                m.reset(item);
+                boolean result = wholeString ? m.matches() : m.find();
+                extractInfo(m, info, result);
+                return result;
+            } catch (StringIndexOutOfBoundsException e) {
+                // We don't know what causes this error (cldrbug 5051) so
+                // make the exception message more detailed.
+                throw new IllegalArgumentException("Matching error caused by pattern: ["
+                    + m.toString() + "] on text: [" + item + "]", e);
             }
         }
 
         /**
          * Extract match related information into  the info field, if result is true, and info
          * is not null.
+         * @param m
          * @param info
          * @param result
          */
-        private void extractInfo(Info info, boolean result) {
+        private static void extractInfo(Matcher m, Info info, boolean result) {
             if (result && info != null) {
-                int limit = matcher.groupCount() + 1;
+                int limit = m.groupCount() + 1;
                 String[] value = new String[limit];
                 for (int i = 0; i < limit; ++i) {
-                    value[i] = matcher.group(i);
+                    value[i] = m.group(i);
                 }
                 info.value = value;
             }
         }
 
-        /**
-         * Call find() on the pattern, returning additional information in the info field,
-         * if it is non-null
-         */
-        public boolean find(String item, Object context, Info info) {
-            synchronized (matcher) {
-                try {
-                    boolean result = matcher.reset(item).find();
-                    extractInfo(info, result);
-                    return result;
-                } catch (StringIndexOutOfBoundsException e) {
-                    // We don't know what causes this error (cldrbug 5051) so
-                    // make the exception message more detailed.
-                    throw new IllegalArgumentException("Matching error caused by pattern: ["
-                        + matcher.toString() + "] on text: [" + item + "]", e);
-                }
-            }
-        }
-
         public String toString() {
             // Use pattern here, to avoid having to synchronize on matcher
             return pattern.pattern();
@@ -202,6 +260,9 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
 
         @Override
         public int getFailPoint(String source) {
+            if (matcher == null) {
+                return RegexUtilities.findMismatch(localMatcher.get(), source);
+            }
             synchronized (matcher) {
                 return RegexUtilities.findMismatch(matcher, source);
             }
@@ -261,22 +322,13 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
             List<RTNode> list = new ArrayList<RTNode>();
             List<T> retList = new ArrayList<T>();
 
-            root.addToList(pattern, context, list);
+            // The match information is kept per call, not in the nodes, so that lookups can run concurrently.
+            FirstMatch first = new FirstMatch();
+            root.addToList(pattern, context, list, first);
             Collections.sort(list, rankComparator);
 
-            boolean isFirst = true;
             if (firstInfo != null && !list.isEmpty()) {
-                RTNode firstNode = list.get(0);
-                if (firstNode._info != null) {
-                    firstInfo.value = firstNode._info.value;
-                }
-            }
-
-            for (RTNode n : list) {
-                if (isFirst) {
-                    firstInfo.value = n._info.value;
-                    isFirst = false;
-                }
+                firstInfo.value = first.info;
             }
 
             for (RTNode n : list) {
@@ -337,7 +389,6 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
 //                _finder = new RegexFinder(key);
 //                _val = val;
 //                _rank = -1;
-                _info = new Info();
             }
 
             public void put(RTNode node) {
@@ -463,36 +514,24 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
             }
 
             //traverse tree to get list of all values who's key matcher matches pattern
-            public void addToList(String pattern, Object context, List<RTNode> list) {
+            public void addToList(String pattern, Object context, List<RTNode> list, FirstMatch first) {
                 if (_children.size() == 0) {
                     return;
                 } else {
-                    Info firstInfo = new Info();
+                    Info info = new Info();
                     for (RTNode child : _children) {
-                        boolean found;
-                        synchronized (child._finder) {
-                            found = child._finder.find(pattern, context, firstInfo);
-                        }
-
                         //check if child matches pattern
-                        if (found) {
+                        if (child._finder.find(pattern, context, info)) {
                             if (child._rank != -1) {
                                 list.add(child);
-                            }
-                            // if this node's info value is unset, set it to the result of the
-                            // lookup
-//                            if (child._info!=null && child._info.value==null) {
-                            if (child._info != null) {
-                                // set the value to the result of the last find
-                                child._info.value = firstInfo.value;
-                            } else {
-                                // for some reason, child._info is null, so simply initialize it.
-                                child._info = new Info();
-                                // set the value to the result of the last find
-                                child._info.value = firstInfo.value;
+                                // remember the arguments of the earliest-entered match
+                                if (child._rank < first.rank) {
+                                    first.rank = child._rank;
+                                    first.info = info.value;
+                                }
                             }
                             //check if child is the parent of node then enter that node
-                            child.addToList(pattern, context, list);
+                            child.addToList(pattern, context, list, first);
                         }
                     }
                 }
@@ -522,6 +561,14 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
             }
         }
 
+        /**
+         * The rank and arguments of the lowest-ranked match found so far in a single lookup.
+         */
+        private static class FirstMatch {
+            int rank = Integer.MAX_VALUE;
+            String[] info;
+        }
+
         class RTNodeRankComparator implements Comparator<RTNode> {
             public int compare(RTNode a, RTNode b) {
                 if (a == b) {
@@ -663,7 +710,270 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
     }
 
     /**
-     * The basic class of an information node, featuring a Finder, a value and an Info
+     * Storage for PREFIX_TRIE_LOOKUP: a trie of the literal prefixes of anchored patterns, plus a list of residual
+     * patterns that have no usable literal prefix. Each pattern is identified by its rank, the order in which it was
+     * added. Like the other storage, it must not be modified while lookups are in progress.
+     */
+    private static class PrefixTrieMap<T> implements StorageInterfaceBase<T> {
+        private static final int[] NO_RANKS = new int[0];
+
+        private final Map<Finder, T> entries = new LinkedHashMap<Finder, T>();
+        private final List<NodeBase<T>> nodes = new ArrayList<NodeBase<T>>();
+        private final TrieNode root = new TrieNode();
+        private int[] residual = NO_RANKS;
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+
+        @Override
+        public void put(Finder pattern, T value) {
+            int rank = nodes.size();
+            nodes.add(new NodeBase<T>(pattern, value));
+            entries.put(pattern, value);
+            String prefix = pattern instanceof RegexFinder ? getLiteralPrefix(pattern.toString()) : null;
+            if (prefix == null) {
+                residual = appendRank(residual, rank);
+                return;
+            }
+            TrieNode node = root;
+            for (int i = 0; i < prefix.length(); ++i) {
+                node = node.getOrAddChild(prefix.charAt(i));
+            }
+            node.ranks = appendRank(node.ranks, rank);
+        }
+
+        @Override
+        public T get(Finder finder) {
+            return entries.get(finder);
+        }
+
+        @Override
+        public List<T> getAll(String pattern, Object context, List<Finder> matcherList, Output<String[]> firstInfo) {
+            List<T> retList = new ArrayList<T>();
+            int[] candidates = getCandidates(pattern);
+            Info info = new Info();
+            for (int rank : candidates) {
+                NodeBase<T> node = nodes.get(rank);
+                if (node._finder.find(pattern, context, info)) {
+                    if (retList.isEmpty() && firstInfo != null) {
+                        firstInfo.value = info.value;
+                    }
+                    retList.add(node._val);
+                    if (matcherList != null) {
+                        matcherList.add(node._finder);
+                    }
+                }
+            }
+            return retList;
+        }
+
+        @Override
+        public T get(String pattern, Object context, Output<String[]> arguments, Output<Finder> matcherFound) {
+            Info info = new Info();
+            for (int rank : getCandidates(pattern)) {
+                NodeBase<T> node = nodes.get(rank);
+                if (node._finder.find(pattern, context, info)) {
+                    if (arguments != null) {
+                        arguments.value = info.value;
+                    }
+                    if (matcherFound != null) {
+                        matcherFound.value = node._finder;
+                    }
+                    return node._val;
+                }
+            }
+            if (arguments != null) {
+                arguments.value = null;
+            }
+            if (matcherFound != null) {
+                matcherFound.value = null;
+            }
+            return null;
+        }
+
+        /**
+         * Get the ranks of the patterns that could match the source, in the order they were added.
+         */
+        private int[] getCandidates(String source) {
+            int[] result = new int[residual.length + root.ranks.length + 8];
+            System.arraycopy(residual, 0, result, 0, residual.length);
+            int count = residual.length;
+            TrieNode node = root;
+            int i = 0;
+            while (true) {
+                if (node.ranks.length != 0) {
+                    if (count + node.ranks.length > result.length) {
+                        result = Arrays.copyOf(result, Math.max(result.length * 2, count + node.ranks.length));
+                    }
+                    System.arraycopy(node.ranks, 0, result, count, node.ranks.length);
+                    count += node.ranks.length;
+                }
+                if (i >= source.length()) {
+                    break;
+                }
+                node = node.getChild(source.charAt(i++));
+                if (node == null) {
+                    break;
+                }
+            }
+            if (count != result.length) {
+                result = Arrays.copyOf(result, count);
+            }
+            Arrays.sort(result);
+            return result;
+        }
+
+        @Override
+        public Set<Entry<Finder, T>> entrySet() {
+            return entries.entrySet();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+            for (NodeBase<T> node : nodes) {
+                result.append(node._finder.toString()).append("\n");
+            }
+            return result.toString();
+        }
+
+        private static int[] appendRank(int[] ranks, int rank) {
+            int[] result = Arrays.copyOf(ranks, ranks.length + 1);
+            result[ranks.length] = rank;
+            return result;
+        }
+
+        /**
+         * Returns the literal text that every match of the pattern must start with, or null if the pattern is not
+         * anchored with ^ or has a top-level alternation. This is conservative: it stops at the first construct that
+         * isn't a plain or escaped character. Patterns are compiled with Pattern.COMMENTS, so whitespace is skipped.
+         */
+        static String getLiteralPrefix(String pattern) {
+            if (!pattern.startsWith("^") || hasTopLevelAlternation(pattern)) {
+                return null;
+            }
+            StringBuilder result = new StringBuilder();
+            for (int i = 1; i < pattern.length(); ++i) {
+                char ch = pattern.charAt(i);
+                switch (ch) {
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\u000B':
+                case '\f':
+                case '\r':
+                    continue;
+                case '?':
+                case '*':
+                case '{':
+                    // the previous character is optional
+                    if (result.length() > 0) {
+                        result.setLength(result.length() - 1);
+                        if (result.length() > 0 && Character.isHighSurrogate(result.charAt(result.length() - 1))) {
+                            result.setLength(result.length() - 1);
+                        }
+                    }
+                    return result.toString();
+                case '\\':
+                    if (i + 1 < pattern.length() && !Character.isLetterOrDigit(pattern.charAt(i + 1))) {
+                        result.append(pattern.charAt(++i));
+                        continue;
+                    }
+                    return result.toString();
+                case '+': // the previous character is required, but may repeat
+                case '[':
+                case ']':
+                case '(':
+                case ')':
+                case '}':
+                case '.':
+                case '^':
+                case '$':
+                case '|':
+                case '#':
+                    return result.toString();
+                default:
+                    result.append(ch);
+                    break;
+                }
+            }
+            return result.toString();
+        }
+
+        private static boolean hasTopLevelAlternation(String pattern) {
+            int depth = 0;
+            boolean inClass = false;
+            for (int i = 0; i < pattern.length(); ++i) {
+                char ch = pattern.charAt(i);
+                if (ch == '\\') {
+                    if (i + 1 < pattern.length() && pattern.charAt(i + 1) == 'Q') {
+                        int end = pattern.indexOf("\\E", i + 2);
+                        i = end < 0 ? pattern.length() : end + 1;
+                    } else {
+                        ++i;
+                    }
+                } else if (inClass) {
+                    // nested classes don't change whether we are in one
+                    if (ch == ']') {
+                        inClass = false;
+                    }
+                } else if (ch == '[') {
+                    inClass = true;
+                } else if (ch == '(') {
+                    ++depth;
+                } else if (ch == ')') {
+                    --depth;
+                } else if (ch == '#') {
+                    // comment to end of line
+                    int end = pattern.indexOf('\n', i);
+                    i = end < 0 ? pattern.length() : end;
+                } else if (ch == '|' && depth <= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static class TrieNode {
+            private static final char[] NO_KEYS = new char[0];
+            private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+            // keys are kept sorted, for binary search
+            private char[] keys = NO_KEYS;
+            private TrieNode[] children = NO_CHILDREN;
+            private int[] ranks = NO_RANKS;
+
+            TrieNode getChild(char ch) {
+                int index = Arrays.binarySearch(keys, ch);
+                return index < 0 ? null : children[index];
+            }
+
+            TrieNode getOrAddChild(char ch) {
+                int index = Arrays.binarySearch(keys, ch);
+                if (index >= 0) {
+                    return children[index];
+                }
+                int insertion = -index - 1;
+                char[] newKeys = new char[keys.length + 1];
+                TrieNode[] newChildren = new TrieNode[children.length + 1];
+                System.arraycopy(keys, 0, newKeys, 0, insertion);
+                System.arraycopy(children, 0, newChildren, 0, insertion);
+                System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+                System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+                TrieNode result = new TrieNode();
+                newKeys[insertion] = ch;
+                newChildren[insertion] = result;
+                keys = newKeys;
+                children = newChildren;
+                return result;
+            }
+        }
+    }
+
+    /**
+     * The basic class of an information node, featuring a Finder and a value
      *
      * @author ribnitz
      *
@@ -672,7 +982,6 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
     private static class NodeBase<T> {
         Finder _finder;
         T _val;
-        Info _info = new Info();
 
         public NodeBase(Finder finder, T value) {
             this._finder = finder;
@@ -773,7 +1082,8 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
                     }
                 }
             }
-        } else if (_lookupType == RegexLookup.LookupType.OPTIMIZED_DIRECTORY_PATTERN_LOOKUP) {
+        } else if (_lookupType == RegexLookup.LookupType.OPTIMIZED_DIRECTORY_PATTERN_LOOKUP
+            || _lookupType == RegexLookup.LookupType.PREFIX_TRIE_LOOKUP) {
             //      T ret = RTEntries.get(source, context, arguments, matcherFound);
             T ret = storage.get(source, context, arguments, matcherFound);
             if (ret != null) {
@@ -796,23 +1106,21 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
             //slow but versatile implementation
             for (Map.Entry<Finder, T> entry : MEntries.entrySet()) {
                 Finder matcher = entry.getKey();
-                synchronized (matcher) {
-                    Info firstInfo = new Info();
-                    if (matcher.find(source, context, firstInfo)) {
-                        if (arguments != null) {
-//                            arguments.value = matcher.getInfo();
-                            arguments.value = firstInfo.value;
-                        }
-                        if (matcherFound != null) {
-                            matcherFound.value = matcher;
-                        }
-                        return entry.getValue();
-                    } else if (failures != null) {
-                        int failPoint = matcher.getFailPoint(source);
-                        String show = source.substring(0, failPoint) + "☹" + source.substring(failPoint) + "\t"
-                            + matcher.toString();
-                        failures.add(show);
+                Info firstInfo = new Info();
+                if (matcher.find(source, context, firstInfo)) {
+                    if (arguments != null) {
+//                        arguments.value = matcher.getInfo();
+                        arguments.value = firstInfo.value;
+                    }
+                    if (matcherFound != null) {
+                        matcherFound.value = matcher;
                     }
+                    return entry.getValue();
+                } else if (failures != null) {
+                    int failPoint = matcher.getFailPoint(source);
+                    String show = source.substring(0, failPoint) + "☹" + source.substring(failPoint) + "\t"
+                        + matcher.toString();
+                    failures.add(show);
                 }
             }
         }
@@ -858,7 +1166,8 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
                 }
             }
             return null;
-        } else if (_lookupType == RegexLookup.LookupType.OPTIMIZED_DIRECTORY_PATTERN_LOOKUP) {
+        } else if (_lookupType == RegexLookup.LookupType.OPTIMIZED_DIRECTORY_PATTERN_LOOKUP
+            || _lookupType == RegexLookup.LookupType.PREFIX_TRIE_LOOKUP) {
             Output<String[]> info = new Output<>();
 //            List<T> matches = RTEntries.getAll(source, context, matcherList,info);
             List<T> matches = storage.getAll(source, context, matcherList, info);
@@ -916,7 +1225,8 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
 //            entrySet = SPEntries.entrySet();
             entrySet = storage.entrySet();
             break;
-        case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP:
+        case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP: // fall through
+        case PREFIX_TRIE_LOOKUP:
 //            entrySet = RTEntries.entrySet();
             entrySet = storage.entrySet();
             break;
@@ -1077,7 +1387,8 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
         T old;
         switch (_lookupType) {
         case STAR_PATTERN_LOOKUP: // fallthrough
-        case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP:
+        case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP: // fallthrough
+        case PREFIX_TRIE_LOOKUP:
             old = storage.get(pattern);
 //            old = SPEntries.get(pattern);
             break;
@@ -1093,7 +1404,8 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
         if (old == null) {
             switch (_lookupType) {
             case STAR_PATTERN_LOOKUP: // fallthrough
-            case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP:
+            case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP: // fallthrough
+            case PREFIX_TRIE_LOOKUP:
                 storage.put(pattern, target);
 //                SPEntries.put(pattern, target);
                 break;
@@ -1118,7 +1430,8 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
     public Iterator<Map.Entry<Finder, T>> iterator() {
         switch (_lookupType) {
         case STAR_PATTERN_LOOKUP: // fall through
-        case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP:
+        case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP: // fall through
+        case PREFIX_TRIE_LOOKUP:
 //            return Collections.unmodifiableCollection(SPEntries.entrySet()).iterator();
             return Collections.unmodifiableCollection(storage.entrySet()).iterator();
 //        case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP:
@@ -1157,7 +1470,8 @@ public class RegexLookup<T> implements Iterable<Map.Entry<Finder, T>> {
     public int size() {
         switch (_lookupType) {
         case STAR_PATTERN_LOOKUP: // fall through
-        case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP:
+        case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP: // fall through
+        case PREFIX_TRIE_LOOKUP:
 //            return SPEntries.size();
             return storage.size();
 //        case OPTIMIZED_DIRECTORY_PATTERN_LOOKUP:
@@ -0,0 +1,222 @@
+package org.unicode.cldr.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.unicode.cldr.util.XMLSource.AliasLocation;
+import org.unicode.cldr.util.XMLSource.ResolvingSource;
+
+import com.ibm.icu.util.ICUUncheckedIOException;
+
+/**
+ * Precomputed resolution of a ResolvingSource: for every path of the resolved file,
+ * the locale where the value is found and the path it is found at (after aliasing).
+ * <p>
+ * Building an index does the same work as resolving every path once; the point is that it
+ * can be written to disk by a tool run (see SimpleFactory.writeResolutionIndex) and loaded by
+ * later runs, which then neither compute the alias closure of the resolved key set nor walk the
+ * locale chain per path. The fingerprint identifies the input data the index was built from;
+ * an index with a different fingerprint is never loaded.
+ */
+public final class ResolutionIndex {
+    private static final int MAGIC = 0x434c5249; // "CLRI"
+    /**
+     * Increment when the file format or the resolution rules (aliases, alt and count fallbacks) change.
+     */
+    private static final int VERSION = 1;
+    private static final int SAME_PATH = -1;
+
+    private final long fingerprint;
+    private final String[] chain; // locales, from the current locale up to root; chain.length means CODE_FALLBACK_ID
+    private final String[] paths; // the resolved paths, followed by any other paths where values are found
+    private final int pathCount;
+    private final byte[] localeWhereFound;
+    private final int[] pathWhereFound;
+    private final Map<String, Integer> pathToIndex;
+    private final Set<String> keySet;
+
+    private ResolutionIndex(long fingerprint, String[] chain, String[] paths, int pathCount, byte[] localeWhereFound,
+        int[] pathWhereFound) {
+        this.fingerprint = fingerprint;
+        this.chain = chain;
+        this.paths = paths;
+        this.pathCount = pathCount;
+        this.localeWhereFound = localeWhereFound;
+        this.pathWhereFound = pathWhereFound;
+        pathToIndex = new HashMap<String, Integer>(pathCount * 4 / 3 + 1);
+        for (int i = 0; i < pathCount; ++i) {
+            pathToIndex.put(paths[i], i);
+        }
+        keySet = Collections.unmodifiableSet(pathToIndex.keySet());
+    }
+
+    /**
+     * Resolve every path of the source, and record the result.
+     *
+     * @param source
+     * @param fingerprint identifies the data the source was made from
+     */
+    public static ResolutionIndex build(ResolvingSource source, long fingerprint) {
+        String[] chain = source.getSourceLocaleIDs().toArray(new String[0]);
+        if (chain.length >= Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Locale chain too long: " + Arrays.asList(chain));
+        }
+        List<String> pathList = new ArrayList<String>();
+        for (String path : source) {
+            pathList.add(path);
+        }
+        int pathCount = pathList.size();
+        Map<String, Integer> pathToIndex = new HashMap<String, Integer>(pathCount * 4 / 3 + 1);
+        for (int i = 0; i < pathCount; ++i) {
+            pathToIndex.put(pathList.get(i), i);
+        }
+        byte[] localeWhereFound = new byte[pathCount];
+        int[] pathWhereFound = new int[pathCount];
+        CLDRFile.Status status = new CLDRFile.Status();
+        for (int i = 0; i < pathCount; ++i) {
+            String path = pathList.get(i);
+            String locale = source.getSourceLocaleID(path, status);
+            localeWhereFound[i] = (byte) indexOf(chain, locale);
+            if (path.equals(status.pathWhereFound)) {
+                pathWhereFound[i] = SAME_PATH;
+            } else {
+                Integer found = pathToIndex.get(status.pathWhereFound);
+                if (found == null) {
+                    found = pathList.size();
+                    pathList.add(status.pathWhereFound);
+                    pathToIndex.put(status.pathWhereFound, found);
+                }
+                pathWhereFound[i] = found;
+            }
+        }
+        return new ResolutionIndex(fingerprint, chain, pathList.toArray(new String[pathList.size()]), pathCount,
+            localeWhereFound, pathWhereFound);
+    }
+
+    private static int indexOf(String[] chain, String locale) {
+        for (int i = 0; i < chain.length; ++i) {
+            if (chain[i].equals(locale)) {
+                return i;
+            }
+        }
+        if (XMLSource.CODE_FALLBACK_ID.equals(locale)) {
+            return chain.length;
+        }
+        throw new IllegalArgumentException("Locale " + locale + " is not in the chain " + Arrays.asList(chain));
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * The locales the index was built for, from the current locale up to root.
+     */
+    public List<String> getSourceLocaleIDs() {
+        return Collections.unmodifiableList(Arrays.asList(chain));
+    }
+
+    /**
+     * The paths of the resolved file.
+     */
+    public Set<String> getPaths() {
+        return keySet;
+    }
+
+    /**
+     * Return where the value for the path is found, or null if the path is not in the resolved file.
+     */
+    public AliasLocation get(String path) {
+        Integer index = pathToIndex.get(path);
+        if (index == null) {
+            return null;
+        }
+        int i = index;
+        int found = pathWhereFound[i];
+        int locale = localeWhereFound[i];
+        return new AliasLocation(found == SAME_PATH ? paths[i] : paths[found],
+            locale == chain.length ? XMLSource.CODE_FALLBACK_ID : chain[locale]);
+    }
+
+    public void write(File file) {
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(chain.length);
+            for (String locale : chain) {
+                out.writeUTF(locale);
+            }
+            out.writeInt(paths.length);
+            out.writeInt(pathCount);
+            for (String path : paths) {
+                out.writeUTF(path);
+            }
+            out.write(localeWhereFound);
+            for (int found : pathWhereFound) {
+                out.writeInt(found);
+            }
+        } catch (IOException e) {
+            throw new ICUUncheckedIOException("Can't write resolution index " + file, e);
+        }
+        // replace atomically, so that a concurrent reader never sees a partial file
+        if (!temp.renameTo(file)) {
+            file.delete();
+            if (!temp.renameTo(file)) {
+                throw new ICUUncheckedIOException("Can't rename " + temp + " to " + file);
+            }
+        }
+    }
+
+    /**
+     * Read an index, if the file exists and was built from the data with the given fingerprint.
+     *
+     * @return the index, or null if there is none or it is out of date.
+     */
+    public static ResolutionIndex read(File file, long expectedFingerprint) {
+        if (!file.canRead()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != expectedFingerprint) {
+                return null;
+            }
+            String[] chain = new String[in.readInt()];
+            for (int i = 0; i < chain.length; ++i) {
+                chain[i] = in.readUTF();
+            }
+            String[] paths = new String[in.readInt()];
+            int pathCount = in.readInt();
+            for (int i = 0; i < paths.length; ++i) {
+                paths[i] = in.readUTF();
+            }
+            byte[] localeWhereFound = new byte[pathCount];
+            in.readFully(localeWhereFound);
+            int[] pathWhereFound = new int[pathCount];
+            for (int i = 0; i < pathCount; ++i) {
+                pathWhereFound[i] = in.readInt();
+            }
+            return new ResolutionIndex(expectedFingerprint, chain, paths, pathCount, localeWhereFound, pathWhereFound);
+        } catch (IOException e) {
+            throw new ICUUncheckedIOException("Can't read resolution index " + file, e);
+        }
+    }
+}
@@ -60,6 +60,24 @@ public class SimpleFactory extends Factory {
 
     private static final boolean DEBUG_SIMPLEFACTORY = false;
 
+    /**
+     * Default for whether unresolved files are loaded into a {@link CompactXMLSource} rather than a
+     * {@link SimpleXMLSource}; set with -DCLDR_COMPACT_XMLSOURCE=true
+     */
+    private static final boolean COMPACT_SOURCES_DEFAULT = CldrUtility.getProperty("CLDR_COMPACT_XMLSOURCE", false);
+
+    /**
+     * Directory holding precomputed {@link ResolutionIndex} files, or null to always resolve from the sources;
+     * set with -DCLDR_RESOLUTION_INDEX_DIR=..., and fill with GenerateResolutionIndex
+     */
+    private static final String RESOLUTION_INDEX_DIR = CldrUtility.getProperty("CLDR_RESOLUTION_INDEX_DIR", null);
+
+    /**
+     * Directory for {@link XMLSourceSnapshot} files of unresolved files, or null to always parse the XML;
+     * set with -DCLDR_SNAPSHOT_DIR=... Snapshots are written there the first time a file is parsed.
+     */
+    private static final String SNAPSHOT_DIR = CldrUtility.getProperty("CLDR_SNAPSHOT_DIR", null);
+
     /**
      * Simple class used as a key for the map that holds the CLDRFiles -only used in the new version of the code
      * @author ribnitz
@@ -297,6 +315,7 @@ public class SimpleFactory extends Factory {
 //        }
 //    }
     private DraftStatus minimalDraftStatus = DraftStatus.unconfirmed;
+    private boolean compactSources = COMPACT_SOURCES_DEFAULT;
 
     /* Use WeakValues - automagically remove a value once it is no longer useed elsewhere */
     private static Cache<SimpleFactoryCacheKey, SimpleFactory> factoryCache = null;
@@ -419,6 +438,26 @@ public class SimpleFactory extends Factory {
         }
     }
 
+    /**
+     * Create a factory from a source directory list, choosing the storage of the unresolved files:
+     * a {@link CompactXMLSource} if compactSources is true, otherwise a {@link SimpleXMLSource}.
+     * Factories with a non-default storage choice are never cached.
+     *
+     * @param sourceDirectory
+     * @param matchString
+     * @param minimalDraftStatus
+     * @param compactSources
+     * @return
+     */
+    public static Factory make(File sourceDirectory[], String matchString, DraftStatus minimalDraftStatus, boolean compactSources) {
+        if (compactSources == COMPACT_SOURCES_DEFAULT) {
+            return make(sourceDirectory, matchString, minimalDraftStatus);
+        }
+        SimpleFactory result = new SimpleFactory(sourceDirectory, matchString, minimalDraftStatus);
+        result.compactSources = compactSources;
+        return result;
+    }
+
     @SuppressWarnings("unchecked")
     private SimpleFactory(File sourceDirectories[], String matchString, DraftStatus minimalDraftStatus) {
         // initialize class based
@@ -541,6 +580,14 @@ public class SimpleFactory extends Factory {
                 } catch (Exception e) {
                     throw new ICUException("Couldn't make resolved CLDR file for " + localeName, e);
                 }
+                if (RESOLUTION_INDEX_DIR != null) {
+                    ResolutionIndex index = ResolutionIndex.read(
+                        getResolutionIndexFile(new File(RESOLUTION_INDEX_DIR), localeName, minimalDraftStatus),
+                        getResolutionFingerprint(localeName, minimalDraftStatus));
+                    if (index != null) {
+                        makeResolvingSource.setResolutionIndex(index);
+                    }
+                }
                 result = new CLDRFile(makeResolvingSource);
             } else {
                 if (parentDirs != null) {
@@ -554,7 +601,7 @@ public class SimpleFactory extends Factory {
                         sb.append(minimalDraftStatus);
                         System.out.println(sb.toString());
                     }
-                    result = makeFile(localeName, parentDirs, minimalDraftStatus);
+                    result = loadFile(localeName, parentDirs, minimalDraftStatus);
                     result.freeze();
                 }
             }
@@ -646,6 +693,77 @@ public class SimpleFactory extends Factory {
         return new File(dir, localeName + ".xml");
     }
 
+    /**
+     * Load an unresolved file into the kind of source this factory uses, from a snapshot if there is a current one.
+     */
+    private CLDRFile loadFile(String localeName, List<File> parentDirs, DraftStatus minimalDraftStatus) {
+        XMLSource source = compactSources ? new CompactXMLSource(localeName) : new SimpleXMLSource(localeName);
+        if (SNAPSHOT_DIR == null) {
+            return CLDRFile.loadFromFiles(parentDirs, localeName, minimalDraftStatus, source);
+        }
+        long fingerprint = addFileFingerprint(minimalDraftStatus.ordinal(), localeName, parentDirs);
+        // the same locale can occur in several factories (main, annotations, ...), so separate them by directory
+        File snapshot = new File(new File(SNAPSHOT_DIR, Integer.toHexString(parentDirs.toString().hashCode())),
+            localeName + "-" + minimalDraftStatus + ".bin");
+        if (XMLSourceSnapshot.read(snapshot, fingerprint, source)) {
+            return new CLDRFile(source);
+        }
+        CLDRFile result = CLDRFile.loadFromFiles(parentDirs, localeName, minimalDraftStatus, source);
+        try {
+            XMLSourceSnapshot.write(result.dataSource, fingerprint, snapshot);
+        } catch (ICUUncheckedIOException e) {
+            System.err.println("Couldn't save snapshot of " + localeName + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Identify the data that a resolved file for the locale would be made from: the files of the locale
+     * and all of its parents (name, size, modification time), and the draft status.
+     *
+     * @param localeID
+     * @param minimalDraftStatus
+     * @return
+     */
+    public long getResolutionFingerprint(String localeID, DraftStatus minimalDraftStatus) {
+        long result = minimalDraftStatus.ordinal();
+        for (String locale = localeID; locale != null; locale = LocaleIDParser.getParent(locale)) {
+            List<File> dirs = getSourceDirectoriesForLocale(locale);
+            result = addFileFingerprint(result, locale, dirs == null ? Collections.<File> emptyList() : dirs);
+        }
+        return result;
+    }
+
+    static long addFileFingerprint(long result, String locale, List<File> dirs) {
+        result = 31 * result + locale.hashCode();
+        for (File dir : dirs) {
+            File file = makeFileName(locale, dir);
+            result = 31 * result + file.getAbsolutePath().hashCode();
+            result = 31 * result + file.length();
+            result = 31 * result + file.lastModified();
+        }
+        return result;
+    }
+
+    private static File getResolutionIndexFile(File dir, String localeID, DraftStatus minimalDraftStatus) {
+        return new File(dir, localeID + "-" + minimalDraftStatus + ".idx");
+    }
+
+    /**
+     * Resolve all paths of the locale, and write the result into the directory, where handleMake
+     * will find it if CLDR_RESOLUTION_INDEX_DIR names that directory.
+     *
+     * @param localeID
+     * @param dir
+     * @return the file written
+     */
+    public File writeResolutionIndex(String localeID, File dir) {
+        ResolvingSource source = makeResolvingSource(localeID, minimalDraftStatus);
+        File file = getResolutionIndexFile(dir, localeID, minimalDraftStatus);
+        ResolutionIndex.build(source, getResolutionFingerprint(localeID, minimalDraftStatus)).write(file);
+        return file;
+    }
+
     /**
      * Create a CLDRFile for the given localename.
      * SimpleXMLSource will be used as the source.
@@ -1,8 +1,6 @@
 package org.unicode.cldr.util;
 
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -10,7 +8,6 @@ import java.util.regex.Pattern;
 
 import org.unicode.cldr.util.XPathParts.Comments;
 
-import com.ibm.icu.impl.Relation;
 import com.ibm.icu.text.Normalizer2;
 import com.ibm.icu.text.UnicodeSet;
 import com.ibm.icu.util.VersionInfo;
@@ -19,7 +16,7 @@ public class SimpleXMLSource extends XMLSource {
     private Map<String, String> xpath_value = CldrUtility.newConcurrentHashMap();
     private Map<String, String> xpath_fullXPath = CldrUtility.newConcurrentHashMap();
     private Comments xpath_comments = new Comments(); // map from paths to comments.
-    private Relation<String, String> VALUE_TO_PATH = null;
+    private volatile ValuePathIndex VALUE_TO_PATH = null; // built on first use, then kept up to date
     private Object VALUE_TO_PATH_MUTEX = new Object();
     private VersionInfo dtdVersionInfo;
 
@@ -75,10 +72,9 @@ public class SimpleXMLSource extends XMLSource {
     // }
     // }
     public void removeValueAtDPath(String distinguishingXPath) {
-        String oldValue = xpath_value.get(distinguishingXPath);
         xpath_value.remove(distinguishingXPath);
         xpath_fullXPath.remove(distinguishingXPath);
-        updateValuePathMapping(distinguishingXPath, oldValue, null);
+        updateValuePathMapping(distinguishingXPath, null);
     }
 
     public Iterator<String> iterator() { // must be unmodifiable or locked
@@ -95,6 +91,8 @@ public class SimpleXMLSource extends XMLSource {
         result.xpath_comments = (Comments) result.xpath_comments.clone();
         result.xpath_fullXPath = CldrUtility.newConcurrentHashMap(result.xpath_fullXPath);
         result.xpath_value = CldrUtility.newConcurrentHashMap(result.xpath_value);
+        result.VALUE_TO_PATH = null; // don't share the index with the original
+        result.VALUE_TO_PATH_MUTEX = new Object();
         return result;
     }
 
@@ -103,55 +101,34 @@ public class SimpleXMLSource extends XMLSource {
     }
 
     public void putValueAtDPath(String distinguishingXPath, String value) {
-        String oldValue = xpath_value.get(distinguishingXPath);
         xpath_value.put(distinguishingXPath, value);
-        updateValuePathMapping(distinguishingXPath, oldValue, value);
+        updateValuePathMapping(distinguishingXPath, value);
     }
 
-    private void updateValuePathMapping(String distinguishingXPath, String oldValue, String newValue) {
-        synchronized (VALUE_TO_PATH_MUTEX) {
-            if (VALUE_TO_PATH != null) {
-                if (oldValue != null) {
-                    VALUE_TO_PATH.remove(normalize(oldValue), distinguishingXPath);
-                }
-                if (newValue != null) {
-                    VALUE_TO_PATH.put(normalize(newValue), distinguishingXPath);
-                }
+    private void updateValuePathMapping(String distinguishingXPath, String newValue) {
+        ValuePathIndex index = VALUE_TO_PATH;
+        if (index == null) {
+            synchronized (VALUE_TO_PATH_MUTEX) { // wait for a build in progress, which may have missed this change
+                index = VALUE_TO_PATH;
             }
         }
+        if (index != null) {
+            index.put(distinguishingXPath, newValue);
+        }
     }
 
     @Override
     public void getPathsWithValue(String valueToMatch, String pathPrefix, Set<String> result) {
-        // build a Relation mapping value to paths, if needed
-        synchronized (VALUE_TO_PATH_MUTEX) {
-            if (VALUE_TO_PATH == null) {
-                VALUE_TO_PATH = Relation.of(new HashMap<String, Set<String>>(), HashSet.class);
-                for (Iterator<String> it = iterator(); it.hasNext();) {
-                    String path = it.next();
-                    String value1 = getValueAtDPathSkippingInheritanceMarker(path);
-                    if (value1 == null) {
-                        continue;
-                    }
-                    String value = normalize(value1);
-                    VALUE_TO_PATH.put(value, path);
-                }
-            }
-            Set<String> paths = VALUE_TO_PATH.getAll(normalize(valueToMatch));
-            if (paths == null) {
-                return;
-            }
-            if (pathPrefix == null || pathPrefix.length() == 0) {
-                result.addAll(paths);
-                return;
-            }
-            for (String path : paths) {
-                if (path.startsWith(pathPrefix)) {
-                    // if (altPath.originalPath.startsWith(altPrefix.originalPath)) {
-                    result.add(path);
+        ValuePathIndex index = VALUE_TO_PATH;
+        if (index == null) {
+            synchronized (VALUE_TO_PATH_MUTEX) {
+                index = VALUE_TO_PATH;
+                if (index == null) {
+                    VALUE_TO_PATH = index = ValuePathIndex.build(this);
                 }
             }
         }
+        index.getPathsWithValue(valueToMatch, pathPrefix, result);
     }
 
     static final Normalizer2 NFKCCF = Normalizer2.getNFKCCasefoldInstance();
@@ -199,6 +176,7 @@ public class SimpleXMLSource extends XMLSource {
 
     static final Pattern PLACEHOLDER = PatternCache.get("\\{\\d\\}");
 
+    @Override
     public void setDtdVersionInfo(VersionInfo dtdVersionInfo) {
         this.dtdVersionInfo = dtdVersionInfo;
     }
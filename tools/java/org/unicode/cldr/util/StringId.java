@@ -1,31 +1,40 @@
 package org.unicode.cldr.util;
 
-import java.nio.charset.Charset;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Produce an ID for a string based on a long hash. When used properly, the odds
  * of collision are so low that the ID can be used as a proxy for the
  * original string. The ID is non-negative. The algorithm uses SHA-1 over the
  * UTF-8 bytes in the string. Also provides lookup for long previously generated for string.
+ * <p>
+ * Each thread hashes with its own digest and buffer, so there is no lock. Recently seen strings are cached
+ * in a bounded table (see CLDR_STRINGID_RETAINED) to skip rehashing; every ID handed out stays in the
+ * reverse map, so getStringFromId never forgets a string.
  *
  * @author markdavis
  */
 public final class StringId {
-    private static final Map<String, Long> STRING_TO_ID = new ConcurrentHashMap<String, Long>();
+    private static final int BUCKET_SIZE = 8;
+    /**
+     * Number of strings whose IDs are cached, rounded up to a power of 2; 0 caches none, so every call hashes.
+     * Set with -DCLDR_STRINGID_RETAINED=...
+     */
+    private static final int RETAINED = Integer.parseInt(CldrUtility.getProperty("CLDR_STRINGID_RETAINED", String.valueOf(1 << 20)));
+    private static final EntryTable TABLE = RETAINED <= 0 ? null : new EntryTable(RETAINED);
     private static final Map<Long, String> ID_TO_STRING = new ConcurrentHashMap<Long, String>();
-    private static final MessageDigest digest;
-    private static final Charset UTF_8 = Charset.forName("UTF-8");
-    private static final int RETRY_LIMIT = 9;
-    static {
-        try {
-            digest = MessageDigest.getInstance("SHA-1");
-        } catch (Exception e) {
-            throw new IllegalArgumentException(e); // darn'd checked exceptions
+
+    private static final ThreadLocal<Hasher> HASHER = new ThreadLocal<Hasher>() {
+        @Override
+        protected Hasher initialValue() {
+            return new Hasher();
         }
-    }
+    };
 
     /**
      * Get the ID for a string.
@@ -36,32 +45,16 @@ public final class StringId {
      */
     public static long getId(CharSequence charSequence) {
         String string = charSequence.toString();
-        Long resultLong = STRING_TO_ID.get(string);
-        if (resultLong != null) {
-            return resultLong;
+        Entry entry = TABLE == null ? null : TABLE.get(string);
+        if (entry != null) {
+            return entry.id;
         }
-        int retryCount = RETRY_LIMIT;
-        while (true) {
-            try {
-                synchronized (digest) {
-                    byte[] hash = digest.digest(string.getBytes(UTF_8));
-                    long result = 0;
-                    for (int i = 0; i < 8; ++i) {
-                        result <<= 8;
-                        result ^= hash[i];
-                    }
-                    // mash the top bit to make things easier
-                    result &= 0x7FFFFFFFFFFFFFFFL;
-                    STRING_TO_ID.put(string, result);
-                    ID_TO_STRING.put(result, string);
-                    return result;
-                }
-            } catch (RuntimeException e) {
-                if (--retryCount < 0) {
-                    throw e;
-                }
-            }
+        long id = HASHER.get().hash(string);
+        ID_TO_STRING.put(id, string);
+        if (TABLE != null) {
+            TABLE.put(new Entry(id, string));
         }
+        return id;
     }
 
     /**
@@ -89,9 +82,139 @@ public final class StringId {
     /**
      * Returns string previously used to generate the longValue with getId.
      * @param longValue
-     * @return String previously used to generate the longValue with getId.
+     * @return String previously used to generate the longValue with getId, or null if there is none.
      */
     public static String getStringFromId(long longValue) {
         return ID_TO_STRING.get(longValue);
     }
-}
\ No newline at end of file
+
+    /**
+     * Per-thread SHA-1 digest, with buffers reused across calls.
+     */
+    private static final class Hasher {
+        private final MessageDigest digest;
+        private final byte[] hash = new byte[20];
+        private byte[] buffer = new byte[256];
+
+        Hasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-1");
+            } catch (Exception e) {
+                throw new IllegalArgumentException(e); // darn'd checked exceptions
+            }
+        }
+
+        long hash(String string) {
+            int length = encodeUtf8(string);
+            digest.update(buffer, 0, length);
+            try {
+                digest.digest(hash, 0, hash.length);
+            } catch (DigestException e) {
+                throw new IllegalArgumentException(e);
+            }
+            long result = 0;
+            for (int i = 0; i < 8; ++i) {
+                result <<= 8;
+                result ^= hash[i];
+            }
+            // mash the top bit to make things easier
+            return result & 0x7FFFFFFFFFFFFFFFL;
+        }
+
+        /**
+         * Same bytes as string.getBytes(UTF_8), including '?' for unpaired surrogates, without allocating.
+         */
+        private int encodeUtf8(String string) {
+            int length = string.length();
+            if (buffer.length < length * 3) {
+                buffer = new byte[length * 3];
+            }
+            byte[] b = buffer;
+            int n = 0;
+            for (int i = 0; i < length; ++i) {
+                char c = string.charAt(i);
+                if (c < 0x80) {
+                    b[n++] = (byte) c;
+                } else if (c < 0x800) {
+                    b[n++] = (byte) (0xC0 | (c >> 6));
+                    b[n++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, string.charAt(++i));
+                        b[n++] = (byte) (0xF0 | (cp >> 18));
+                        b[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                        b[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                        b[n++] = (byte) (0x80 | (cp & 0x3F));
+                    } else {
+                        b[n++] = '?';
+                    }
+                } else {
+                    b[n++] = (byte) (0xE0 | (c >> 12));
+                    b[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    b[n++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            return n;
+        }
+    }
+
+    private static final class Entry {
+        final long id;
+        final String string;
+
+        Entry(long id, String string) {
+            this.id = id;
+            this.string = string;
+        }
+    }
+
+    /**
+     * Bounded, lock-free cache of entries by string.
+     * Each string hashes to a bucket of BUCKET_SIZE slots; when a bucket is full, a random slot is overwritten.
+     */
+    private static final class EntryTable {
+        private final AtomicReferenceArray<Entry> byString;
+        private final int mask;
+
+        EntryTable(int size) {
+            int capacity = Integer.highestOneBit(Math.max(BUCKET_SIZE, size - 1)) << 1;
+            byString = new AtomicReferenceArray<Entry>(capacity);
+            mask = (capacity - 1) & ~(BUCKET_SIZE - 1);
+        }
+
+        private int bucket(int hash) {
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+        Entry get(String string) {
+            int start = bucket(string.hashCode());
+            for (int i = 0; i < BUCKET_SIZE; ++i) {
+                Entry entry = byString.get(start + i);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.string == string || entry.string.equals(string)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        void put(Entry entry) {
+            int start = bucket(entry.string.hashCode());
+            for (int i = 0; i < BUCKET_SIZE; ++i) {
+                Entry old = byString.get(start + i);
+                if (old == null) {
+                    if (byString.compareAndSet(start + i, null, entry)) {
+                        return;
+                    }
+                    old = byString.get(start + i);
+                }
+                if (old.string.equals(entry.string)) {
+                    return;
+                }
+            }
+            byString.set(start + ThreadLocalRandom.current().nextInt(BUCKET_SIZE), entry);
+        }
+    }
+}
@@ -4050,6 +4050,10 @@ public class SupplementalDataInfo {
                 }
             }
 
+            // precompute the locale graph for the locales that supplemental data knows about
+            CLDRLocale.registerAll(parentLocales.keySet());
+            CLDRLocale.registerAll(parentLocales.values());
+
             // done, save the hashtables..
             baseToDefaultContent = Collections.unmodifiableMap(p2c); // wo -> wo_Arab_SN
             defaultContentToBase = Collections.unmodifiableMap(c2p); // wo_Arab_SN -> wo
@@ -0,0 +1,79 @@
+package org.unicode.cldr.util;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from values to the paths that have them, for XMLSource.getPathsWithValue.
+ * Values are compared after SimpleXMLSource.normalize; paths whose value is the inheritance marker are not indexed.
+ * <p>
+ * Lookups and updates may run concurrently; sources keep their index up to date as values change
+ * (in putValueAtDPath and removeValueAtDPath, or for a ResolvingSource in valueChanged), so it only needs to be built once.
+ */
+public final class ValuePathIndex {
+    private final ConcurrentHashMap<String, Set<String>> valueToPaths = new ConcurrentHashMap<String, Set<String>>();
+    private final ConcurrentHashMap<String, String> pathToKey = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Index the value of every path of the source. For a resolving source, these are the resolved values.
+     */
+    public static ValuePathIndex build(XMLSource source) {
+        ValuePathIndex result = new ValuePathIndex();
+        for (Iterator<String> it = source.iterator(); it.hasNext();) {
+            String path = it.next();
+            result.put(path, source.getValueAtDPath(path));
+        }
+        return result;
+    }
+
+    /**
+     * Set the value of the path, replacing any earlier one; null (or the inheritance marker) removes the path.
+     */
+    public void put(String path, String value) {
+        String key = value == null || CldrUtility.INHERITANCE_MARKER.equals(value) ? null : SimpleXMLSource.normalize(value);
+        String oldKey = key == null ? pathToKey.remove(path) : pathToKey.put(path, key);
+        if (key != null && key.equals(oldKey)) {
+            return;
+        }
+        if (oldKey != null) {
+            // empty sets are left in place, so that a concurrent add is never lost
+            Set<String> paths = valueToPaths.get(oldKey);
+            if (paths != null) {
+                paths.remove(path);
+            }
+        }
+        if (key != null) {
+            Set<String> paths = valueToPaths.get(key);
+            if (paths == null) {
+                Set<String> newPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                paths = valueToPaths.putIfAbsent(key, newPaths);
+                if (paths == null) {
+                    paths = newPaths;
+                }
+            }
+            paths.add(path);
+        }
+    }
+
+    /**
+     * Add the paths that start with pathPrefix (if not null or empty) and have a value that normalizes
+     * to the same as valueToMatch.
+     */
+    public void getPathsWithValue(String valueToMatch, String pathPrefix, Set<String> result) {
+        Set<String> paths = valueToPaths.get(SimpleXMLSource.normalize(valueToMatch));
+        if (paths == null) {
+            return;
+        }
+        if (pathPrefix == null || pathPrefix.length() == 0) {
+            result.addAll(paths);
+            return;
+        }
+        for (String path : paths) {
+            if (path.startsWith(pathPrefix)) {
+                result.add(path);
+            }
+        }
+    }
+}
@@ -21,12 +21,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.unicode.cldr.util.XPathParts.Comments;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.ibm.icu.impl.Utility;
 import com.ibm.icu.util.Freezable;
 import com.ibm.icu.util.Output;
@@ -73,7 +77,8 @@ public abstract class XMLSource implements Freezable<XMLSource>, Iterable<String
     }
 
     // Listeners are stored using weak references so that they can be garbage collected.
-    private List<WeakReference<Listener>> listeners = new ArrayList<WeakReference<Listener>>();
+    // Listeners may be added, and changes made, from several threads at once.
+    private List<WeakReference<Listener>> listeners = new CopyOnWriteArrayList<WeakReference<Listener>>();
 
     public String getLocaleID() {
         return localeID;
@@ -784,7 +789,7 @@ public abstract class XMLSource implements Freezable<XMLSource>, Iterable<String
         // }
         // }
 
-        Map<String, String> getFullPathAtDPathCache = new HashMap<String, String>();
+        Map<String, String> getFullPathAtDPathCache = CldrUtility.newConcurrentHashMap();
 
         public String getFullPathAtDPath(String xpath) {
             String result = currentSource.getFullPathAtDPath(xpath);
@@ -876,7 +881,9 @@ public abstract class XMLSource implements Freezable<XMLSource>, Iterable<String
          */
         @Override
         public String getBaileyValue(String xpath, Output<String> pathWhereFound, Output<String> localeWhereFound) {
-            AliasLocation fullStatus = getPathLocation(xpath, true /* skipFirst */, true /* skipInheritanceMarker */);
+            AliasLocation fullStatus = cachingIsEnabled
+                ? getCachedLocation(baileyLocationCache, xpath, true /* skipFirst */, true /* skipInheritanceMarker */)
+                : getPathLocation(xpath, true /* skipFirst */, true /* skipInheritanceMarker */);
             if (localeWhereFound != null) {
                 localeWhereFound.value = fullStatus.localeWhereFound;
             }
@@ -896,29 +903,52 @@ public abstract class XMLSource implements Freezable<XMLSource>, Iterable<String
          */
         private AliasLocation getCachedFullStatus(String xpath, boolean skipInheritanceMarker) {
             /*
-             * Skip the cache in the special and relatively rare cases where skipInheritanceMarker is false.
-             *
-             * TODO: consider using a cache also when skipInheritanceMarker is false.
-             * Can't use the same cache for skipInheritanceMarker true and false.
-             * Could use two caches, or add skipInheritanceMarker to the key (append 'T' or 'F' to xpath).
-             * The situation is complicated by use of getSourceLocaleIDCache also in valueChanged.
-             * 
-             * There is no caching problem with skipFirst, since that is always false here -- though
-             * getBaileyValue could use a cache if there was one for skipFirst true.
+             * skipInheritanceMarker true and false give different results, so each has its own cache;
+             * both are cleared in valueChanged.
              *
              * Reference: https://unicode.org/cldr/trac/ticket/11765
              */
-            if (!skipInheritanceMarker || !cachingIsEnabled ) {
+            if (!cachingIsEnabled) {
                 return getPathLocation(xpath, false /* skipFirst */, skipInheritanceMarker);
             }
-            synchronized (getSourceLocaleIDCache) {
-                AliasLocation fullStatus = getSourceLocaleIDCache.get(xpath);
-                if (fullStatus == null) {
-                    fullStatus = getPathLocation(xpath, false /* skipFirst */, skipInheritanceMarker);
-                    getSourceLocaleIDCache.put(xpath, fullStatus); // cache copy
+            if (!skipInheritanceMarker) {
+                return getCachedLocation(inheritanceMarkerLocationCache, xpath, false /* skipFirst */, false /* skipInheritanceMarker */);
+            }
+            ResolutionIndex index = resolutionIndex;
+            if (index != null) {
+                AliasLocation fullStatus = index.get(xpath);
+                if (fullStatus != null) {
+                    return fullStatus;
+                }
+            }
+            return getCachedLocation(getSourceLocaleIDCache, xpath, false /* skipFirst */, true /* skipInheritanceMarker */);
+        }
+
+        /**
+         * Look up the AliasLocation in the cache, computing it with getPathLocation if absent.
+         * No lock is held while computing; if a source changes meanwhile, the result is not kept.
+         */
+        private AliasLocation getCachedLocation(Cache<String, AliasLocation> cache, String xpath, boolean skipFirst,
+            boolean skipInheritanceMarker) {
+            AliasLocation fullStatus = cache.getIfPresent(xpath);
+            if (fullStatus == null) {
+                long generation = cacheGeneration.get();
+                fullStatus = getPathLocation(xpath, skipFirst, skipInheritanceMarker);
+                cache.put(xpath, fullStatus);
+                if (cacheGeneration.get() != generation) {
+                    cache.invalidate(xpath); // may be stale
                 }
-                return fullStatus;
             }
+            return fullStatus;
+        }
+
+        /**
+         * Hit and miss counts of the path location caches of this source, combined.
+         */
+        public CacheStats getLocationCacheStats() {
+            return getSourceLocaleIDCache.stats()
+                .plus(inheritanceMarkerLocationCache.stats())
+                .plus(baileyLocationCache.stats());
         }
 
         @Override
@@ -934,7 +964,48 @@ public abstract class XMLSource implements Freezable<XMLSource>, Iterable<String
             return result;
         }
 
-        private transient Map<String, AliasLocation> getSourceLocaleIDCache = new WeakHashMap<String, AliasLocation>();
+        /**
+         * Make a location cache, holding at most CLDR_LOCATION_CACHE_SIZE paths (default 50000);
+         * the property is read for each new ResolvingSource.
+         */
+        private static Cache<String, AliasLocation> makeLocationCache() {
+            int size = Integer.parseInt(CldrUtility.getProperty("CLDR_LOCATION_CACHE_SIZE", "50000"));
+            return CacheBuilder.newBuilder().maximumSize(size).recordStats().build();
+        }
+
+        // getPathLocation results for skipFirst false, with skipInheritanceMarker true and false; and for getBaileyValue
+        private transient Cache<String, AliasLocation> getSourceLocaleIDCache = makeLocationCache();
+        private transient Cache<String, AliasLocation> inheritanceMarkerLocationCache = makeLocationCache();
+        private transient Cache<String, AliasLocation> baileyLocationCache = makeLocationCache();
+        // incremented on each change to a source, so that lookups racing with the change don't cache stale results
+        private final AtomicLong cacheGeneration = new AtomicLong();
+
+        /**
+         * Precomputed locations for all paths, if one was supplied; dropped as soon as any source changes.
+         */
+        private transient volatile ResolutionIndex resolutionIndex = null;
+
+        /**
+         * Use a precomputed index for the key set and for locating the values of paths,
+         * instead of computing them. The index must have been built for the same locale chain,
+         * from the same data.
+         *
+         * @param index
+         */
+        public void setResolutionIndex(ResolutionIndex index) {
+            if (!index.getSourceLocaleIDs().equals(getSourceLocaleIDs())) {
+                throw new IllegalArgumentException("Index built for " + index.getSourceLocaleIDs()
+                    + ", but this source resolves " + getSourceLocaleIDs());
+            }
+            resolutionIndex = index;
+        }
+
+        /**
+         * The locales this source resolves through, from the current locale up to root.
+         */
+        public List<String> getSourceLocaleIDs() {
+            return new ArrayList<String>(sources.keySet());
+        }
 
         /**
          * Get the source locale ID for the given path, for this ResolvingSource.
@@ -1180,6 +1251,10 @@ public abstract class XMLSource implements Freezable<XMLSource>, Iterable<String
         }
 
         private Set<String> getCachedKeySet() {
+            ResolutionIndex index = resolutionIndex;
+            if (cachedKeySet == null && index != null) {
+                cachedKeySet = index.getPaths();
+            }
             if (cachedKeySet == null) {
                 cachedKeySet = fillKeys();
                 // System.out.println("CachedKeySet: " + cachedKeySet);
@@ -1215,25 +1290,32 @@ public abstract class XMLSource implements Freezable<XMLSource>, Iterable<String
 
         @Override
         public void valueChanged(String xpath, XMLSource nonResolvingSource) {
+            if (resolutionIndex != null) {
+                // the key set may have changed too, so recompute it from the sources
+                resolutionIndex = null;
+                cachedKeySet = null;
+            }
             if (!cachingIsEnabled) {
                 return;
             }
-            synchronized (getSourceLocaleIDCache) {
-                AliasLocation location = getSourceLocaleIDCache.remove(xpath);
-                if (location == null) {
-                    return;
-                }
-                // Paths aliasing to this path (directly or indirectly) may be affected,
-                // so clear them as well.
-                // There's probably a more elegant way to fix the paths than simply
-                // throwing everything out.
-                Set<String> dependentPaths = getDirectAliases(new String[] { xpath });
-                if (dependentPaths.size() > 0) {
-                    for (String path : dependentPaths) {
-                        getSourceLocaleIDCache.remove(path);
-                    }
-                }
+            cacheGeneration.incrementAndGet();
+            invalidateLocation(xpath);
+            // Paths aliasing to this path (directly or indirectly) may be affected,
+            // so clear them as well; whether or not this one is still cached, since
+            // the caches are bounded and it may have been evicted before them.
+            // There's probably a more elegant way to fix the paths than simply
+            // throwing everything out.
+            Set<String> dependentPaths = getDirectAliases(new String[] { xpath });
+            for (String path : dependentPaths) {
+                invalidateLocation(path);
             }
+            updateResolvedValueIndex(xpath);
+        }
+
+        private void invalidateLocation(String xpath) {
+            getSourceLocaleIDCache.invalidate(xpath);
+            inheritanceMarkerLocationCache.invalidate(xpath);
+            baileyLocationCache.invalidate(xpath);
         }
 
         /**
@@ -1560,12 +1642,62 @@ public abstract class XMLSource implements Freezable<XMLSource>, Iterable<String
             return currentSource.isHere(path); // only test one level
         }
 
+        /**
+         * Index from resolved values to paths, built on the first getPathsWithValue and then kept up to date
+         * in valueChanged.
+         */
+        private transient volatile ValuePathIndex resolvedValueIndex = null;
+        private final Object resolvedValueIndexMutex = new Object();
+
         @Override
         public void getPathsWithValue(String valueToMatch, String pathPrefix, Set<String> result) {
-            // NOTE: No caching is currently performed here because the unresolved
-            // locales already cache their value-path mappings, and it's not
-            // clear yet how much further caching would speed this up.
+            if (!cachingIsEnabled) {
+                getPathsWithValueFromSources(valueToMatch, pathPrefix, result);
+                return;
+            }
+            ValuePathIndex index = resolvedValueIndex;
+            if (index == null) {
+                long generation = cacheGeneration.get();
+                index = ValuePathIndex.build(this);
+                synchronized (resolvedValueIndexMutex) {
+                    if (cacheGeneration.get() == generation) { // otherwise a source changed meanwhile; rebuild next time
+                        resolvedValueIndex = index;
+                    }
+                }
+            }
+            index.getPathsWithValue(valueToMatch, pathPrefix == null ? "" : pathPrefix, result);
+        }
 
+        /**
+         * Update the resolved value index for a changed path, and for the paths that alias to it.
+         */
+        private void updateResolvedValueIndex(String xpath) {
+            ValuePathIndex index;
+            synchronized (resolvedValueIndexMutex) {
+                index = resolvedValueIndex;
+            }
+            if (index == null) {
+                return;
+            }
+            Set<String> changed = new HashSet<String>();
+            changed.add(xpath);
+            Set<String> newAliases = getDirectAliases(new String[] { xpath });
+            while (!newAliases.isEmpty()) {
+                newAliases.removeAll(changed);
+                changed.addAll(newAliases);
+                String[] sortedPaths = newAliases.toArray(new String[newAliases.size()]);
+                Arrays.sort(sortedPaths);
+                newAliases = getDirectAliases(sortedPaths);
+            }
+            for (String path : changed) {
+                index.put(path, getValueAtDPath(path));
+            }
+        }
+
+        /**
+         * Query each source, without the resolved index; used when caching is disabled.
+         */
+        private void getPathsWithValueFromSources(String valueToMatch, String pathPrefix, Set<String> result) {
             // Add all non-aliased paths with the specified value.
             List<XMLSource> children = new ArrayList<XMLSource>();
             Set<String> filteredPaths = new HashSet<String>();
@@ -1670,16 +1802,21 @@ public abstract class XMLSource implements Freezable<XMLSource>, Iterable<String
      *            the xpath where the change occurred.
      */
     protected void notifyListeners(String xpath) {
-        int i = 0;
-        while (i < listeners.size()) {
-            Listener listener = listeners.get(i).get();
+        List<WeakReference<Listener>> collected = null;
+        for (WeakReference<Listener> reference : listeners) {
+            Listener listener = reference.get();
             if (listener == null) { // listener has been garbage-collected.
-                listeners.remove(i);
+                if (collected == null) {
+                    collected = new ArrayList<WeakReference<Listener>>();
+                }
+                collected.add(reference);
             } else {
                 listener.valueChanged(xpath, this);
-                i++;
             }
         }
+        if (collected != null) {
+            listeners.removeAll(collected);
+        }
     }
 
     /**
@@ -1707,6 +1844,14 @@ public abstract class XMLSource implements Freezable<XMLSource>, Iterable<String
         return null;
     }
 
+    /**
+     * Set the DTD version, read from the cldrVersion attribute of the version element.
+     * Only sources that hold their own data support this.
+     */
+    public void setDtdVersionInfo(VersionInfo dtdVersionInfo) {
+        throw new UnsupportedOperationException("Can't set the DTD version of a " + getClass().getSimpleName());
+    }
+
     @SuppressWarnings("unused")
     public String getBaileyValue(String xpath, Output<String> pathWhereFound, Output<String> localeWhereFound) {
         return null; // only a resolving xmlsource will return a value
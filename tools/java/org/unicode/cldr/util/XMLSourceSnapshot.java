@@ -0,0 +1,237 @@
+package org.unicode.cldr.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.unicode.cldr.util.XPathParts.Comments;
+import org.unicode.cldr.util.XPathParts.Comments.CommentType;
+
+import com.ibm.icu.util.ICUUncheckedIOException;
+import com.ibm.icu.util.VersionInfo;
+
+/**
+ * Binary snapshot of an unresolved XMLSource, so that a later run can fill a source without parsing XML.
+ * <p>
+ * The file holds a table of the distinct strings (paths, full paths, values, comments), followed by
+ * int arrays indexing into it; it is read through a memory map. A fingerprint of the XML the snapshot
+ * was made from is stored in the header, and a snapshot with a different fingerprint or format version
+ * is ignored, so callers can simply fall back to parsing.
+ */
+public final class XMLSourceSnapshot {
+    private static final int MAGIC = 0x434c5853; // "CLXS"
+    /**
+     * Increment when the file format, or the way XML is turned into paths and values, changes.
+     */
+    private static final int VERSION = 1;
+    private static final int NONE = -1;
+
+    private XMLSourceSnapshot() {
+    }
+
+    /**
+     * Write a snapshot of the (unresolved) source.
+     *
+     * @param source
+     * @param fingerprint identifies the XML the source was read from
+     * @param file
+     */
+    public static void write(XMLSource source, long fingerprint, File file) {
+        if (source.isResolving()) {
+            throw new IllegalArgumentException("Only unresolved sources can be saved: " + source.getLocaleID());
+        }
+        StringTable strings = new StringTable();
+        List<int[]> entries = new ArrayList<int[]>();
+        for (String path : source) {
+            String value = source.getValueAtDPath(path);
+            if (value == null) {
+                continue;
+            }
+            String fullPath = source.getFullPathAtDPath(path);
+            entries.add(new int[] {
+                strings.add(path),
+                strings.add(value),
+                fullPath == null || fullPath.equals(path) ? NONE : strings.add(fullPath) });
+        }
+        VersionInfo dtdVersion = source.getDtdVersionInfo();
+        int locale = strings.add(source.getLocaleID());
+        int dtdVersionIndex = dtdVersion == null ? NONE : strings.add(dtdVersion.toString());
+        Comments comments = source.getXpathComments();
+        int initialComment = strings.add(comments.getInitialComment());
+        int finalComment = strings.add(comments.getFinalComment());
+        List<int[]> commentEntries = new ArrayList<int[]>();
+        for (CommentType style : CommentType.values()) {
+            for (Entry<String, String> entry : comments.getComments(style).entrySet()) {
+                commentEntries.add(new int[] { style.ordinal(), strings.add(entry.getKey()), strings.add(entry.getValue()) });
+            }
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File temp;
+        try {
+            temp = File.createTempFile(file.getName(), ".tmp", parent);
+        } catch (IOException e) {
+            throw new ICUUncheckedIOException("Can't write snapshot " + file, e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(strings.list.size());
+            for (byte[] bytes : strings.list) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(locale);
+            out.writeInt(dtdVersionIndex);
+            out.writeBoolean(source.isNonInheriting());
+            out.writeInt(entries.size());
+            for (int[] entry : entries) {
+                out.writeInt(entry[0]);
+                out.writeInt(entry[1]);
+                out.writeInt(entry[2]);
+            }
+            out.writeInt(initialComment);
+            out.writeInt(finalComment);
+            out.writeInt(commentEntries.size());
+            for (int[] entry : commentEntries) {
+                out.writeInt(entry[0]);
+                out.writeInt(entry[1]);
+                out.writeInt(entry[2]);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw new ICUUncheckedIOException("Can't write snapshot " + file, e);
+        }
+        // replace atomically, so that a concurrent reader never sees a partial file
+        if (!temp.renameTo(file)) {
+            file.delete();
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new ICUUncheckedIOException("Can't rename " + temp + " to " + file);
+            }
+        }
+    }
+
+    /**
+     * Fill the (empty, unlocked) target from the snapshot, if there is one made from the XML with the given fingerprint.
+     * A snapshot that can't be read, or is corrupt, is ignored, so that the caller parses the XML instead.
+     *
+     * @return true if the target was filled, false if there is no usable snapshot (the target is then unchanged).
+     */
+    public static boolean read(File file, long expectedFingerprint, XMLSource target) {
+        if (!file.canRead()) {
+            return false;
+        }
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable snapshot " + file + ": " + e);
+            return false;
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != expectedFingerprint) {
+                return false;
+            }
+            String[] strings = new String[buffer.getInt()];
+            byte[] bytes = new byte[256];
+            for (int i = 0; i < strings.length; ++i) {
+                int length = buffer.getInt();
+                if (length > bytes.length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                buffer.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            String localeID = strings[buffer.getInt()];
+            int dtdVersion = buffer.getInt();
+            VersionInfo dtdVersionInfo = dtdVersion == NONE ? null : VersionInfo.getInstance(strings[dtdVersion]);
+            boolean nonInheriting = buffer.get() != 0;
+            int[] entries = new int[3 * buffer.getInt()];
+            buffer.asIntBuffer().get(entries);
+            buffer.position(buffer.position() + 4 * entries.length);
+            String initialComment = strings[buffer.getInt()];
+            String finalComment = strings[buffer.getInt()];
+            int[] commentEntries = new int[3 * buffer.getInt()];
+            buffer.asIntBuffer().get(commentEntries);
+            for (int i = 0; i < entries.length; i += 3) {
+                checkIndex(entries[i], strings);
+                checkIndex(entries[i + 1], strings);
+                if (entries[i + 2] != NONE) {
+                    checkIndex(entries[i + 2], strings);
+                }
+            }
+            for (int i = 0; i < commentEntries.length; i += 3) {
+                checkIndex(commentEntries[i], CommentType.values());
+                checkIndex(commentEntries[i + 1], strings);
+                checkIndex(commentEntries[i + 2], strings);
+            }
+
+            // only touch the target once the whole file has been read
+            target.setLocaleID(localeID);
+            if (dtdVersionInfo != null) {
+                target.setDtdVersionInfo(dtdVersionInfo);
+            }
+            target.setNonInheriting(nonInheriting);
+            for (int i = 0; i < entries.length; i += 3) {
+                String path = strings[entries[i]];
+                target.putValueAtDPath(path, strings[entries[i + 1]]);
+                if (entries[i + 2] != NONE) {
+                    target.putFullPathAtDPath(path, strings[entries[i + 2]]);
+                }
+            }
+            Comments comments = new Comments();
+            comments.setInitialComment(initialComment);
+            comments.setFinalComment(finalComment);
+            CommentType[] styles = CommentType.values();
+            for (int i = 0; i < commentEntries.length; i += 3) {
+                comments.addComment(styles[commentEntries[i]], strings[commentEntries[i + 1]], strings[commentEntries[i + 2]]);
+            }
+            target.setXpathComments(comments);
+            return true;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+            | IllegalArgumentException e) {
+            System.err.println("Ignoring corrupt snapshot " + file + ": " + e);
+            return false;
+        }
+    }
+
+    private static void checkIndex(int index, Object[] array) {
+        if (index < 0 || index >= array.length) {
+            throw new IndexOutOfBoundsException(index + " not in [0, " + array.length + ")");
+        }
+    }
+
+    /**
+     * The distinct strings of a snapshot, in UTF-8, each with its index.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+        private final List<byte[]> list = new ArrayList<byte[]>();
+
+        int add(String string) {
+            Integer index = indexes.get(string);
+            if (index == null) {
+                index = list.size();
+                indexes.put(string, index);
+                list.add(string.getBytes(StandardCharsets.UTF_8));
+            }
+            return index;
+        }
+    }
+}
@@ -8,6 +8,7 @@ package org.unicode.cldr.util;
 
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
@@ -18,8 +19,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSet.Builder;
 import com.ibm.icu.impl.Utility;
@@ -45,7 +48,12 @@ public final class XPathParts implements Freezable<XPathParts> {
 
     private Map<String, Map<String, String>> suppressionMap;
 
-    private static final Map<String, XPathParts> cache = new ConcurrentHashMap<String, XPathParts>();
+    /**
+     * Maximum number of parsed paths kept by getFrozenInstance. Can be set with CLDR_XPATHPARTS_CACHE_SIZE.
+     */
+    private static final int CACHE_SIZE = CLDRConfig.getInstance().getProperty("CLDR_XPATHPARTS_CACHE_SIZE", 100000);
+
+    private static final Cache<String, XPathParts> cache = CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).recordStats().build();
 
     public XPathParts() {
         this.suppressionMap = null;
@@ -171,6 +179,13 @@ public final class XPathParts implements Freezable<XPathParts> {
             return this;
         }
 
+        /**
+         * @return an unmodifiable map from paths to the comments of the given style
+         */
+        public Map<String, String> getComments(CommentType style) {
+            return Collections.unmodifiableMap(comments.get(style));
+        }
+
         public String removeComment(CommentType style, String xPath) {
             String result = comments.get(style).get(xPath);
             if (result != null) comments.get(style).remove(xPath);
@@ -527,7 +542,6 @@ public final class XPathParts implements Freezable<XPathParts> {
      * Called by set (initial = true), and addRelative (initial = false)
      */
     private XPathParts addInternal(String xPath, boolean initial) {
-        String lastAttributeName = "";
         String requiredPrefix = "/";
         if (initial) {
             elements.clear();
@@ -537,7 +551,40 @@ public final class XPathParts implements Freezable<XPathParts> {
         if (!xPath.startsWith(requiredPrefix)) {
             return parseError(xPath, 0);
         }
-        int stringStart = requiredPrefix.length(); // skip prefix
+        parse(xPath, requiredPrefix.length(), new PathHandler() {
+            @Override
+            public void handleElement(String element) {
+                addElement(element);
+            }
+
+            @Override
+            public void handleAttribute(String attribute, String value) {
+                addAttribute(attribute, value);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Receives the elements and attributes of a path from parse, in order.
+     */
+    private interface PathHandler {
+        void handleElement(String element);
+
+        void handleAttribute(String attribute, String value);
+    }
+
+    /**
+     * Split a path into elements and attributes, passing them to the handler.
+     *
+     * @param xPath the path string
+     * @param stringStart the index just after the required prefix
+     * @param handler receives each element, followed by its attributes
+     *
+     * Called by addInternal and FlatPath
+     */
+    private static void parse(String xPath, int stringStart, PathHandler handler) {
+        String lastAttributeName = "";
         char state = 'p';
         // since only ascii chars are relevant, use char
         int len = xPath.length();
@@ -549,32 +596,32 @@ public final class XPathParts implements Freezable<XPathParts> {
             switch (cp) {
             case '/':
                 if (state != 'p' || stringStart >= i) {
-                    return parseError(xPath, i);
+                    throw malformed(xPath, i);
                 }
                 if (stringStart > 0) {
-                    addElement(xPath.substring(stringStart, i));
+                    handler.handleElement(xPath.substring(stringStart, i));
                 }
                 stringStart = i + 1;
                 break;
             case '[':
                 if (state != 'p' || stringStart >= i) {
-                    return parseError(xPath, i);
+                    throw malformed(xPath, i);
                 }
                 if (stringStart > 0) {
-                    addElement(xPath.substring(stringStart, i));
+                    handler.handleElement(xPath.substring(stringStart, i));
                 }
                 state = cp;
                 break;
             case '@':
                 if (state != '[') {
-                    return parseError(xPath, i);
+                    throw malformed(xPath, i);
                 }
                 stringStart = i + 1;
                 state = cp;
                 break;
             case '=':
                 if (state != '@' || stringStart >= i) {
-                    return parseError(xPath, i);
+                    throw malformed(xPath, i);
                 }
                 lastAttributeName = xPath.substring(stringStart, i);
                 state = cp;
@@ -583,21 +630,21 @@ public final class XPathParts implements Freezable<XPathParts> {
             case '\'':
                 if (state == cp) { // finished
                     if (stringStart > i) {
-                        return parseError(xPath, i);
+                        throw malformed(xPath, i);
                     }
-                    addAttribute(lastAttributeName, xPath.substring(stringStart, i));
+                    handler.handleAttribute(lastAttributeName, xPath.substring(stringStart, i));
                     state = 'e';
                     break;
                 }
                 if (state != '=') {
-                    return parseError(xPath, i);
+                    throw malformed(xPath, i);
                 }
                 stringStart = i + 1;
                 state = cp;
                 break;
             case ']':
                 if (state != 'e') {
-                    return parseError(xPath, i);
+                    throw malformed(xPath, i);
                 }
                 state = 'p';
                 stringStart = -1;
@@ -606,12 +653,228 @@ public final class XPathParts implements Freezable<XPathParts> {
         }
         // check to make sure terminated
         if (state != 'p' || stringStart >= xPath.length()) {
-            return parseError(xPath, xPath.length());
+            throw malformed(xPath, xPath.length());
         }
         if (stringStart > 0) {
-            addElement(xPath.substring(stringStart, xPath.length()));
+            handler.handleElement(xPath.substring(stringStart, xPath.length()));
+        }
+    }
+
+    /**
+     * Get the distinguishing path of a full path, as CLDRFile.getDistinguishingXPath defines it, without building an
+     * XPathParts: draft, alt, and references on the elements before the last move to the last unordered element,
+     * and then the non-distinguishing attributes are dropped. The results are the same as making those changes
+     * to an XPathParts and calling toString(); when nothing changes, the string passed in is returned as is.
+     *
+     * @param normalizedPath if not null, normalizedPath[0] is set to the path with the attributes moved, but none dropped
+     */
+    static String getDistinguishingXPath(String xPath, String[] normalizedPath) {
+        FlatPath path = new FlatPath(xPath);
+        if (normalizedPath != null) {
+            normalizedPath[0] = path.getNormalized();
+        }
+        return path.getDistinguishing();
+    }
+
+    /**
+     * A path split by parse into flat arrays of elements and attributes, with the attributes of each element
+     * in the same order (and with the same handling of duplicates) as the TreeMap of an Element.
+     */
+    private static final class FlatPath implements PathHandler {
+        private final String xPath;
+        private DtdData dtdData;
+        private MapComparator<String> comparator;
+        private String[] elements = new String[8];
+        private int elementCount = 0;
+        // the attributes of element i are at [attributeStart[i], attributeStart[i+1])
+        private int[] attributeStart = new int[9];
+        private String[] names = new String[8];
+        private String[] values = new String[8];
+        private int attributeCount = 0;
+        // whether the attributes were already in order, and the length that toString() would have
+        private boolean ordered = true;
+        private int toStringLength = 1;
+
+        // draft, alt, and references found on elements before the last, and where they move to
+        private String draft = null;
+        private String alt = null;
+        private String references = "";
+        private int placement = -1;
+
+        FlatPath(String xPath) {
+            this.xPath = xPath;
+            if (!xPath.startsWith("//")) {
+                throw malformed(xPath, 0);
+            }
+            parse(xPath, 2, this);
+            if (dtdData == null) {
+                throw new IllegalArgumentException("Unknown DTD type in xPath '" + xPath + "'");
+            }
+            // note: each successive item overrides the previous one. That's intended
+            int last = elementCount - 1;
+            for (int i = 0; i < attributeStart[last]; ++i) {
+                String name = names[i];
+                if (name.equals("draft")) {
+                    draft = values[i];
+                } else if (name.equals("alt")) {
+                    alt = values[i];
+                } else if (name.equals("references")) {
+                    if (references.length() != 0) references += " ";
+                    references += values[i];
+                }
+            }
+            if (draft != null || alt != null || references.length() != 0) {
+                // get the last element that is not ordered.
+                placement = last;
+                while (placement > 0 && dtdData.isOrdered(elements[placement])) {
+                    --placement;
+                }
+            }
+        }
+
+        @Override
+        public void handleElement(String element) {
+            if (elementCount == 0) {
+                try {
+                    dtdData = DtdData.getInstance(DtdType.valueOf(element));
+                    comparator = getAttributeComparator(dtdData);
+                } catch (Exception e) {
+                    dtdData = null;
+                }
+            }
+            if (elementCount == elements.length) {
+                elements = Arrays.copyOf(elements, elementCount * 2);
+                attributeStart = Arrays.copyOf(attributeStart, elementCount * 2 + 1);
+            }
+            elements[elementCount++] = element;
+            attributeStart[elementCount] = attributeCount;
+            toStringLength += 1 + element.length();
+        }
+
+        @Override
+        public void handleAttribute(String attribute, String value) {
+            if (attributeCount == names.length) {
+                names = Arrays.copyOf(names, attributeCount * 2);
+                values = Arrays.copyOf(values, attributeCount * 2);
+            }
+            int newCount = put(names, values, attributeStart[elementCount - 1], attributeCount, attribute, value);
+            if (newCount == attributeCount || !names[attributeCount].equals(attribute)) {
+                ordered = false; // a duplicate, or out of order
+            }
+            attributeCount = newCount;
+            attributeStart[elementCount] = attributeCount;
+            toStringLength += attribute.length() + value.length() + 6; // [@a="v"]
+        }
+
+        /**
+         * @return whether the string is exactly what toString() would produce: nothing was skipped or requoted
+         */
+        private boolean isCanonical() {
+            return ordered && toStringLength == xPath.length() && xPath.indexOf('\'') < 0;
+        }
+
+        String getNormalized() {
+            if (placement < 0) {
+                return xPath;
+            }
+            String result = toPath(false);
+            return result.equals(xPath) ? xPath : result;
+        }
+
+        String getDistinguishing() {
+            if (placement < 0 && isCanonical()) {
+                boolean allDistinguishing = true;
+                for (int e = 0; e < elementCount && allDistinguishing; ++e) {
+                    for (int i = attributeStart[e]; i < attributeStart[e + 1]; ++i) {
+                        if (!dtdData.isDistinguishing(elements[e], names[i])) {
+                            allDistinguishing = false;
+                            break;
+                        }
+                    }
+                }
+                if (allDistinguishing) {
+                    return xPath; // don't make a copy if we don't have to.
+                }
+            }
+            String result = toPath(true);
+            return result.equals(xPath) ? xPath : result;
+        }
+
+        private static boolean isMoved(String name) {
+            return name.equals("draft") || name.equals("alt") || name.equals("references");
+        }
+
+        private String toPath(boolean distinguishingOnly) {
+            StringBuilder result = new StringBuilder(xPath.length());
+            result.append('/');
+            int last = elementCount - 1;
+            for (int e = 0; e < elementCount; ++e) {
+                String element = elements[e];
+                result.append('/').append(element);
+                String[] elementNames = names;
+                String[] elementValues = values;
+                int start = attributeStart[e];
+                int limit = attributeStart[e + 1];
+                if (e == placement) {
+                    elementNames = new String[limit - start + 3];
+                    elementValues = new String[limit - start + 3];
+                    int count = 0;
+                    for (int i = start; i < limit; ++i) {
+                        if (e < last && isMoved(names[i])) {
+                            continue;
+                        }
+                        elementNames[count] = names[i];
+                        elementValues[count++] = values[i];
+                    }
+                    if (draft != null) {
+                        count = put(elementNames, elementValues, 0, count, "draft", draft);
+                    }
+                    if (alt != null) {
+                        count = put(elementNames, elementValues, 0, count, "alt", alt);
+                    }
+                    if (references.length() != 0) {
+                        count = put(elementNames, elementValues, 0, count, "references", references);
+                    }
+                    start = 0;
+                    limit = count;
+                }
+                for (int i = start; i < limit; ++i) {
+                    String name = elementNames[i];
+                    if (e < last && e != placement && isMoved(name)
+                        || distinguishingOnly && !dtdData.isDistinguishing(element, name)) {
+                        continue;
+                    }
+                    result.append("[@").append(name).append("=\"").append(elementValues[i]).append("\"]");
+                }
+            }
+            return result.toString();
+        }
+
+        /**
+         * Put the attribute into the sorted range [start, limit) the way the TreeMap of an Element would:
+         * an attribute that compares as equal gets the new value. The arrays must have room for one more.
+         *
+         * @return the new limit
+         */
+        private int put(String[] names, String[] values, int start, int limit, String name, String value) {
+            int i = limit;
+            while (i > start) {
+                int order = comparator == null ? names[i - 1].compareTo(name) : comparator.compare(names[i - 1], name);
+                if (order == 0) {
+                    values[i - 1] = value;
+                    return limit;
+                }
+                if (order < 0) {
+                    break;
+                }
+                --i;
+            }
+            System.arraycopy(names, i, names, i + 1, limit - i);
+            System.arraycopy(values, i, values, i + 1, limit - i);
+            names[i] = name;
+            values[i] = value;
+            return limit + 1;
         }
-        return this;
     }
 
     /**
@@ -682,7 +945,11 @@ public final class XPathParts implements Freezable<XPathParts> {
     // ========== Privates ==========
 
     private XPathParts parseError(String s, int i) {
-        throw new IllegalArgumentException("Malformed xPath '" + s + "' at " + i);
+        throw malformed(s, i);
+    }
+
+    private static IllegalArgumentException malformed(String s, int i) {
+        return new IllegalArgumentException("Malformed xPath '" + s + "' at " + i);
     }
 
     public static final int XPATH_STYLE = 0, XML_OPEN = 1, XML_CLOSE = 2, XML_NO_VALUE = 3;
@@ -960,6 +1227,10 @@ public final class XPathParts implements Freezable<XPathParts> {
      * Called by the Element constructor, and by putAttribute
      */
     private MapComparator<String> getAttributeComparator() {
+        return getAttributeComparator(dtdData);
+    }
+
+    private static MapComparator<String> getAttributeComparator(DtdData dtdData) {
         return dtdData == null ? null
             : dtdData.dtdType == DtdType.ldml ? CLDRFile.getAttributeOrdering()
                 : dtdData.getAttributeComparator();
@@ -1231,8 +1502,13 @@ public final class XPathParts implements Freezable<XPathParts> {
         return xppClone;
     }
 
-    public static synchronized XPathParts getFrozenInstance(String path) {
-        XPathParts result = cache.get(path);
+    /**
+     * Get a frozen, cached XPathParts for the given path. Takes no global lock;
+     * if two threads parse the same new path at once, both results are
+     * equivalent and either may end up in the cache.
+     */
+    public static XPathParts getFrozenInstance(String path) {
+        XPathParts result = cache.getIfPresent(path);
         if (result == null) {
             result = new XPathParts().addInternal(path, true).freeze();
             cache.put(path, result);
@@ -1240,6 +1516,20 @@ public final class XPathParts implements Freezable<XPathParts> {
         return result;
     }
 
+    /**
+     * Hit, miss and eviction counts for the getFrozenInstance cache.
+     */
+    public static CacheStats getCacheStatistics() {
+        return cache.stats();
+    }
+
+    /**
+     * Number of parsed paths currently cached.
+     */
+    public static long getCacheSize() {
+        return cache.size();
+    }
+
     public static XPathParts getInstance(String path) {
         return getFrozenInstance(path).cloneAsThawed();
     }